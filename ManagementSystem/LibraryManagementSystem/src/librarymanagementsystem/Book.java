@@ -0,0 +1,21 @@
+package librarymanagementsystem;
+
+class Book {
+    private String id, title, author, category;
+    private volatile boolean available; // Changed under the repository's write lock, read anywhere
+    
+    public Book(String id, String title, String author, String category, boolean available) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.category = category;
+        this.available = available;
+    }
+    
+    public String getId() { return id; }
+    public String getTitle() { return title; }
+    public String getAuthor() { return author; }
+    public String getCategory() { return category; }
+    public boolean isAvailable() { return available; }
+    public void setAvailable(boolean available) { this.available = available; }
+}
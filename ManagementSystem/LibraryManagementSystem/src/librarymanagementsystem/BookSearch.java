@@ -0,0 +1,115 @@
+package librarymanagementsystem;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Search-as-you-type for the books table. Typing restarts a short timer;
+ * when it fires, the query runs on a worker thread against the
+ * {@link CatalogIndex} and the matches stream into the table in batches.
+ * A newer query cancels the one still running, and adding a book re-runs
+ * the current query; additions arrive on the EDT through an {@link EdtLibraryListener}.
+ */
+class BookSearch implements LibraryListener {
+    private static final int DEBOUNCE_MS = 120;
+    private static final int BATCH = 1000;
+
+    private final CatalogIndex index;
+    private final BookTableModel model;
+    private final JTextField field;
+    private final JLabel status;
+    private final Timer timer;
+    private SwingWorker<Integer, int[]> worker;
+
+    public BookSearch(LibraryRepository library, CatalogIndex index, BookTableModel model, JTextField field, JLabel status) {
+        this.index = index;
+        this.model = model;
+        this.field = field;
+        this.status = status;
+        timer = new Timer(DEBOUNCE_MS, e -> run());
+        timer.setRepeats(false);
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { timer.restart(); }
+            public void removeUpdate(DocumentEvent e) { timer.restart(); }
+            public void changedUpdate(DocumentEvent e) { timer.restart(); }
+        });
+        EdtLibraryListener.register(library, this);
+    }
+
+    @Override
+    public void bookAdded(int row) {
+        if (!field.getText().isBlank()) {
+            timer.restart();
+        }
+    }
+
+    @Override
+    public void booksAdded(int firstRow, int lastRow) {
+        bookAdded(lastRow);
+    }
+
+    private void run() {
+        if (worker != null) {
+            worker.cancel(true);
+        }
+        String query = field.getText();
+        if (query.isBlank()) {
+            worker = null;
+            model.showAll();
+            status.setText(" ");
+            return;
+        }
+        model.showMatches();
+        long start = System.nanoTime();
+        worker = new SwingWorker<Integer, int[]>() {
+            @Override
+            protected Integer doInBackground() {
+                BitSet rows = index.search(query, this::isCancelled);
+                if (rows == null) {
+                    return 0;
+                }
+                int[] batch = new int[BATCH];
+                int count = 0;
+                for (int row = rows.nextSetBit(0); row >= 0 && !isCancelled(); row = rows.nextSetBit(row + 1)) {
+                    batch[count++] = row;
+                    if (count == BATCH) {
+                        publish(batch);
+                        batch = new int[BATCH];
+                        count = 0;
+                    }
+                }
+                if (count > 0) {
+                    publish(Arrays.copyOf(batch, count));
+                }
+                return rows.cardinality();
+            }
+
+            @Override
+            protected void process(List<int[]> batches) {
+                if (isCancelled()) {
+                    return;
+                }
+                for (int[] rows : batches) {
+                    model.addMatches(rows, rows.length);
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    status.setText(String.format("%,d found in %d ms", get(), (System.nanoTime() - start) / 1_000_000));
+                } catch (Exception ex) {
+                    status.setText("Search failed: " + ex.getMessage());
+                }
+            }
+        };
+        worker.execute();
+    }
+}
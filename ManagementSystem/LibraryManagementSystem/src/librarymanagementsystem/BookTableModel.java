@@ -0,0 +1,98 @@
+package librarymanagementsystem;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+
+/**
+ * Shows the repository's books. Cells are read from the repository when the
+ * table paints them, and a change notifies the table of that row only.
+ *
+ * While a search is shown, the table lists only the matching rows, which
+ * arrive in increasing order in batches as the search produces them.
+ * Changes arrive on the EDT through an {@link EdtLibraryListener}, and the
+ * table shows the books those changes have reported so far.
+ */
+class BookTableModel extends AbstractTableModel implements LibraryListener {
+    private static final String[] COLUMNS = {"Book ID", "Title", "Author", "Category", "Status"};
+
+    private final LibraryRepository library;
+    private int bookCount; // As of the last change delivered on the EDT
+    private int[] matches; // Repository rows shown while searching, or null for all
+    private int matchCount;
+
+    public BookTableModel(LibraryRepository library) {
+        this.library = library;
+        EdtLibraryListener.register(library, this, () -> bookCount = library.bookCount());
+    }
+
+    @Override public int getRowCount() { return matches == null ? bookCount : matchCount; }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Book book = library.bookAt(matches == null ? row : matches[row]);
+        switch (column) {
+            case 0: return book.getId();
+            case 1: return book.getTitle();
+            case 2: return book.getAuthor();
+            case 3: return book.getCategory();
+            default: return book.isAvailable() ? "Available" : "Issued";
+        }
+    }
+
+    /** Shows every book again. */
+    public void showAll() {
+        matches = null;
+        fireTableDataChanged();
+    }
+
+    /** Starts showing search results, with no rows yet. */
+    public void showMatches() {
+        matches = new int[64];
+        matchCount = 0;
+        fireTableDataChanged();
+    }
+
+    /** Appends search results; rows must be higher than those already shown. */
+    public void addMatches(int[] rows, int count) {
+        if (matches == null || count == 0) {
+            return;
+        }
+        if (matchCount + count > matches.length) {
+            matches = Arrays.copyOf(matches, Math.max(matches.length * 2, matchCount + count));
+        }
+        System.arraycopy(rows, 0, matches, matchCount, count);
+        matchCount += count;
+        fireTableRowsInserted(matchCount - count, matchCount - 1);
+    }
+
+    /** @return The repository row shown at this table row. */
+    public int bookRow(int row) {
+        return matches == null ? row : matches[row];
+    }
+
+    @Override
+    public void bookAdded(int row) {
+        bookCount = row + 1;
+        if (matches == null) {
+            fireTableRowsInserted(row, row);
+        }
+    }
+
+    @Override
+    public void booksAdded(int firstRow, int lastRow) {
+        bookCount = lastRow + 1;
+        if (matches == null) {
+            fireTableRowsInserted(firstRow, lastRow);
+        }
+    }
+
+    @Override
+    public void bookChanged(int row) {
+        int shown = matches == null ? row : Arrays.binarySearch(matches, 0, matchCount, row);
+        if (shown >= 0) {
+            fireTableRowsUpdated(shown, shown);
+        }
+    }
+}
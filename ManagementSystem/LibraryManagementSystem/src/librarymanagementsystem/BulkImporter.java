@@ -0,0 +1,554 @@
+package librarymanagementsystem;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Imports books or members from a file in bulk.
+ *
+ * The file is read in chunks of about 1 MB, cut between records. Chunks are
+ * parsed and validated in parallel, then taken in file order, so the first
+ * of several records with the same id wins. Records that are new to the
+ * library are added in batches through {@link LibraryRepository#addBooks}
+ * or {@link LibraryRepository#addMembers}, so the tables, the search index
+ * and the store each handle a whole batch at once.
+ *
+ * Formats:
+ * <ul>
+ * <li>CSV: id, title, author, category and optionally status for books, or
+ *     id, name, email and phone for members. A header row is skipped, and
+ *     fields may be quoted, with "" for a quote.</li>
+ * <li>MARC-like lines (books only): one field per line as "=TAG  value",
+ *     with subfields as $a, $b...; records end at a blank line. 001 is the
+ *     id, 245 $a $b the title, 100 $a the author and 650 $a the category.</li>
+ * </ul>
+ */
+class BulkImporter {
+    enum Kind { BOOKS, MEMBERS }
+    enum Format { CSV, MARC }
+
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final int BATCH = 50_000;
+    private static final int MAX_ERRORS = 20;
+
+    /**
+     * Runs a batch and waits for it. The library and its listeners take
+     * changes from any thread, so Runnable::run will do; views hear about
+     * a batch on the EDT through {@link EdtLibraryListener}.
+     */
+    interface Committer {
+        void commit(Runnable batch) throws InterruptedException, InvocationTargetException;
+    }
+
+    /** Told after every chunk how far the import got. */
+    interface Progress {
+        void update(long bytesRead, long bytesTotal, int imported);
+    }
+
+    /** What an import did. */
+    static final class Result {
+        int imported;
+        int duplicates;
+        int invalid;
+        boolean cancelled;
+        long millis;
+        final List<String> errors = new ArrayList<>(); // The first few invalid records
+    }
+
+    private final LibraryRepository library;
+    private final Path file;
+    private final Kind kind;
+    private final Format format;
+
+    public BulkImporter(LibraryRepository library, Path file, Kind kind) {
+        this.library = library;
+        this.file = file;
+        this.kind = kind;
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        this.format = kind == Kind.BOOKS && (name.endsWith(".mrk") || name.endsWith(".marc")) ? Format.MARC : Format.CSV;
+    }
+
+    /**
+     * Runs the import on the calling thread, which should not be the EDT.
+     * @param cancelled Polled between chunks; batches already added stay.
+     */
+    public Result run(Progress progress, BooleanSupplier cancelled, Committer committer)
+            throws IOException, InterruptedException, InvocationTargetException {
+        long start = System.nanoTime();
+        long total = Files.size(file);
+        Result result = new Result();
+        Set<String> seen = new HashSet<>();
+        List<Object> batch = new ArrayList<>();
+        long bytesRead = 0;
+        int line = 1;
+
+        try (ParsedChunks chunks = new ParsedChunks()) {
+            Chunk chunk;
+            while ((chunk = chunks.next()) != null) {
+                if (cancelled.getAsBoolean()) {
+                    result.cancelled = true;
+                    break;
+                }
+                for (Object record : chunk.records) {
+                    if (seen.add(idOf(record))) {
+                        batch.add(record);
+                    } else {
+                        result.duplicates++;
+                    }
+                }
+                line = tally(chunk, result, line);
+                bytesRead += chunk.bytes;
+                if (batch.size() >= BATCH) {
+                    commit(batch, result, committer);
+                }
+                progress.update(bytesRead, total, result.imported + batch.size());
+            }
+        }
+        if (!result.cancelled) {
+            commit(batch, result, committer);
+            progress.update(total, total, result.imported);
+        }
+        result.millis = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+
+    /**
+     * Writes the books in the file as a new {@link ColumnarCatalog} in dir
+     * instead of adding them to the library. Each parsed chunk streams
+     * straight into the catalog's column files, so only the chunks being
+     * parsed are held in memory. Runs on the calling thread.
+     * @param cancelled Polled between chunks; a cancelled catalog is left
+     *     incomplete, cannot be opened, and counts no books.
+     * @throws IllegalArgumentException If two books share an id or an id is too long.
+     */
+    public Result writeCatalog(Path dir, Progress progress, BooleanSupplier cancelled) throws IOException {
+        if (kind != Kind.BOOKS) {
+            throw new IllegalStateException("Only books go into a catalog");
+        }
+        long start = System.nanoTime();
+        long total = Files.size(file);
+        Result result = new Result();
+
+        try (ParsedChunks chunks = new ParsedChunks()) {
+            Iterator<Book> books = new Iterator<Book>() {
+                private Iterator<Object> records = Collections.emptyIterator();
+                private long bytesRead;
+                private int line = 1;
+
+                @Override
+                public boolean hasNext() {
+                    while (!records.hasNext()) {
+                        progress.update(bytesRead, total, result.imported);
+                        if (cancelled.getAsBoolean()) {
+                            throw new CancellationException();
+                        }
+                        Chunk chunk;
+                        try {
+                            chunk = chunks.next();
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                        if (chunk == null) {
+                            return false;
+                        }
+                        line = tally(chunk, result, line);
+                        bytesRead += chunk.bytes;
+                        records = chunk.records.iterator();
+                    }
+                    return true;
+                }
+
+                @Override
+                public Book next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    result.imported++;
+                    return (Book) records.next();
+                }
+            };
+            ColumnarCatalog.write(dir, books);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } catch (CancellationException ex) {
+            result.cancelled = true;
+            result.imported = 0;
+        }
+        progress.update(total, total, result.imported);
+        result.millis = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+
+    /**
+     * Counts the invalid records of a chunk that starts at line.
+     * @return The line after the chunk.
+     */
+    private static int tally(Chunk chunk, Result result, int line) {
+        result.invalid += chunk.invalid;
+        for (int i = 0; i < chunk.errors.size() && result.errors.size() < MAX_ERRORS; i++) {
+            result.errors.add("Line " + (line + chunk.errorLines.get(i) - 1) + ": " + chunk.errors.get(i));
+        }
+        return line + chunk.lines;
+    }
+
+    private void commit(List<Object> batch, Result result, Committer committer)
+            throws InterruptedException, InvocationTargetException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Object> records = new ArrayList<>(batch);
+        batch.clear();
+        committer.commit(() -> library.write(() -> {
+            // Records already in the library count as duplicates
+            if (kind == Kind.BOOKS) {
+                List<Book> fresh = new ArrayList<>(records.size());
+                for (Object record : records) {
+                    if (library.getBook(((Book) record).getId()) == null) {
+                        fresh.add((Book) record);
+                    }
+                }
+                library.addBooks(fresh);
+                result.imported += fresh.size();
+                result.duplicates += records.size() - fresh.size();
+            } else {
+                List<Member> fresh = new ArrayList<>(records.size());
+                for (Object record : records) {
+                    if (library.getMember(((Member) record).getId()) == null) {
+                        fresh.add((Member) record);
+                    }
+                }
+                library.addMembers(fresh);
+                result.imported += fresh.size();
+                result.duplicates += records.size() - fresh.size();
+            }
+        }));
+    }
+
+    private static String idOf(Object record) {
+        return record instanceof Book ? ((Book) record).getId() : ((Member) record).getId();
+    }
+
+    // --- Chunking ---
+
+    /** The file's chunks, parsed in parallel a few ahead and handed out in file order. */
+    private final class ParsedChunks implements Closeable {
+        private final InputStream in;
+        private final ChunkReader reader;
+        private final Deque<CompletableFuture<Chunk>> parsing = new ArrayDeque<>();
+        private final int window = Math.max(2, 2 * Runtime.getRuntime().availableProcessors());
+        private boolean first = true;
+
+        ParsedChunks() throws IOException {
+            in = Files.newInputStream(file);
+            reader = new ChunkReader(in);
+        }
+
+        /** @return The next chunk, or null at the end of the file. */
+        Chunk next() throws IOException {
+            while (parsing.size() < window) {
+                byte[] chunk = reader.next();
+                if (chunk == null) {
+                    break;
+                }
+                boolean skipHeader = first;
+                first = false;
+                parsing.add(CompletableFuture.supplyAsync(() -> parse(chunk, skipHeader)));
+            }
+            return parsing.isEmpty() ? null : parsing.poll().join();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /** Reads the file in chunks that end between two records. */
+    private final class ChunkReader {
+        private final InputStream in;
+        private byte[] buffer = new byte[CHUNK_BYTES];
+        private int length; // Bytes in buffer, the start of the next chunk
+        private boolean eof;
+
+        ChunkReader(InputStream in) {
+            this.in = in;
+        }
+
+        /** @return The next chunk, or null at the end of the file. */
+        byte[] next() throws IOException {
+            while (true) {
+                while (!eof && length < buffer.length) {
+                    int read = in.read(buffer, length, buffer.length - length);
+                    if (read < 0) {
+                        eof = true;
+                    } else {
+                        length += read;
+                    }
+                }
+                int cut = eof ? length : lastBoundary(buffer, length);
+                if (cut == 0 && !eof) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2); // A record longer than the buffer
+                    continue;
+                }
+                if (cut == 0) {
+                    return null;
+                }
+                byte[] chunk = Arrays.copyOf(buffer, cut);
+                System.arraycopy(buffer, cut, buffer, 0, length - cut);
+                length -= cut;
+                return chunk;
+            }
+        }
+    }
+
+    /**
+     * @return The end of the last complete record in the first length bytes,
+     *     or 0 if there is none. UTF-8 never uses the bytes of '"' or '\n'
+     *     inside other characters, so bytes can be scanned directly.
+     */
+    private int lastBoundary(byte[] bytes, int length) {
+        if (format == Format.MARC) {
+            for (int i = length - 1; i > 0; i--) {
+                if (bytes[i] == '\n' && (bytes[i - 1] == '\n' || (bytes[i - 1] == '\r' && i > 1 && bytes[i - 2] == '\n'))) {
+                    return i + 1;
+                }
+            }
+            return 0;
+        }
+        // Chunks start outside quotes, so quoting can be tracked from the start
+        boolean quoted = false;
+        int boundary = 0;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] == '"') {
+                quoted = !quoted;
+            } else if (bytes[i] == '\n' && !quoted) {
+                boundary = i + 1;
+            }
+        }
+        return boundary;
+    }
+
+    // --- Parsing ---
+
+    /** The valid records of a chunk and what was wrong with the rest. */
+    private static final class Chunk {
+        final List<Object> records = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+        final List<Integer> errorLines = new ArrayList<>(); // Counted from 1 within the chunk
+        int invalid;
+        int lines;
+        int bytes;
+
+        void reject(int line, String error) {
+            invalid++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(error);
+                errorLines.add(line);
+            }
+        }
+    }
+
+    private Chunk parse(byte[] bytes, boolean first) {
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        Chunk chunk = format == Format.MARC ? parseMarc(text) : parseCsv(text, first);
+        chunk.bytes = bytes.length;
+        for (byte b : bytes) {
+            if (b == '\n') {
+                chunk.lines++;
+            }
+        }
+        return chunk;
+    }
+
+    private Chunk parseCsv(String text, boolean first) {
+        Chunk chunk = new Chunk();
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int line = 1;
+        int position = 0;
+        while (position < text.length()) {
+            int recordLine = line;
+            fields.clear();
+            // One record: fields up to an unquoted line break
+            while (true) {
+                int end = position;
+                while (end < text.length() && text.charAt(end) != ',' && text.charAt(end) != '\n' && text.charAt(end) != '"') {
+                    end++;
+                }
+                if (end < text.length() && text.charAt(end) == '"') {
+                    // Quoted, possibly with "" and line breaks inside
+                    field.setLength(0);
+                    field.append(text, position, end);
+                    position = end + 1;
+                    while (position < text.length()) {
+                        char c = text.charAt(position++);
+                        if (c == '"') {
+                            if (position < text.length() && text.charAt(position) == '"') {
+                                field.append('"');
+                                position++;
+                            } else {
+                                break;
+                            }
+                        } else {
+                            if (c == '\n') {
+                                line++;
+                            }
+                            field.append(c);
+                        }
+                    }
+                    while (position < text.length() && text.charAt(position) != ',' && text.charAt(position) != '\n') {
+                        field.append(text.charAt(position++));
+                    }
+                    fields.add(field.toString().trim());
+                } else {
+                    fields.add(text.substring(position, end).trim());
+                    position = end;
+                }
+                if (position < text.length() && text.charAt(position) == ',') {
+                    position++;
+                    continue;
+                }
+                position++; // Line break or end of text
+                line++;
+                break;
+            }
+
+            if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                continue; // Blank line
+            }
+            if (first && recordLine == 1 && isHeader(fields.get(0))) {
+                continue;
+            }
+            if (kind == Kind.BOOKS) {
+                addBook(chunk, recordLine, fields);
+            } else {
+                addMember(chunk, recordLine, fields);
+            }
+        }
+        return chunk;
+    }
+
+    private static boolean isHeader(String field) {
+        String name = field.toLowerCase(Locale.ROOT).replace(" ", "");
+        return name.equals("id") || name.equals("bookid") || name.equals("memberid");
+    }
+
+    private static void addBook(Chunk chunk, int line, List<String> fields) {
+        if (fields.size() < 4 || fields.size() > 5) {
+            chunk.reject(line, "Expected id, title, author, category and optionally status");
+            return;
+        }
+        if (fields.get(0).isEmpty() || fields.get(1).isEmpty()) {
+            chunk.reject(line, "A book needs an id and a title");
+            return;
+        }
+        boolean available = true;
+        if (fields.size() == 5) {
+            switch (fields.get(4).toLowerCase(Locale.ROOT)) {
+                case "": case "available": case "true": case "yes": case "1":
+                    break;
+                case "issued": case "false": case "no": case "0":
+                    available = false;
+                    break;
+                default:
+                    chunk.reject(line, "Unknown status " + fields.get(4));
+                    return;
+            }
+        }
+        chunk.records.add(new Book(fields.get(0), fields.get(1), fields.get(2), fields.get(3), available));
+    }
+
+    private static void addMember(Chunk chunk, int line, List<String> fields) {
+        if (fields.size() < 2 || fields.size() > 4) {
+            chunk.reject(line, "Expected id, name, email and phone");
+            return;
+        }
+        if (fields.get(0).isEmpty() || fields.get(1).isEmpty()) {
+            chunk.reject(line, "A member needs an id and a name");
+            return;
+        }
+        String email = fields.size() > 2 ? fields.get(2) : "";
+        if (!email.isEmpty() && email.indexOf('@') <= 0) {
+            chunk.reject(line, "Invalid email " + email);
+            return;
+        }
+        chunk.records.add(new Member(fields.get(0), fields.get(1), email, fields.size() > 3 ? fields.get(3) : ""));
+    }
+
+    private static Chunk parseMarc(String text) {
+        Chunk chunk = new Chunk();
+        Map<String, String> fields = new HashMap<>();
+        int line = 0;
+        int recordLine = 1;
+        int position = 0;
+        while (position <= text.length()) {
+            int end = text.indexOf('\n', position);
+            if (end < 0) {
+                end = text.length();
+            }
+            String content = text.substring(position, end).strip();
+            position = end + 1;
+            line++;
+            if (content.isEmpty()) {
+                if (!fields.isEmpty()) {
+                    addMarcBook(chunk, recordLine, fields);
+                    fields.clear();
+                }
+                recordLine = line + 1;
+                continue;
+            }
+            if (content.length() >= 4 && content.charAt(0) == '=') {
+                // Keep the first occurrence of a tag, e.g. the main subject
+                fields.putIfAbsent(content.substring(1, 4), content.length() > 6 ? content.substring(6) : "");
+            }
+        }
+        if (!fields.isEmpty()) {
+            addMarcBook(chunk, recordLine, fields);
+        }
+        return chunk;
+    }
+
+    private static void addMarcBook(Chunk chunk, int line, Map<String, String> fields) {
+        String id = fields.getOrDefault("001", "").strip();
+        String title = join(subfield(fields.get("245"), 'a'), subfield(fields.get("245"), 'b'));
+        if (id.isEmpty() || title.isEmpty()) {
+            chunk.reject(line, "A record needs a 001 id and a 245 title");
+            return;
+        }
+        chunk.records.add(new Book(id, title, subfield(fields.get("100"), 'a'), subfield(fields.get("650"), 'a'), true));
+    }
+
+    /**
+     * @return A subfield of a data field ("10$aTitle :$bsubtitle /"), without
+     *     the trailing ISBD punctuation, or "" if it is missing.
+     */
+    static String subfield(String field, char code) {
+        if (field == null) {
+            return "";
+        }
+        int start = field.indexOf("$" + code);
+        if (start < 0) {
+            return "";
+        }
+        int end = field.indexOf('$', start + 2);
+        String value = field.substring(start + 2, end < 0 ? field.length() : end).strip();
+        int length = value.length();
+        while (length > 0 && " /:;,=".indexOf(value.charAt(length - 1)) >= 0) {
+            length--;
+        }
+        // A closing full stop, but not the one of an initial as in "Salinger, J. D."
+        if (length > 1 && value.charAt(length - 1) == '.' && Character.isLowerCase(value.charAt(length - 2))) {
+            length--;
+        }
+        return value.substring(0, length);
+    }
+
+    private static String join(String title, String subtitle) {
+        return subtitle.isEmpty() ? title : title + ": " + subtitle;
+    }
+}
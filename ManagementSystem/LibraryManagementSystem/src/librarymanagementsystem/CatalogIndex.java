@@ -0,0 +1,274 @@
+package librarymanagementsystem;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Inverted index over the title, author and category of every book.
+ *
+ * Each word (lower case, accents removed) maps to the sorted rows of the
+ * books containing it. A query matches books containing all of its words;
+ * the last word also matches as a prefix while it is being typed. A word
+ * with no match is retried with typos allowed: one edit for words of 4 to 7
+ * letters, two from 8, among the words starting with the same letter.
+ *
+ * The index follows the repository as a {@link LibraryListener}. Searches
+ * may run on any thread while books are added on another.
+ */
+class CatalogIndex implements LibraryListener {
+    private static final int SLICE = 65_536; // Rows split into words at a time when indexing in bulk
+
+    private final LibraryRepository library;
+
+    // Word -> rows; the sorted map serves prefix and typo lookups
+    private final Map<String, Postings> words = new HashMap<>();
+    private final NavigableMap<String, Postings> sortedWords = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public CatalogIndex(LibraryRepository library) {
+        this.library = library;
+        library.read(() -> { // No book may slip in between
+            if (library.bookCount() > 0) {
+                addAll(0, library.bookCount() - 1);
+            }
+            library.addListener(this);
+        });
+    }
+
+    @Override
+    public void bookAdded(int row) {
+        List<String> bookWords = wordsOf(library.bookAt(row));
+        lock.writeLock().lock();
+        try {
+            add(row, bookWords);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void booksAdded(int firstRow, int lastRow) {
+        addAll(firstRow, lastRow);
+    }
+
+    /**
+     * Indexes a range of rows, splitting their text into words in parallel
+     * and then adding the words in row order, a slice at a time.
+     */
+    private void addAll(int firstRow, int lastRow) {
+        for (int start = firstRow; start <= lastRow; start += SLICE) {
+            int end = Math.min(lastRow, start + SLICE - 1);
+            // Read on this thread, which may hold the repository's write lock
+            Book[] slice = new Book[end - start + 1];
+            for (int i = 0; i < slice.length; i++) {
+                slice[i] = library.bookAt(start + i);
+            }
+            List<List<String>> sliceWords = Arrays.stream(slice).parallel()
+                .map(CatalogIndex::wordsOf)
+                .collect(Collectors.toList());
+            lock.writeLock().lock();
+            try {
+                for (int i = 0; i < sliceWords.size(); i++) {
+                    add(start + i, sliceWords.get(i));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static List<String> wordsOf(Book book) {
+        List<String> bookWords = tokenize(book.getTitle());
+        bookWords.addAll(tokenize(book.getAuthor()));
+        bookWords.addAll(tokenize(book.getCategory()));
+        return bookWords;
+    }
+
+    // Callers hold the write lock
+    private void add(int row, List<String> bookWords) {
+        for (String word : bookWords) {
+            Postings postings = words.get(word);
+            if (postings == null) {
+                postings = new Postings();
+                words.put(word, postings);
+                sortedWords.put(word, postings);
+            }
+            postings.add(row);
+        }
+    }
+
+    /**
+     * @param query Words to look for; a trailing space ends the last word.
+     * @param cancelled Polled between words; the search stops when it returns true.
+     * @return The rows of the matching books, or null if the query has no words.
+     */
+    public BitSet search(String query, BooleanSupplier cancelled) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        boolean lastIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        lock.readLock().lock();
+        try {
+            // Match every word first, then intersect starting with the rarest
+            List<List<Postings>> matches = new ArrayList<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                boolean prefix = lastIsPrefix && i == tokens.size() - 1;
+                List<Postings> match = match(tokens.get(i), prefix);
+                if (match.isEmpty() || cancelled.getAsBoolean()) {
+                    return new BitSet();
+                }
+                matches.add(match);
+            }
+            matches.sort(Comparator.comparingLong(CatalogIndex::size));
+
+            BitSet result = union(matches.get(0));
+            for (int i = 1; i < matches.size() && !result.isEmpty(); i++) {
+                if (cancelled.getAsBoolean()) {
+                    return new BitSet();
+                }
+                result.and(union(matches.get(i)));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Postings> match(String token, boolean prefix) {
+        List<Postings> match = new ArrayList<>();
+        if (prefix) {
+            match.addAll(sortedWords.subMap(token, true, token + Character.MAX_VALUE, false).values());
+        } else {
+            Postings exact = words.get(token);
+            if (exact != null) {
+                match.add(exact);
+            }
+        }
+        if (match.isEmpty() && token.length() >= 4) {
+            int maxEdits = token.length() >= 8 ? 2 : 1;
+            String first = token.substring(0, 1);
+            for (Map.Entry<String, Postings> word : sortedWords.subMap(first, true, first + Character.MAX_VALUE, false).entrySet()) {
+                if (withinEdits(token, word.getKey(), maxEdits, prefix)) {
+                    match.add(word.getValue());
+                }
+            }
+        }
+        return match;
+    }
+
+    private static long size(List<Postings> match) {
+        long size = 0;
+        for (Postings postings : match) {
+            size += postings.size;
+        }
+        return size;
+    }
+
+    private static BitSet union(List<Postings> match) {
+        BitSet rows = new BitSet();
+        for (Postings postings : match) {
+            for (int i = 0; i < postings.size; i++) {
+                rows.set(postings.rows[i]);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Optimal string alignment distance (insertions, deletions, substitutions
+     * and swaps of neighbours) between token and word, or between token and
+     * the closest prefix of word in prefix mode.
+     */
+    static boolean withinEdits(String token, String word, int maxEdits, boolean prefix) {
+        int m = token.length();
+        int n = prefix ? Math.min(word.length(), m + maxEdits) : word.length();
+        if (!prefix && Math.abs(n - m) > maxEdits) {
+            return false;
+        }
+        int[] previous2 = new int[n + 1];
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int j = 0; j <= n; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= m; i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= n; j++) {
+                int cost = token.charAt(i - 1) == word.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && token.charAt(i - 1) == word.charAt(j - 2) && token.charAt(i - 2) == word.charAt(j - 1)) {
+                    d = Math.min(d, previous2[j - 2] + 1);
+                }
+                current[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > maxEdits) {
+                return false;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        if (!prefix) {
+            return previous[n] <= maxEdits;
+        }
+        for (int j = Math.max(0, m - maxEdits); j <= n; j++) {
+            if (previous[j] <= maxEdits) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits, without accents.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 127) {
+                text = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+                break;
+            }
+        }
+        text = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /** Rows containing one word, in increasing order; also used by {@link MemberIndex}. */
+    static final class Postings {
+        int[] rows = new int[2];
+        int size;
+
+        void add(int row) {
+            if (size > 0 && rows[size - 1] == row) {
+                return; // Word repeated within the same book
+            }
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+    }
+}
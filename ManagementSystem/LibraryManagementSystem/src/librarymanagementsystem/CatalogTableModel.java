@@ -0,0 +1,43 @@
+package librarymanagementsystem;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shows the books of a {@link ColumnarCatalog}. A {@link Book} is only made
+ * for a row when the table paints it, and only the most recently painted
+ * rows are kept, so memory use follows the visible rows, not the catalog.
+ */
+class CatalogTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"Book ID", "Title", "Author", "Category", "Status"};
+    private static final int CACHED_ROWS = 256; // A few screens of rows
+
+    private final ColumnarCatalog catalog;
+    private final Map<Integer, Book> books = new LinkedHashMap<>(CACHED_ROWS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Book> eldest) {
+            return size() > CACHED_ROWS;
+        }
+    };
+
+    public CatalogTableModel(ColumnarCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override public int getRowCount() { return catalog.size(); }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Book book = books.computeIfAbsent(row, catalog::book);
+        switch (column) {
+            case 0: return book.getId();
+            case 1: return book.getTitle();
+            case 2: return book.getAuthor();
+            case 3: return book.getCategory();
+            default: return book.isAvailable() ? "Available" : "Issued";
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package librarymanagementsystem;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A read-mostly catalog of books kept in memory-mapped column files, for
+ * collections too large to hold a {@link Book} object per title.
+ *
+ * A catalog directory holds:
+ * <ul>
+ * <li>id.col: every book id in UTF-8, padded with zeros to a fixed width;</li>
+ * <li>id.idx: the rows sorted by id, for lookups by binary search;</li>
+ * <li>title, author and category as a .heap of UTF-8 strings back to back and
+ *     a .off of row count + 1 offsets into it;</li>
+ * <li>available.col: one byte per row, the only column that changes;</li>
+ * <li>catalog.meta: row count and id width, written last, so a catalog whose
+ *     writing did not finish cannot be opened.</li>
+ * </ul>
+ * Fields are read straight from the mapped files, so the heap only holds what
+ * is being looked at; the operating system pages the rest in and out.
+ */
+class ColumnarCatalog implements Closeable {
+    private static final String META = "catalog.meta";
+    private static final int MAGIC = 0x4C494243; // "LIBC"
+    private static final int VERSION = 1;
+    private static final int MAX_ID_WIDTH = 64;
+    private static final String[] TEXT_COLUMNS = {"title", "author", "category"};
+
+    private final int size;
+    private final int idWidth;
+    private final Mapping ids;
+    private final Mapping idIndex;
+    private final Mapping[] offsets = new Mapping[TEXT_COLUMNS.length];
+    private final Mapping[] heaps = new Mapping[TEXT_COLUMNS.length];
+    private final Mapping available;
+
+    private ColumnarCatalog(Path dir) throws IOException {
+        try (DataInputStream meta = new DataInputStream(Files.newInputStream(dir.resolve(META)))) {
+            if (meta.readInt() != MAGIC || meta.readInt() != VERSION) {
+                throw new IOException(dir + " is not a catalog");
+            }
+            size = meta.readInt();
+            idWidth = meta.readInt();
+        }
+        ids = new Mapping(dir.resolve("id.col"), (long) size * idWidth, false);
+        idIndex = new Mapping(dir.resolve("id.idx"), (long) size * 4, false);
+        for (int c = 0; c < TEXT_COLUMNS.length; c++) {
+            offsets[c] = new Mapping(dir.resolve(TEXT_COLUMNS[c] + ".off"), (size + 1L) * 8, false);
+            heaps[c] = new Mapping(dir.resolve(TEXT_COLUMNS[c] + ".heap"), offsets[c].getLong(size * 8L), false);
+        }
+        available = new Mapping(dir.resolve("available.col"), size, true);
+    }
+
+    public static ColumnarCatalog open(Path dir) throws IOException {
+        return new ColumnarCatalog(dir);
+    }
+
+    /** @return Whether dir holds a complete catalog. */
+    public static boolean exists(Path dir) {
+        return Files.isRegularFile(dir.resolve(META));
+    }
+
+    public int size() { return size; }
+
+    // --- Columns ---
+
+    public String id(int row) {
+        byte[] bytes = ids.getBytes((long) checkRow(row) * idWidth, idWidth);
+        int length = 0;
+        while (length < idWidth && bytes[length] != 0) {
+            length++;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    public String title(int row) { return text(0, row); }
+    public String author(int row) { return text(1, row); }
+    public String category(int row) { return text(2, row); }
+
+    private String text(int column, int row) {
+        long start = offsets[column].getLong(checkRow(row) * 8L);
+        long end = offsets[column].getLong((row + 1) * 8L);
+        return new String(heaps[column].getBytes(start, (int) (end - start)), StandardCharsets.UTF_8);
+    }
+
+    public boolean isAvailable(int row) {
+        return available.get(checkRow(row)) != 0;
+    }
+
+    /** Writes through to the mapped file. */
+    public void setAvailable(int row, boolean value) {
+        available.put(checkRow(row), (byte) (value ? 1 : 0));
+    }
+
+    /**
+     * @return A view of this row, reading availability from the catalog.
+     */
+    public Book book(int row) {
+        return new CatalogBook(this, row);
+    }
+
+    /** @return The row of the book with this id, or -1. */
+    public int row(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        if (key.length > idWidth) {
+            return -1;
+        }
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int row = idIndex.getInt(middle * 4L);
+            int order = compareId(ids, (long) row * idWidth, key);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private int compareId(Mapping column, long position, byte[] key) {
+        for (int i = 0; i < idWidth; i++) {
+            int a = column.get(position + i) & 0xFF;
+            int b = i < key.length ? key[i] & 0xFF : 0;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return 0;
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return row;
+    }
+
+    /** Flushes availability changes; the mappings are released when collected. */
+    @Override
+    public void close() {
+        available.force();
+    }
+
+    /** A book read from the catalog; availability goes to the catalog's column. */
+    private static final class CatalogBook extends Book {
+        private final ColumnarCatalog catalog;
+        private final int row;
+
+        CatalogBook(ColumnarCatalog catalog, int row) {
+            super(catalog.id(row), catalog.title(row), catalog.author(row), catalog.category(row), false);
+            this.catalog = catalog;
+            this.row = row;
+        }
+
+        @Override public boolean isAvailable() { return catalog.isAvailable(row); }
+        @Override public void setAvailable(boolean available) { catalog.setAvailable(row, available); }
+    }
+
+    // --- Writing ---
+
+    /**
+     * Writes books as a new catalog in dir, replacing any catalog there.
+     * @throws IllegalArgumentException If two books share an id or an id is too long.
+     */
+    public static void write(Path dir, Iterator<Book> books) throws IOException {
+        Files.createDirectories(dir);
+        Files.deleteIfExists(dir.resolve(META));
+        int idWidth = 1;
+        int size = 0;
+
+        // Ids are padded to the longest one, so stage them until it is known
+        Path staged = dir.resolve("id.tmp");
+        try (DataOutputStream stagedIds = output(staged);
+             DataOutputStream available = output(dir.resolve("available.col"))) {
+            DataOutputStream[] heaps = new DataOutputStream[TEXT_COLUMNS.length];
+            DataOutputStream[] offsets = new DataOutputStream[TEXT_COLUMNS.length];
+            long[] heapSizes = new long[TEXT_COLUMNS.length];
+            try {
+                for (int c = 0; c < TEXT_COLUMNS.length; c++) {
+                    heaps[c] = output(dir.resolve(TEXT_COLUMNS[c] + ".heap"));
+                    offsets[c] = output(dir.resolve(TEXT_COLUMNS[c] + ".off"));
+                    offsets[c].writeLong(0);
+                }
+                while (books.hasNext()) {
+                    Book book = books.next();
+                    byte[] id = book.getId().getBytes(StandardCharsets.UTF_8);
+                    if (id.length == 0 || id.length > MAX_ID_WIDTH) {
+                        throw new IllegalArgumentException("Book ID " + book.getId() + " must have 1 to " + MAX_ID_WIDTH + " bytes");
+                    }
+                    idWidth = Math.max(idWidth, id.length);
+                    stagedIds.writeByte(id.length);
+                    stagedIds.write(id);
+                    String[] texts = {book.getTitle(), book.getAuthor(), book.getCategory()};
+                    for (int c = 0; c < TEXT_COLUMNS.length; c++) {
+                        byte[] bytes = (texts[c] == null ? "" : texts[c]).getBytes(StandardCharsets.UTF_8);
+                        heaps[c].write(bytes);
+                        heapSizes[c] += bytes.length;
+                        offsets[c].writeLong(heapSizes[c]);
+                    }
+                    available.writeByte(book.isAvailable() ? 1 : 0);
+                    size++;
+                }
+            } finally {
+                for (int c = 0; c < TEXT_COLUMNS.length; c++) {
+                    closeIfOpen(heaps[c]);
+                    closeIfOpen(offsets[c]);
+                }
+            }
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(staged), 1 << 16));
+             DataOutputStream out = output(dir.resolve("id.col"))) {
+            byte[] padded = new byte[idWidth];
+            for (int row = 0; row < size; row++) {
+                int length = in.readUnsignedByte();
+                Arrays.fill(padded, (byte) 0);
+                in.readFully(padded, 0, length);
+                out.write(padded);
+            }
+        }
+        Files.delete(staged);
+
+        writeIdIndex(dir, size, idWidth);
+        List<String> files = new ArrayList<>(List.of("id.col", "id.idx", "available.col"));
+        for (String column : TEXT_COLUMNS) {
+            files.add(column + ".heap");
+            files.add(column + ".off");
+        }
+        for (String file : files) {
+            try (FileChannel channel = FileChannel.open(dir.resolve(file), StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        }
+        try (FileOutputStream file = new FileOutputStream(dir.resolve(META).toFile())) {
+            DataOutputStream meta = new DataOutputStream(file);
+            meta.writeInt(MAGIC);
+            meta.writeInt(VERSION);
+            meta.writeInt(size);
+            meta.writeInt(idWidth);
+            file.getFD().sync();
+        }
+    }
+
+    /**
+     * Sorts the rows by id (a merge sort on the row numbers, comparing the
+     * mapped ids) and checks for duplicates.
+     */
+    private static void writeIdIndex(Path dir, int size, int idWidth) throws IOException {
+        Mapping ids = new Mapping(dir.resolve("id.col"), (long) size * idWidth, false);
+        int[] rows = new int[size];
+        int[] scratch = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i;
+        }
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size - width; low += 2 * width) {
+                int middle = low + width;
+                int high = Math.min(low + 2 * width, size);
+                int i = low, j = middle, k = low;
+                while (i < middle && j < high) {
+                    scratch[k++] = compareIds(ids, rows[j], rows[i], idWidth) < 0 ? rows[j++] : rows[i++];
+                }
+                while (i < middle) scratch[k++] = rows[i++];
+                while (j < high) scratch[k++] = rows[j++];
+                System.arraycopy(scratch, low, rows, low, high - low);
+            }
+        }
+        try (DataOutputStream out = output(dir.resolve("id.idx"))) {
+            for (int i = 0; i < size; i++) {
+                if (i > 0 && compareIds(ids, rows[i - 1], rows[i], idWidth) == 0) {
+                    throw new IllegalArgumentException("Duplicate book ID " + new String(
+                        ids.getBytes((long) rows[i] * idWidth, idWidth), StandardCharsets.UTF_8).trim());
+                }
+                out.writeInt(rows[i]);
+            }
+        }
+    }
+
+    private static int compareIds(Mapping ids, int row1, int row2, int idWidth) {
+        long a = (long) row1 * idWidth;
+        long b = (long) row2 * idWidth;
+        for (int i = 0; i < idWidth; i++) {
+            int order = (ids.get(a + i) & 0xFF) - (ids.get(b + i) & 0xFF);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    }
+
+    private static DataOutputStream output(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+    }
+
+    private static void closeIfOpen(Closeable closeable) throws IOException {
+        if (closeable != null) {
+            closeable.close();
+        }
+    }
+
+    /**
+     * A file mapped in chunks of up to 1 GB, since one mapping is limited to 2 GB.
+     */
+    private static final class Mapping {
+        private static final int CHUNK_BITS = 30;
+        private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+        private final MappedByteBuffer[] chunks;
+
+        Mapping(Path file, long length, boolean writable) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, writable
+                    ? EnumSet.of(StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : EnumSet.of(StandardOpenOption.READ))) {
+                if (channel.size() < length) {
+                    throw new IOException(file + " is shorter than the catalog says");
+                }
+                chunks = new MappedByteBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_BITS)];
+                for (int i = 0; i < chunks.length; i++) {
+                    long start = (long) i << CHUNK_BITS;
+                    chunks[i] = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                        start, Math.min(CHUNK_MASK + 1, length - start));
+                }
+            }
+        }
+
+        byte get(long position) {
+            return chunks[(int) (position >>> CHUNK_BITS)].get((int) (position & CHUNK_MASK));
+        }
+
+        void put(long position, byte value) {
+            chunks[(int) (position >>> CHUNK_BITS)].put((int) (position & CHUNK_MASK), value);
+        }
+
+        // Ints and longs are aligned to their size, so they never cross chunks
+        int getInt(long position) {
+            return chunks[(int) (position >>> CHUNK_BITS)].getInt((int) (position & CHUNK_MASK));
+        }
+
+        long getLong(long position) {
+            return chunks[(int) (position >>> CHUNK_BITS)].getLong((int) (position & CHUNK_MASK));
+        }
+
+        byte[] getBytes(long position, int length) {
+            byte[] bytes = new byte[length];
+            int copied = 0;
+            while (copied < length) {
+                ByteBuffer chunk = chunks[(int) ((position + copied) >>> CHUNK_BITS)];
+                int offset = (int) ((position + copied) & CHUNK_MASK);
+                int count = Math.min(length - copied, chunk.capacity() - offset);
+                chunk.get(offset, bytes, copied, count);
+                copied += count;
+            }
+            return bytes;
+        }
+
+        void force() {
+            for (MappedByteBuffer chunk : chunks) {
+                chunk.force();
+            }
+        }
+    }
+}
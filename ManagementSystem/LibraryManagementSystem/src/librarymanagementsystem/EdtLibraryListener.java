@@ -0,0 +1,42 @@
+package librarymanagementsystem;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Delivers a view's {@link LibraryListener} events on the EDT, whichever
+ * thread made the change. Events are queued while the repository is locked,
+ * so they arrive in the order of the changes, even for changes made on the
+ * EDT itself. A view that keeps its own row counts, advanced only by these
+ * events, always agrees with the events its table has seen.
+ */
+class EdtLibraryListener implements LibraryListener {
+    private final LibraryListener view;
+
+    private EdtLibraryListener(LibraryListener view) {
+        this.view = view;
+    }
+
+    /** Registers view with library. */
+    static void register(LibraryRepository library, LibraryListener view) {
+        library.addListener(new EdtLibraryListener(view));
+    }
+
+    /**
+     * Registers view with library, under its lock, after setUp has read the
+     * state the view starts from; no change can slip in between.
+     */
+    static void register(LibraryRepository library, LibraryListener view, Runnable setUp) {
+        library.read(() -> {
+            setUp.run();
+            library.addListener(new EdtLibraryListener(view));
+        });
+    }
+
+    @Override public void bookAdded(int row) { SwingUtilities.invokeLater(() -> view.bookAdded(row)); }
+    @Override public void bookChanged(int row) { SwingUtilities.invokeLater(() -> view.bookChanged(row)); }
+    @Override public void memberAdded(int row) { SwingUtilities.invokeLater(() -> view.memberAdded(row)); }
+    @Override public void transactionAdded(int row) { SwingUtilities.invokeLater(() -> view.transactionAdded(row)); }
+    @Override public void transactionChanged(int row) { SwingUtilities.invokeLater(() -> view.transactionChanged(row)); }
+    @Override public void booksAdded(int firstRow, int lastRow) { SwingUtilities.invokeLater(() -> view.booksAdded(firstRow, lastRow)); }
+    @Override public void membersAdded(int firstRow, int lastRow) { SwingUtilities.invokeLater(() -> view.membersAdded(firstRow, lastRow)); }
+}
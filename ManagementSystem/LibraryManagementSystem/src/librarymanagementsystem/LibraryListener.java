@@ -0,0 +1,38 @@
+package librarymanagementsystem;
+
+/**
+ * Receives the changes made through a {@link LibraryRepository}, as the rows
+ * that were added or changed, so views can update just those rows. A batch
+ * is reported once; by default as each of its rows.
+ *
+ * Changes are reported on the thread making them, while it holds the
+ * repository's write lock, so listeners see one change at a time. Views
+ * that touch Swing register through an {@link EdtLibraryListener}.
+ */
+interface LibraryListener {
+    default void bookAdded(int row) { }
+    default void bookChanged(int row) { }
+    default void memberAdded(int row) { }
+    default void transactionAdded(int row) { }
+    default void transactionChanged(int row) { }
+
+    /**
+     * Called on the thread that made a change once the repository is unlocked,
+     * e.g. to wait for a disk write without holding up other changes.
+     */
+    default void afterChange() { }
+
+    /** A batch of books was added, in rows firstRow to lastRow. */
+    default void booksAdded(int firstRow, int lastRow) {
+        for (int row = firstRow; row <= lastRow; row++) {
+            bookAdded(row);
+        }
+    }
+
+    /** A batch of members was added, in rows firstRow to lastRow. */
+    default void membersAdded(int firstRow, int lastRow) {
+        for (int row = firstRow; row <= lastRow; row++) {
+            memberAdded(row);
+        }
+    }
+}
@@ -5,18 +5,31 @@
 package librarymanagementsystem;
 import javax.swing.*;
 import javax.swing.border.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.*;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 public class LibraryManagementSystem extends JFrame {
-    private ArrayList<Book> books = new ArrayList<>();
-    private ArrayList<Member> members = new ArrayList<>();
-    private ArrayList<Transaction> transactions = new ArrayList<>();
+    private final LibraryRepository library = new LibraryRepository();
+    private LibraryStore store;
+    private CatalogIndex catalogIndex;
+    private MemberIndex memberIndex;
+    private OverdueMonitor overdueMonitor;
     private JTable bookTable, memberTable, transactionTable;
-    private DefaultTableModel bookModel, memberModel, transactionModel;
+    private BookTableModel bookModel;
+    private MemberTableModel memberModel;
+    private TransactionTableModel transactionModel;
+    private final JLabel totalBooksValue = new JLabel(), availableBooksValue = new JLabel(),
+        totalMembersValue = new JLabel(), activeLoansValue = new JLabel();
     private JPanel mainPanel;
     private CardLayout cardLayout;
     
@@ -34,22 +47,54 @@ public class LibraryManagementSystem extends JFrame {
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
         
-        initializeSampleData();
+        library.setLoanPolicy("Reference", new LoanPolicy("Reference", 3, 100, 2000));
+        openStore();
+        if (library.bookCount() == 0 && library.memberCount() == 0) {
+            initializeSampleData();
+        }
+        catalogIndex = new CatalogIndex(library);
+        memberIndex = new MemberIndex(library);
+        overdueMonitor = new OverdueMonitor(library);
         createUI();
         
         setVisible(true);
     }
     
+    /**
+     * Loads the saved library and keeps saving its changes; without it the
+     * library only lives in memory.
+     */
+    private void openStore() {
+        try {
+            store = LibraryStore.open(LibraryStore.DEFAULT_DIR, library);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Could not open the library data in " + LibraryStore.DEFAULT_DIR + ": "
+                + ex.getMessage() + "\nChanges will not be saved.", "Storage", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        store.setErrorHandler(ex -> SwingUtilities.invokeLater(() ->
+            JOptionPane.showMessageDialog(this, "Changes can no longer be saved: " + ex.getMessage(),
+                "Storage", JOptionPane.ERROR_MESSAGE)));
+        LibraryStore opened = store;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                opened.close();
+            } catch (IOException ex) {
+                System.err.println("Could not save the library: " + ex.getMessage());
+            }
+        }, "library-close"));
+    }
+    
     private void initializeSampleData() {
-        books.add(new Book("B001", "The Great Gatsby", "F. Scott Fitzgerald", "Fiction", true));
-        books.add(new Book("B002", "To Kill a Mockingbird", "Harper Lee", "Fiction", true));
-        books.add(new Book("B003", "1984", "George Orwell", "Dystopian", false));
-        books.add(new Book("B004", "Pride and Prejudice", "Jane Austen", "Romance", true));
-        books.add(new Book("B005", "The Catcher in the Rye", "J.D. Salinger", "Fiction", true));
-        
-        members.add(new Member("M001", "Alice Johnson", "alice@email.com", "555-0101"));
-        members.add(new Member("M002", "Bob Smith", "bob@email.com", "555-0102"));
-        members.add(new Member("M003", "Carol White", "carol@email.com", "555-0103"));
+        library.addBook(new Book("B001", "The Great Gatsby", "F. Scott Fitzgerald", "Fiction", true));
+        library.addBook(new Book("B002", "To Kill a Mockingbird", "Harper Lee", "Fiction", true));
+        library.addBook(new Book("B003", "1984", "George Orwell", "Dystopian", false));
+        library.addBook(new Book("B004", "Pride and Prejudice", "Jane Austen", "Romance", true));
+        library.addBook(new Book("B005", "The Catcher in the Rye", "J.D. Salinger", "Fiction", true));
+        
+        library.addMember(new Member("M001", "Alice Johnson", "alice@email.com", "555-0101"));
+        library.addMember(new Member("M002", "Bob Smith", "bob@email.com", "555-0102"));
+        library.addMember(new Member("M003", "Carol White", "carol@email.com", "555-0103"));
     }
     
     private void createUI() {
@@ -67,6 +112,7 @@ public class LibraryManagementSystem extends JFrame {
         mainPanel.add(createBooksPanel(), "Books");
         mainPanel.add(createMembersPanel(), "Members");
         mainPanel.add(createTransactionsPanel(), "Transactions");
+        mainPanel.add(createOverduePanel(), "Overdue");
         
         add(mainPanel, BorderLayout.CENTER);
     }
@@ -92,6 +138,8 @@ public class LibraryManagementSystem extends JFrame {
         sidebar.add(createMenuButton("👥 Members", "Members"));
         sidebar.add(Box.createRigidArea(new Dimension(0, 10)));
         sidebar.add(createMenuButton("🔄 Transactions", "Transactions"));
+        sidebar.add(Box.createRigidArea(new Dimension(0, 10)));
+        sidebar.add(createMenuButton("⏰ Overdue", "Overdue"));
         
         sidebar.add(Box.createVerticalGlue());
         
@@ -128,15 +176,26 @@ public class LibraryManagementSystem extends JFrame {
         JPanel panel = new JPanel(new GridLayout(2, 2, 20, 20));
         panel.setBackground(BACKGROUND);
         
-        panel.add(createStatCard("Total Books", String.valueOf(books.size()), "📚", PRIMARY));
-        panel.add(createStatCard("Available Books", String.valueOf(books.stream().filter(b -> b.isAvailable()).count()), "✅", new Color(16, 185, 129)));
-        panel.add(createStatCard("Total Members", String.valueOf(members.size()), "👥", SECONDARY));
-        panel.add(createStatCard("Active Loans", String.valueOf(transactions.stream().filter(t -> t.getReturnDate() == null).count()), "🔄", new Color(245, 158, 11)));
+        panel.add(createStatCard("Total Books", totalBooksValue, "📚", PRIMARY));
+        panel.add(createStatCard("Available Books", availableBooksValue, "✅", new Color(16, 185, 129)));
+        panel.add(createStatCard("Total Members", totalMembersValue, "👥", SECONDARY));
+        panel.add(createStatCard("Active Loans", activeLoansValue, "🔄", new Color(245, 158, 11)));
+        
+        // The repository keeps the counts, so a refresh is O(1) at any size
+        refreshDashboard();
+        new LibraryRefresher(library, this::refreshDashboard);
         
         return panel;
     }
     
-    private JPanel createStatCard(String title, String value, String icon, Color accentColor) {
+    private void refreshDashboard() {
+        totalBooksValue.setText(String.format("%,d", library.bookCount()));
+        availableBooksValue.setText(String.format("%,d", library.availableBookCount()));
+        totalMembersValue.setText(String.format("%,d", library.memberCount()));
+        activeLoansValue.setText(String.format("%,d", library.openLoanCount()));
+    }
+    
+    private JPanel createStatCard(String title, JLabel valueLabel, String icon, Color accentColor) {
         JPanel card = new JPanel();
         card.setLayout(new BorderLayout());
         card.setBackground(CARD_BG);
@@ -157,7 +216,6 @@ public class LibraryManagementSystem extends JFrame {
         titleLabel.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         titleLabel.setForeground(TEXT_SECONDARY);
         
-        JLabel valueLabel = new JLabel(value);
         valueLabel.setFont(new Font("Segoe UI", Font.BOLD, 32));
         valueLabel.setForeground(TEXT_PRIMARY);
         
@@ -183,18 +241,44 @@ public class LibraryManagementSystem extends JFrame {
         titleLabel.setForeground(TEXT_PRIMARY);
         header.add(titleLabel, BorderLayout.WEST);
         
+        JButton catalogBtn = createStyledButton("🗂 Catalog", SECONDARY);
+        catalogBtn.addActionListener(e -> showCatalogDialog());
+        
+        JButton importBtn = createStyledButton("⬆ Import", new Color(16, 185, 129));
+        importBtn.addActionListener(e -> showImportDialog(BulkImporter.Kind.BOOKS));
+        
         JButton addBtn = createStyledButton("+ Add Book", PRIMARY);
         addBtn.addActionListener(e -> showAddBookDialog());
-        header.add(addBtn, BorderLayout.EAST);
+        
+        JPanel btnPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+        btnPanel.setBackground(BACKGROUND);
+        btnPanel.add(catalogBtn);
+        btnPanel.add(importBtn);
+        btnPanel.add(addBtn);
+        header.add(btnPanel, BorderLayout.EAST);
+        
+        JTextField searchField = new JTextField();
+        searchField.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        searchField.setToolTipText("Search by title, author or category");
+        JLabel searchStatus = new JLabel(" ");
+        searchStatus.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        searchStatus.setForeground(TEXT_SECONDARY);
+        
+        JPanel searchPanel = new JPanel(new BorderLayout(10, 0));
+        searchPanel.setBackground(BACKGROUND);
+        searchPanel.setBorder(new EmptyBorder(0, 30, 0, 30));
+        JLabel searchLabel = new JLabel("🔍");
+        searchLabel.setFont(new Font("Segoe UI", Font.PLAIN, 16));
+        searchPanel.add(searchLabel, BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        searchPanel.add(searchStatus, BorderLayout.EAST);
+        header.add(searchPanel, BorderLayout.CENTER);
         
         panel.add(header, BorderLayout.NORTH);
         
-        String[] columns = {"Book ID", "Title", "Author", "Category", "Status"};
-        bookModel = new DefaultTableModel(columns, 0) {
-            public boolean isCellEditable(int row, int column) { return false; }
-        };
+        bookModel = new BookTableModel(library);
         bookTable = createStyledTable(bookModel);
-        updateBookTable();
+        new BookSearch(library, catalogIndex, bookModel, searchField, searchStatus);
         
         JScrollPane scrollPane = new JScrollPane(bookTable);
         scrollPane.setBorder(new LineBorder(new Color(229, 231, 235), 1));
@@ -215,18 +299,22 @@ public class LibraryManagementSystem extends JFrame {
         titleLabel.setForeground(TEXT_PRIMARY);
         header.add(titleLabel, BorderLayout.WEST);
         
+        JButton importBtn = createStyledButton("⬆ Import", new Color(16, 185, 129));
+        importBtn.addActionListener(e -> showImportDialog(BulkImporter.Kind.MEMBERS));
+        
         JButton addBtn = createStyledButton("+ Add Member", SECONDARY);
         addBtn.addActionListener(e -> showAddMemberDialog());
-        header.add(addBtn, BorderLayout.EAST);
+        
+        JPanel btnPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+        btnPanel.setBackground(BACKGROUND);
+        btnPanel.add(importBtn);
+        btnPanel.add(addBtn);
+        header.add(btnPanel, BorderLayout.EAST);
         
         panel.add(header, BorderLayout.NORTH);
         
-        String[] columns = {"Member ID", "Name", "Email", "Phone"};
-        memberModel = new DefaultTableModel(columns, 0) {
-            public boolean isCellEditable(int row, int column) { return false; }
-        };
+        memberModel = new MemberTableModel(library);
         memberTable = createStyledTable(memberModel);
-        updateMemberTable();
         
         JScrollPane scrollPane = new JScrollPane(memberTable);
         scrollPane.setBorder(new LineBorder(new Color(229, 231, 235), 1));
@@ -261,12 +349,8 @@ public class LibraryManagementSystem extends JFrame {
         
         panel.add(header, BorderLayout.NORTH);
         
-        String[] columns = {"Transaction ID", "Book", "Member", "Issue Date", "Return Date"};
-        transactionModel = new DefaultTableModel(columns, 0) {
-            public boolean isCellEditable(int row, int column) { return false; }
-        };
+        transactionModel = new TransactionTableModel(library);
         transactionTable = createStyledTable(transactionModel);
-        updateTransactionTable();
         
         JScrollPane scrollPane = new JScrollPane(transactionTable);
         scrollPane.setBorder(new LineBorder(new Color(229, 231, 235), 1));
@@ -275,7 +359,39 @@ public class LibraryManagementSystem extends JFrame {
         return panel;
     }
     
-    private JTable createStyledTable(DefaultTableModel model) {
+    private JPanel createOverduePanel() {
+        JPanel panel = new JPanel(new BorderLayout(0, 20));
+        panel.setBackground(BACKGROUND);
+        
+        JPanel header = new JPanel(new BorderLayout());
+        header.setBackground(BACKGROUND);
+        
+        JLabel titleLabel = new JLabel("Overdue Loans");
+        titleLabel.setFont(new Font("Segoe UI", Font.BOLD, 24));
+        titleLabel.setForeground(TEXT_PRIMARY);
+        header.add(titleLabel, BorderLayout.WEST);
+        
+        JLabel summaryLabel = new JLabel();
+        summaryLabel.setFont(new Font("Segoe UI", Font.PLAIN, 16));
+        summaryLabel.setForeground(TEXT_SECONDARY);
+        header.add(summaryLabel, BorderLayout.EAST);
+        Runnable summary = () -> summaryLabel.setText(String.format("%,d overdue · %s in fines",
+            overdueMonitor.overdueCount(), LoanPolicy.formatMoney(overdueMonitor.totalFines())));
+        summary.run();
+        overdueMonitor.addChangeListener(e -> summary.run());
+        
+        panel.add(header, BorderLayout.NORTH);
+        
+        JTable overdueTable = createStyledTable(new OverdueTableModel(library, overdueMonitor));
+        
+        JScrollPane scrollPane = new JScrollPane(overdueTable);
+        scrollPane.setBorder(new LineBorder(new Color(229, 231, 235), 1));
+        panel.add(scrollPane, BorderLayout.CENTER);
+        
+        return panel;
+    }
+    
+    private JTable createStyledTable(TableModel model) {
         JTable table = new JTable(model);
         table.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         table.setRowHeight(40);
@@ -336,9 +452,13 @@ public class LibraryManagementSystem extends JFrame {
         JButton saveBtn = createStyledButton("Save Book", PRIMARY);
         saveBtn.addActionListener(e -> {
             if (!idField.getText().isEmpty() && !titleField.getText().isEmpty()) {
-                books.add(new Book(idField.getText(), titleField.getText(), 
-                    authorField.getText(), categoryField.getText(), true));
-                updateBookTable();
+                try {
+                    library.addBook(new Book(idField.getText(), titleField.getText(), 
+                        authorField.getText(), categoryField.getText(), true));
+                } catch (IllegalArgumentException ex) {
+                    JOptionPane.showMessageDialog(dialog, ex.getMessage(), "Add Book", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
                 dialog.dispose();
                 JOptionPane.showMessageDialog(this, "Book added successfully!");
             }
@@ -351,6 +471,205 @@ public class LibraryManagementSystem extends JFrame {
         dialog.setVisible(true);
     }
     
+    /**
+     * Imports books or members from a file in the background, with progress
+     * and a Cancel button; batches already imported are kept on cancel.
+     */
+    private void showImportDialog(BulkImporter.Kind kind) {
+        String what = kind == BulkImporter.Kind.BOOKS ? "books" : "members";
+        String title = kind == BulkImporter.Kind.BOOKS ? "Import Books" : "Import Members";
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle(title);
+        chooser.setFileFilter(kind == BulkImporter.Kind.BOOKS
+            ? new FileNameExtensionFilter("CSV or MARC (*.csv, *.mrk)", "csv", "mrk", "marc")
+            : new FileNameExtensionFilter("CSV (*.csv)", "csv"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        BulkImporter importer = new BulkImporter(library, chooser.getSelectedFile().toPath(), kind);
+        runImport(title, what, chooser.getSelectedFile().getName(),
+            (progress, cancelled) -> importer.run(progress, cancelled, Runnable::run), result -> { });
+    }
+    
+    /** A {@link BulkImporter} method to run in the background. */
+    private interface ImportJob {
+        BulkImporter.Result run(BulkImporter.Progress progress, BooleanSupplier cancelled) throws Exception;
+    }
+    
+    /**
+     * Runs an import job in the background with progress and a Cancel
+     * button, then reports what it did.
+     * @param then Runs after the report, unless the job failed.
+     */
+    private void runImport(String title, String what, String fileName, ImportJob job, Consumer<BulkImporter.Result> then) {
+        JDialog dialog = createDialog(title);
+        dialog.setSize(450, 200);
+        dialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        JPanel panel = new JPanel(new BorderLayout(0, 15));
+        panel.setBorder(new EmptyBorder(20, 20, 20, 20));
+        
+        JLabel status = new JLabel("Reading " + fileName + "...");
+        status.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        JProgressBar progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        JButton cancelBtn = createStyledButton("Cancel", SECONDARY);
+        
+        AtomicBoolean cancelled = new AtomicBoolean();
+        SwingWorker<BulkImporter.Result, Void> worker = new SwingWorker<BulkImporter.Result, Void>() {
+            @Override
+            protected BulkImporter.Result doInBackground() throws Exception {
+                return job.run((read, total, imported) -> {
+                    setProgress((int) (read * 100 / Math.max(1, total)));
+                    SwingUtilities.invokeLater(() -> status.setText(String.format("%,d %s read", imported, what)));
+                }, cancelled::get);
+            }
+            
+            @Override
+            protected void done() {
+                dialog.dispose();
+                BulkImporter.Result result;
+                try {
+                    result = get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(LibraryManagementSystem.this, "Import failed: " + cause.getMessage(),
+                        title, JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                StringBuilder message = new StringBuilder(String.format("%s %,d %s in %.1f s.",
+                    result.cancelled ? "Cancelled after importing" : "Imported", result.imported, what, result.millis / 1000.0));
+                if (result.duplicates > 0) {
+                    message.append(String.format("%nSkipped %,d duplicate IDs.", result.duplicates));
+                }
+                if (result.invalid > 0) {
+                    message.append(String.format("%nSkipped %,d invalid records:", result.invalid));
+                    for (String error : result.errors.subList(0, Math.min(5, result.errors.size()))) {
+                        message.append("\n  ").append(error);
+                    }
+                }
+                JOptionPane.showMessageDialog(LibraryManagementSystem.this, message.toString(), title,
+                    result.invalid > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+                then.accept(result);
+            }
+        };
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                progressBar.setValue((Integer) e.getNewValue());
+            }
+        });
+        Runnable cancel = () -> {
+            cancelled.set(true);
+            cancelBtn.setEnabled(false);
+            status.setText("Cancelling...");
+        };
+        cancelBtn.addActionListener(e -> cancel.run());
+        dialog.addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e) {
+                cancel.run();
+            }
+        });
+        
+        JPanel btnPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+        btnPanel.add(cancelBtn);
+        panel.add(status, BorderLayout.NORTH);
+        panel.add(progressBar, BorderLayout.CENTER);
+        panel.add(btnPanel, BorderLayout.SOUTH);
+        
+        dialog.add(panel);
+        worker.execute();
+        dialog.setVisible(true);
+    }
+    
+    /**
+     * Browses a large catalog kept in column files (see {@link ColumnarCatalog}),
+     * offering to build one from a file of books in an empty directory.
+     */
+    private void showCatalogDialog() {
+        JFileChooser chooser = new JFileChooser(LibraryStore.DEFAULT_DIR.toFile());
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        chooser.setDialogTitle("Open Catalog");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path dir = chooser.getSelectedFile().toPath();
+        if (ColumnarCatalog.exists(dir)) {
+            showCatalog(dir);
+            return;
+        }
+        int answer = JOptionPane.showConfirmDialog(this, "There is no catalog in " + dir
+            + ".\nBuild one from a CSV or MARC file of books?", "Open Catalog", JOptionPane.YES_NO_OPTION);
+        if (answer != JOptionPane.YES_OPTION) {
+            return;
+        }
+        JFileChooser source = new JFileChooser();
+        source.setDialogTitle("Build Catalog");
+        source.setFileFilter(new FileNameExtensionFilter("CSV or MARC (*.csv, *.mrk)", "csv", "mrk", "marc"));
+        if (source.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        // The parsed chunks go straight into the column files, never into the library
+        BulkImporter importer = new BulkImporter(library, source.getSelectedFile().toPath(), BulkImporter.Kind.BOOKS);
+        runImport("Build Catalog", "books", source.getSelectedFile().getName(),
+            (progress, cancelled) -> importer.writeCatalog(dir, progress, cancelled), result -> {
+                if (!result.cancelled) {
+                    showCatalog(dir);
+                }
+            });
+    }
+    
+    private void showCatalog(Path dir) {
+        ColumnarCatalog catalog;
+        try {
+            catalog = ColumnarCatalog.open(dir);
+        } catch (IOException | IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Open Catalog", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        JDialog dialog = createDialog("Catalog - " + dir.getFileName());
+        dialog.setSize(900, 600);
+        dialog.setLocationRelativeTo(this);
+        
+        JPanel panel = new JPanel(new BorderLayout(0, 15));
+        panel.setBorder(new EmptyBorder(20, 20, 20, 20));
+        panel.setBackground(BACKGROUND);
+        
+        JTable table = createStyledTable(new CatalogTableModel(catalog));
+        
+        JTextField idField = new JTextField();
+        idField.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        idField.setToolTipText("Go to a book ID");
+        JLabel status = new JLabel(String.format("%,d titles", catalog.size()));
+        status.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        status.setForeground(TEXT_SECONDARY);
+        idField.addActionListener(e -> {
+            int row = catalog.row(idField.getText().trim());
+            if (row < 0) {
+                status.setText("No book with ID " + idField.getText().trim());
+                return;
+            }
+            status.setText(String.format("%,d titles", catalog.size()));
+            table.setRowSelectionInterval(row, row);
+            table.scrollRectToVisible(table.getCellRect(row, 0, true));
+        });
+        
+        JPanel header = new JPanel(new BorderLayout(10, 0));
+        header.setBackground(BACKGROUND);
+        header.add(new JLabel("Book ID:"), BorderLayout.WEST);
+        header.add(idField, BorderLayout.CENTER);
+        header.add(status, BorderLayout.EAST);
+        panel.add(header, BorderLayout.NORTH);
+        
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setBorder(new LineBorder(new Color(229, 231, 235), 1));
+        panel.add(scrollPane, BorderLayout.CENTER);
+        
+        dialog.add(panel);
+        dialog.setVisible(true);
+        catalog.close();
+        dialog.dispose();
+    }
+    
     private void showAddMemberDialog() {
         JDialog dialog = createDialog("Add New Member");
         JPanel panel = new JPanel(new GridLayout(5, 2, 10, 15));
@@ -373,9 +692,13 @@ public class LibraryManagementSystem extends JFrame {
         JButton saveBtn = createStyledButton("Save Member", SECONDARY);
         saveBtn.addActionListener(e -> {
             if (!idField.getText().isEmpty() && !nameField.getText().isEmpty()) {
-                members.add(new Member(idField.getText(), nameField.getText(), 
-                    emailField.getText(), phoneField.getText()));
-                updateMemberTable();
+                try {
+                    library.addMember(new Member(idField.getText(), nameField.getText(), 
+                        emailField.getText(), phoneField.getText()));
+                } catch (IllegalArgumentException ex) {
+                    JOptionPane.showMessageDialog(dialog, ex.getMessage(), "Add Member", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
                 dialog.dispose();
                 JOptionPane.showMessageDialog(this, "Member added successfully!");
             }
@@ -390,91 +713,93 @@ public class LibraryManagementSystem extends JFrame {
     
     private void showIssueBookDialog() {
         JDialog dialog = createDialog("Issue Book");
-        JPanel panel = new JPanel(new GridLayout(4, 2, 10, 15));
+        dialog.setSize(750, 450);
+        JPanel panel = new JPanel(new BorderLayout(0, 15));
         panel.setBorder(new EmptyBorder(20, 20, 20, 20));
         
-        JComboBox<String> bookCombo = new JComboBox<>();
-        for (Book book : books) {
-            if (book.isAvailable()) {
-                bookCombo.addItem(book.getId() + " - " + book.getTitle());
-            }
-        }
-        
-        JComboBox<String> memberCombo = new JComboBox<>();
-        for (Member member : members) {
-            memberCombo.addItem(member.getId() + " - " + member.getName());
-        }
+        PagedPicker<Book> bookPicker = new PagedPicker<>(LibrarySources.availableBooks(library, catalogIndex),
+            book -> book.getId() + " - " + book.getTitle());
+        PagedPicker<Member> memberPicker = new PagedPicker<>(LibrarySources.members(library, memberIndex),
+            member -> member.getId() + " - " + member.getName());
         
-        panel.add(new JLabel("Select Book:"));
-        panel.add(bookCombo);
-        panel.add(new JLabel("Select Member:"));
-        panel.add(memberCombo);
+        JPanel pickers = new JPanel(new GridLayout(1, 2, 15, 0));
+        pickers.add(createPickerPanel("Select Book:", bookPicker));
+        pickers.add(createPickerPanel("Select Member:", memberPicker));
+        panel.add(pickers, BorderLayout.CENTER);
         
         JButton issueBtn = createStyledButton("Issue Book", PRIMARY);
         issueBtn.addActionListener(e -> {
-            if (bookCombo.getSelectedItem() != null && memberCombo.getSelectedItem() != null) {
-                String bookId = bookCombo.getSelectedItem().toString().split(" - ")[0];
-                String memberId = memberCombo.getSelectedItem().toString().split(" - ")[0];
+            if (bookPicker.getSelected() != null && memberPicker.getSelected() != null) {
+                String bookId = bookPicker.getSelected().getId();
+                String memberId = memberPicker.getSelected().getId();
                 
-                Book book = books.stream().filter(b -> b.getId().equals(bookId)).findFirst().orElse(null);
-                if (book != null) {
-                    book.setAvailable(false);
-                    transactions.add(new Transaction("T" + (transactions.size() + 1), bookId, memberId, new Date(), null));
-                    updateBookTable();
-                    updateTransactionTable();
-                    dialog.dispose();
-                    JOptionPane.showMessageDialog(this, "Book issued successfully!");
+                Transaction transaction;
+                try {
+                    transaction = library.issueBook(bookId, memberId, new Date());
+                } catch (IllegalArgumentException | IllegalStateException ex) {
+                    JOptionPane.showMessageDialog(dialog, ex.getMessage(), "Issue Book", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
+                dialog.dispose();
+                JOptionPane.showMessageDialog(this, "Book issued successfully!\nDue back on "
+                    + new SimpleDateFormat("yyyy-MM-dd").format(transaction.getDueDate()));
             }
         });
         
-        panel.add(new JLabel(""));
-        panel.add(issueBtn);
+        JPanel btnPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+        btnPanel.add(issueBtn);
+        panel.add(btnPanel, BorderLayout.SOUTH);
         
         dialog.add(panel);
         dialog.setVisible(true);
     }
     
+    private JPanel createPickerPanel(String title, JComponent picker) {
+        JPanel panel = new JPanel(new BorderLayout(0, 5));
+        panel.add(new JLabel(title), BorderLayout.NORTH);
+        panel.add(picker, BorderLayout.CENTER);
+        return panel;
+    }
+    
     private void showReturnBookDialog() {
         JDialog dialog = createDialog("Return Book");
-        JPanel panel = new JPanel(new GridLayout(3, 2, 10, 15));
+        dialog.setSize(550, 450);
+        JPanel panel = new JPanel(new BorderLayout(0, 15));
         panel.setBorder(new EmptyBorder(20, 20, 20, 20));
         
-        JComboBox<String> transactionCombo = new JComboBox<>();
-        for (Transaction t : transactions) {
-            if (t.getReturnDate() == null) {
-                Book book = books.stream().filter(b -> b.getId().equals(t.getBookId())).findFirst().orElse(null);
-                if (book != null) {
-                    transactionCombo.addItem(t.getId() + " - " + book.getTitle());
-                }
-            }
-        }
-        
-        panel.add(new JLabel("Select Transaction:"));
-        panel.add(transactionCombo);
+        PagedPicker<Transaction> loanPicker = new PagedPicker<>(LibrarySources.openLoans(library, catalogIndex, memberIndex),
+            t -> {
+                Book book = library.getBook(t.getBookId());
+                Member member = library.getMember(t.getMemberId());
+                return t.getId() + " - " + (book != null ? book.getTitle() : t.getBookId())
+                    + " (" + (member != null ? member.getName() : t.getMemberId()) + ")";
+            });
+        panel.add(createPickerPanel("Select Transaction:", loanPicker), BorderLayout.CENTER);
         
         JButton returnBtn = createStyledButton("Return Book", new Color(16, 185, 129));
         returnBtn.addActionListener(e -> {
-            if (transactionCombo.getSelectedItem() != null) {
-                String transId = transactionCombo.getSelectedItem().toString().split(" - ")[0];
-                Transaction trans = transactions.stream().filter(t -> t.getId().equals(transId)).findFirst().orElse(null);
-                
-                if (trans != null) {
-                    trans.setReturnDate(new Date());
-                    Book book = books.stream().filter(b -> b.getId().equals(trans.getBookId())).findFirst().orElse(null);
-                    if (book != null) {
-                        book.setAvailable(true);
-                    }
-                    updateBookTable();
-                    updateTransactionTable();
-                    dialog.dispose();
-                    JOptionPane.showMessageDialog(this, "Book returned successfully!");
+            if (loanPicker.getSelected() != null) {
+                String transId = loanPicker.getSelected().getId();
+                // Priced like the Overdue view, by the policy the loan was issued under
+                OverdueMonitor.Loan loan = overdueMonitor.getLoan(loanPicker.getSelected());
+                Transaction transaction;
+                try {
+                    transaction = library.returnBook(transId, new Date());
+                } catch (IllegalArgumentException | IllegalStateException ex) {
+                    JOptionPane.showMessageDialog(dialog, ex.getMessage(), "Return Book", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
+                dialog.dispose();
+                long fine = loan != null ? loan.fineAt(transaction.getReturnDate().getTime()) : 0;
+                JOptionPane.showMessageDialog(this, fine > 0
+                    ? "Book returned successfully!\nLate fine: " + LoanPolicy.formatMoney(fine)
+                    : "Book returned successfully!");
             }
         });
         
-        panel.add(new JLabel(""));
-        panel.add(returnBtn);
+        JPanel btnPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+        btnPanel.add(returnBtn);
+        panel.add(btnPanel, BorderLayout.SOUTH);
         
         dialog.add(panel);
         dialog.setVisible(true);
@@ -487,42 +812,6 @@ public class LibraryManagementSystem extends JFrame {
         return dialog;
     }
     
-    private void updateBookTable() {
-        bookModel.setRowCount(0);
-        for (Book book : books) {
-            bookModel.addRow(new Object[]{
-                book.getId(), book.getTitle(), book.getAuthor(), 
-                book.getCategory(), book.isAvailable() ? "Available" : "Issued"
-            });
-        }
-    }
-    
-    private void updateMemberTable() {
-        memberModel.setRowCount(0);
-        for (Member member : members) {
-            memberModel.addRow(new Object[]{
-                member.getId(), member.getName(), member.getEmail(), member.getPhone()
-            });
-        }
-    }
-    
-    private void updateTransactionTable() {
-        transactionModel.setRowCount(0);
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-        for (Transaction t : transactions) {
-            Book book = books.stream().filter(b -> b.getId().equals(t.getBookId())).findFirst().orElse(null);
-            Member member = members.stream().filter(m -> m.getId().equals(t.getMemberId())).findFirst().orElse(null);
-            
-            transactionModel.addRow(new Object[]{
-                t.getId(),
-                book != null ? book.getTitle() : t.getBookId(),
-                member != null ? member.getName() : t.getMemberId(),
-                sdf.format(t.getIssueDate()),
-                t.getReturnDate() != null ? sdf.format(t.getReturnDate()) : "Not Returned"
-            });
-        }
-    }
-    
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> {
             try {
@@ -534,59 +823,3 @@ public class LibraryManagementSystem extends JFrame {
         });
     }
 }
-
-class Book {
-    private String id, title, author, category;
-    private boolean available;
-    
-    public Book(String id, String title, String author, String category, boolean available) {
-        this.id = id;
-        this.title = title;
-        this.author = author;
-        this.category = category;
-        this.available = available;
-    }
-    
-    public String getId() { return id; }
-    public String getTitle() { return title; }
-    public String getAuthor() { return author; }
-    public String getCategory() { return category; }
-    public boolean isAvailable() { return available; }
-    public void setAvailable(boolean available) { this.available = available; }
-}
-
-class Member {
-    private String id, name, email, phone;
-    
-    public Member(String id, String name, String email, String phone) {
-        this.id = id;
-        this.name = name;
-        this.email = email;
-        this.phone = phone;
-    }
-    
-    public String getId() { return id; }
-    public String getName() { return name; }
-    public String getEmail() { return email; }
-    public String getPhone() { return phone; }
-}
-
-class Transaction {
-    private String id, bookId, memberId;
-    private Date issueDate, returnDate;
-    
-    public Transaction(String id, String bookId, String memberId, Date issueDate, Date returnDate) {
-        this.id = id;
-        this.bookId = bookId;
-        this.memberId = memberId;
-        this.issueDate = issueDate;
-        this.returnDate = returnDate;
-    }
-    
-    public String getId() { return id; }
-    public String getBookId() { return bookId; }
-    public String getMemberId() { return memberId; }
-    public Date getIssueDate() { return issueDate; }
-    public Date getReturnDate() { return returnDate; }
-    public void setReturnDate(Date returnDate) { this.returnDate = returnDate; }
-}
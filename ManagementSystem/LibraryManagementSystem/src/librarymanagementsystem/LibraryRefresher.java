@@ -0,0 +1,36 @@
+package librarymanagementsystem;
+
+import javax.swing.SwingUtilities;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs a refresh on the EDT after changes to the library, coalescing a burst
+ * of changes (e.g. a bulk import) into a single refresh.
+ */
+class LibraryRefresher implements LibraryListener {
+    private final Runnable refresh;
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    public LibraryRefresher(LibraryRepository library, Runnable refresh) {
+        this.refresh = refresh;
+        library.addListener(this);
+    }
+
+    /** Schedules a refresh unless one is already waiting. */
+    public void request() {
+        if (pending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                pending.set(false);
+                refresh.run();
+            });
+        }
+    }
+
+    @Override public void bookAdded(int row) { request(); }
+    @Override public void bookChanged(int row) { request(); }
+    @Override public void memberAdded(int row) { request(); }
+    @Override public void transactionAdded(int row) { request(); }
+    @Override public void transactionChanged(int row) { request(); }
+    @Override public void booksAdded(int firstRow, int lastRow) { request(); }
+    @Override public void membersAdded(int firstRow, int lastRow) { request(); }
+}
@@ -0,0 +1,577 @@
+package librarymanagementsystem;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Holds the library's books, members and transactions with hash indexes, so
+ * every lookup is O(1) instead of a scan of the whole list.
+ *
+ * Primary indexes map each id to its record; the lists keep insertion order,
+ * which is the row order of the tables. Secondary indexes map an author or a
+ * category to its books (ignoring case), a member to their open loans and a
+ * book to its open loan; the author and category indexes are only built on
+ * their first lookup, so loading a large library does not pay for them. All
+ * indexes are kept up to date by the mutating methods, which are the only way
+ * records should change, and every change is reported to the registered
+ * {@link LibraryListener}s.
+ *
+ * The repository may be used from several threads, e.g. one per circulation
+ * desk. Lookups share a read lock and changes take the write lock, so a
+ * change such as issuing a book checks and updates its state in one atomic
+ * step: of two desks issuing the same copy, one gets an
+ * IllegalStateException. Listeners hear about changes under the write lock,
+ * one at a time and in the order they happened; collections are returned
+ * as copies.
+ */
+class LibraryRepository {
+    private final ArrayList<Book> books = new ArrayList<>();
+    private final ArrayList<Member> members = new ArrayList<>();
+    private final ArrayList<Transaction> transactions = new ArrayList<>();
+
+    // Primary indexes: id -> row
+    private final RowIndex bookRows = new RowIndex(row -> books.get(row).getId());
+    private final RowIndex memberRows = new RowIndex(row -> members.get(row).getId());
+    private final RowIndex transactionRows = new RowIndex(row -> transactions.get(row).getId());
+
+    // Secondary indexes; null until first used
+    private Map<String, List<Book>> booksByAuthor;
+    private Map<String, List<Book>> booksByCategory;
+    private final Map<String, Set<Transaction>> openLoansByMember = new HashMap<>();
+    private final Map<String, Transaction> openLoanByBook = new LinkedHashMap<>(); // In issue order
+
+    // Counters for the dashboard, kept up to date by every change and read without locking
+    private final LongAdder availableBooks = new LongAdder();
+    private final LongAdder openLoans = new LongAdder();
+
+    // Loan policies by category; books in other categories use the default one
+    private final Map<String, LoanPolicy> policiesByCategory = new HashMap<>();
+    private LoanPolicy defaultPolicy = LoanPolicy.STANDARD;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<LibraryListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(LibraryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Runs reads that must see the library without any change in between,
+     * e.g. copying it for a snapshot.
+     */
+    public void read(Runnable reads) {
+        lock.readLock().lock();
+        try {
+            reads.run();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs several lookups and changes as one atomic change, e.g. adding the
+     * records that are not in the library yet.
+     */
+    public void write(Runnable changes) {
+        lock.writeLock().lock();
+        try {
+            changes.run();
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    // Once the outermost change is done, lets listeners finish their work without the lock
+    private void unlockWrite() {
+        lock.writeLock().unlock();
+        if (!lock.isWriteLockedByCurrentThread()) {
+            listeners.forEach(LibraryListener::afterChange);
+        }
+    }
+
+    /**
+     * Makes room for this many records of each kind, e.g. before loading saved
+     * data, so the lists and indexes do not grow step by step.
+     */
+    public void ensureCapacity(int bookCount, int memberCount, int transactionCount) {
+        lock.writeLock().lock();
+        try {
+            books.ensureCapacity(bookCount);
+            members.ensureCapacity(memberCount);
+            transactions.ensureCapacity(transactionCount);
+            bookRows.ensureCapacity(bookCount);
+            memberRows.ensureCapacity(memberCount);
+            transactionRows.ensureCapacity(transactionCount);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- Books ---
+
+    /**
+     * @throws IllegalArgumentException If a book with the same id exists.
+     */
+    public void addBook(Book book) {
+        lock.writeLock().lock();
+        try {
+            if (bookRows.contains(book.getId())) {
+                throw new IllegalArgumentException("A book with ID " + book.getId() + " already exists");
+            }
+            index(book);
+            int row = books.size() - 1;
+            listeners.forEach(l -> l.bookAdded(row));
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    /**
+     * Adds books in one batch, reported as a single event.
+     * @throws IllegalArgumentException If an id exists or repeats; nothing is added then.
+     */
+    public void addBooks(List<Book> batch) {
+        lock.writeLock().lock();
+        try {
+            Set<String> ids = new HashSet<>();
+            for (Book book : batch) {
+                if (bookRows.contains(book.getId()) || !ids.add(book.getId())) {
+                    throw new IllegalArgumentException("A book with ID " + book.getId() + " already exists");
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            int firstRow = books.size();
+            books.ensureCapacity(firstRow + batch.size());
+            for (Book book : batch) {
+                index(book);
+            }
+            int lastRow = books.size() - 1;
+            listeners.forEach(l -> l.booksAdded(firstRow, lastRow));
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    private void index(Book book) {
+        bookRows.add(book.getId(), books.size());
+        books.add(book);
+        if (book.isAvailable()) {
+            availableBooks.increment();
+        }
+        if (booksByAuthor != null) {
+            booksByAuthor.computeIfAbsent(key(book.getAuthor()), k -> new ArrayList<>()).add(book);
+        }
+        if (booksByCategory != null) {
+            booksByCategory.computeIfAbsent(key(book.getCategory()), k -> new ArrayList<>()).add(book);
+        }
+    }
+
+    /** @return The book with this id, or null. */
+    public Book getBook(String id) {
+        lock.readLock().lock();
+        try {
+            int row = bookRows.get(id);
+            return row >= 0 ? books.get(row) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return The table row of the book with this id, or -1. */
+    public int bookRow(String id) {
+        lock.readLock().lock();
+        try {
+            return bookRows.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Book bookAt(int row) {
+        lock.readLock().lock();
+        try {
+            return books.get(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int bookCount() {
+        lock.readLock().lock();
+        try {
+            return books.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long availableBookCount() { return availableBooks.sum(); }
+
+    public List<Book> getBooks() {
+        lock.readLock().lock();
+        try {
+            return List.copyOf(books);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return The books by this author, ignoring case. */
+    public List<Book> getBooksByAuthor(String author) {
+        lock.readLock().lock();
+        try {
+            Map<String, List<Book>> groups;
+            synchronized (this) { // Readers may race to build it
+                if (booksByAuthor == null) {
+                    booksByAuthor = group(Book::getAuthor);
+                }
+                groups = booksByAuthor;
+            }
+            return List.copyOf(groups.getOrDefault(key(author), Collections.emptyList()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return The books in this category, ignoring case. */
+    public List<Book> getBooksByCategory(String category) {
+        lock.readLock().lock();
+        try {
+            Map<String, List<Book>> groups;
+            synchronized (this) { // Readers may race to build it
+                if (booksByCategory == null) {
+                    booksByCategory = group(Book::getCategory);
+                }
+                groups = booksByCategory;
+            }
+            return List.copyOf(groups.getOrDefault(key(category), Collections.emptyList()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, List<Book>> group(Function<Book, String> field) {
+        Map<String, List<Book>> groups = new HashMap<>();
+        for (Book book : books) {
+            groups.computeIfAbsent(key(field.apply(book)), k -> new ArrayList<>()).add(book);
+        }
+        return groups;
+    }
+
+    // --- Members ---
+
+    /**
+     * @throws IllegalArgumentException If a member with the same id exists.
+     */
+    public void addMember(Member member) {
+        lock.writeLock().lock();
+        try {
+            if (memberRows.contains(member.getId())) {
+                throw new IllegalArgumentException("A member with ID " + member.getId() + " already exists");
+            }
+            memberRows.add(member.getId(), members.size());
+            members.add(member);
+            int row = members.size() - 1;
+            listeners.forEach(l -> l.memberAdded(row));
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    /**
+     * Adds members in one batch, reported as a single event.
+     * @throws IllegalArgumentException If an id exists or repeats; nothing is added then.
+     */
+    public void addMembers(List<Member> batch) {
+        lock.writeLock().lock();
+        try {
+            Set<String> ids = new HashSet<>();
+            for (Member member : batch) {
+                if (memberRows.contains(member.getId()) || !ids.add(member.getId())) {
+                    throw new IllegalArgumentException("A member with ID " + member.getId() + " already exists");
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            int firstRow = members.size();
+            members.ensureCapacity(firstRow + batch.size());
+            for (Member member : batch) {
+                memberRows.add(member.getId(), members.size());
+                members.add(member);
+            }
+            int lastRow = members.size() - 1;
+            listeners.forEach(l -> l.membersAdded(firstRow, lastRow));
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    /** @return The member with this id, or null. */
+    public Member getMember(String id) {
+        lock.readLock().lock();
+        try {
+            int row = memberRows.get(id);
+            return row >= 0 ? members.get(row) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int memberRow(String id) {
+        lock.readLock().lock();
+        try {
+            return memberRows.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Member memberAt(int row) {
+        lock.readLock().lock();
+        try {
+            return members.get(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int memberCount() {
+        lock.readLock().lock();
+        try {
+            return members.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Member> getMembers() {
+        lock.readLock().lock();
+        try {
+            return List.copyOf(members);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Loan policies ---
+
+    /**
+     * Sets the policy for books in this category (ignoring case), or for all
+     * other books if category is null. Loans already made keep their due date.
+     */
+    public void setLoanPolicy(String category, LoanPolicy policy) {
+        lock.writeLock().lock();
+        try {
+            if (category == null) {
+                defaultPolicy = policy;
+            } else {
+                policiesByCategory.put(key(category), policy);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** @return The policy for loans of this book; the default one if book is null. */
+    public LoanPolicy getLoanPolicy(Book book) {
+        lock.readLock().lock();
+        try {
+            return book == null ? defaultPolicy : policiesByCategory.getOrDefault(key(book.getCategory()), defaultPolicy);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Transactions ---
+
+    /**
+     * Lends a book to a member until the due date set by the book's loan
+     * policy. The checks and the loan are one atomic step.
+     * @return The new transaction.
+     * @throws IllegalArgumentException If the book or member does not exist.
+     * @throws IllegalStateException If the book is already issued.
+     */
+    public Transaction issueBook(String bookId, String memberId, Date issueDate) {
+        lock.writeLock().lock();
+        try {
+            Book book = getBook(bookId);
+            if (book == null) {
+                throw new IllegalArgumentException("No book with ID " + bookId);
+            }
+            if (getMember(memberId) == null) {
+                throw new IllegalArgumentException("No member with ID " + memberId);
+            }
+            if (!book.isAvailable() || openLoanByBook.containsKey(bookId)) {
+                throw new IllegalStateException(book.getTitle() + " is already issued");
+            }
+            Transaction transaction = new Transaction("T" + (transactions.size() + 1), bookId, memberId, issueDate,
+                getLoanPolicy(book).dueDate(issueDate), null);
+            addTransaction(transaction);
+            return transaction;
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    /**
+     * Closes an open loan and makes the book available again, in one atomic step.
+     * @return The transaction.
+     * @throws IllegalArgumentException If the transaction does not exist.
+     * @throws IllegalStateException If it was already returned.
+     */
+    public Transaction returnBook(String transactionId, Date returnDate) {
+        lock.writeLock().lock();
+        try {
+            Transaction transaction = getTransaction(transactionId);
+            if (transaction == null) {
+                throw new IllegalArgumentException("No transaction with ID " + transactionId);
+            }
+            if (transaction.getReturnDate() != null) {
+                throw new IllegalStateException("Transaction " + transactionId + " is already returned");
+            }
+            transaction.setReturnDate(returnDate);
+            if (openLoanByBook.remove(transaction.getBookId(), transaction)) {
+                openLoans.decrement();
+            }
+            Set<Transaction> loans = openLoansByMember.get(transaction.getMemberId());
+            if (loans != null) {
+                loans.remove(transaction);
+            }
+            setAvailable(transaction.getBookId(), true);
+            int row = transactionRows.get(transactionId);
+            listeners.forEach(l -> l.transactionChanged(row));
+            return transaction;
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    /**
+     * Adds a transaction as it is (e.g. when loading saved data) and indexes
+     * it; an open loan marks its book as issued.
+     */
+    public void addTransaction(Transaction transaction) {
+        lock.writeLock().lock();
+        try {
+            if (transactionRows.contains(transaction.getId())) {
+                throw new IllegalArgumentException("A transaction with ID " + transaction.getId() + " already exists");
+            }
+            transactionRows.add(transaction.getId(), transactions.size());
+            transactions.add(transaction);
+            if (transaction.getReturnDate() == null) {
+                if (openLoanByBook.put(transaction.getBookId(), transaction) == null) {
+                    openLoans.increment();
+                }
+                openLoansByMember.computeIfAbsent(transaction.getMemberId(), k -> new LinkedHashSet<>()).add(transaction);
+                setAvailable(transaction.getBookId(), false);
+            }
+            int row = transactions.size() - 1;
+            listeners.forEach(l -> l.transactionAdded(row));
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    // Callers hold the write lock
+    private void setAvailable(String bookId, boolean available) {
+        int row = bookRows.get(bookId);
+        if (row >= 0 && books.get(row).isAvailable() != available) {
+            books.get(row).setAvailable(available);
+            if (available) {
+                availableBooks.increment();
+            } else {
+                availableBooks.decrement();
+            }
+            listeners.forEach(l -> l.bookChanged(row));
+        }
+    }
+
+    /** @return The transaction with this id, or null. */
+    public Transaction getTransaction(String id) {
+        lock.readLock().lock();
+        try {
+            int row = transactionRows.get(id);
+            return row >= 0 ? transactions.get(row) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int transactionRow(String id) {
+        lock.readLock().lock();
+        try {
+            return transactionRows.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Transaction transactionAt(int row) {
+        lock.readLock().lock();
+        try {
+            return transactions.get(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int transactionCount() {
+        lock.readLock().lock();
+        try {
+            return transactions.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Transaction> getTransactions() {
+        lock.readLock().lock();
+        try {
+            return List.copyOf(transactions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return The open loan of this book, or null if it is not issued. */
+    public Transaction getOpenLoan(String bookId) {
+        lock.readLock().lock();
+        try {
+            return openLoanByBook.get(bookId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return The open loans of this member, oldest first. */
+    public List<Transaction> getOpenLoans(String memberId) {
+        lock.readLock().lock();
+        try {
+            return List.copyOf(openLoansByMember.getOrDefault(memberId, Collections.emptySet()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long openLoanCount() { return openLoans.sum(); }
+
+    /** @return All open loans, in issue order. */
+    public List<Transaction> getOpenLoans() {
+        lock.readLock().lock();
+        try {
+            return List.copyOf(openLoanByBook.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String key(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,67 @@
+package librarymanagementsystem;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * {@link PagedPicker.Source}s for the issue and return dialogs, backed by the
+ * repository's indexes. A record whose id is typed in full comes first, and
+ * an empty query lists every record in row order. Matching rows only become
+ * records as the picker reads its pages on its worker threads, so nothing is
+ * scanned or copied up front and the EDT never filters.
+ */
+final class LibrarySources {
+    private LibrarySources() {}
+
+    /** Available books matching the words of their title, author or category. */
+    static PagedPicker.Source<Book> availableBooks(LibraryRepository library, CatalogIndex index) {
+        return (query, cancelled) -> {
+            BitSet rows = index.search(query, cancelled);
+            IntStream matches = rows == null ? IntStream.range(0, library.bookCount()) : rows.stream();
+            return Stream.concat(Stream.of(query.trim()).map(library::getBook).filter(Objects::nonNull),
+                    matches.mapToObj(library::bookAt))
+                .filter(Book::isAvailable)
+                .distinct()
+                .iterator();
+        };
+    }
+
+    /** Members with words in their name or id starting with the words of the query. */
+    static PagedPicker.Source<Member> members(LibraryRepository library, MemberIndex index) {
+        return (query, cancelled) -> {
+            BitSet rows = index.search(query, cancelled);
+            IntStream matches = rows == null ? IntStream.range(0, library.memberCount()) : rows.stream();
+            return Stream.concat(Stream.of(query.trim()).map(library::getMember).filter(Objects::nonNull),
+                    matches.mapToObj(library::memberAt))
+                .distinct()
+                .iterator();
+        };
+    }
+
+    /** Open loans of the books or the members matching the query. */
+    static PagedPicker.Source<Transaction> openLoans(LibraryRepository library, CatalogIndex books, MemberIndex members) {
+        return (query, cancelled) -> {
+            BitSet bookRows = books.search(query, cancelled);
+            if (bookRows == null) {
+                // Transactions are in issue order; returned ones are skipped as the pages are read
+                return IntStream.range(0, library.transactionCount())
+                    .mapToObj(library::transactionAt)
+                    .filter(t -> t.getReturnDate() == null)
+                    .iterator();
+            }
+            BitSet memberRows = members.search(query, cancelled);
+            Stream<Transaction> byId = Stream.of(query.trim()).map(library::getTransaction)
+                .filter(t -> t != null && t.getReturnDate() == null);
+            Stream<Transaction> byBook = bookRows.stream()
+                .mapToObj(row -> library.getOpenLoan(library.bookAt(row).getId()))
+                .filter(Objects::nonNull);
+            Stream<Transaction> byMember = memberRows.stream()
+                .mapToObj(row -> library.getOpenLoans(library.memberAt(row).getId()))
+                .flatMap(Collection::stream);
+            return Stream.concat(Stream.concat(byId, byBook), byMember).distinct().iterator();
+        };
+    }
+}
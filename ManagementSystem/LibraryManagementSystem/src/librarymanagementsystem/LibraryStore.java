@@ -0,0 +1,643 @@
+package librarymanagementsystem;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+import javax.swing.SwingUtilities;
+
+/**
+ * Keeps a {@link LibraryRepository} on disk, in a data directory holding a
+ * snapshot and a {@link WriteAheadLog}.
+ *
+ * Every added book, member or transaction and every return is written to the
+ * log, and the change only completes once the log is on disk. Records are
+ * logged under the repository's write lock, in the order of the changes, but
+ * waiting for the disk happens after it is released, so changes made from
+ * several threads share their disk writes. Once the log holds
+ * {@value #SNAPSHOT_EVERY} records, or a quarter as many records as the last
+ * snapshot if that is more, the whole library is saved as a compact binary
+ * snapshot in the background: the state is copied under the repository's
+ * read lock, the log moves to a new segment, and the older segments are
+ * deleted once the snapshot is safely renamed into place. Opening a store
+ * loads the snapshot and replays only the records logged after it.
+ */
+class LibraryStore implements LibraryListener, Closeable {
+    static final Path DEFAULT_DIR = Paths.get(System.getProperty("library.dataDir",
+        System.getProperty("user.home") + File.separator + ".librarymanagementsystem"));
+
+    private static final String SNAPSHOT = "library.snapshot";
+    private static final int MAGIC = 0x4C49424C; // "LIBL"
+    private static final int VERSION = 2; // 2 added due dates; version 1 files are still read
+    private static final int SNAPSHOT_EVERY = 100_000; // Minimum log records between snapshots
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    // Log record types
+    private static final byte BOOK = 1;
+    private static final byte MEMBER = 2;
+    private static final byte TRANSACTION = 3; // Without a due date; only read
+    private static final byte RETURN = 4;
+    private static final byte LOAN = 5;
+
+    private final Path dir;
+    private final LibraryRepository library;
+    private final WriteAheadLog log;
+    private final ExecutorService snapshotter = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "library-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Consumer<IOException> errorHandler = Throwable::printStackTrace;
+    private final ThreadLocal<Long> unsynced = new ThreadLocal<>(); // Last record logged by each thread
+    private volatile int sinceSnapshot; // Changed under the repository's locks
+    private volatile int snapshotRecords; // Records in the last snapshot
+    private volatile boolean snapshotting;
+    private volatile boolean failed;
+
+    private LibraryStore(Path dir, LibraryRepository library, long nextSeq, int snapshotRecords, int replayed) throws IOException {
+        this.dir = dir;
+        this.library = library;
+        this.log = new WriteAheadLog(dir, nextSeq);
+        this.snapshotRecords = snapshotRecords;
+        this.sinceSnapshot = replayed;
+    }
+
+    /**
+     * Loads the data in dir into library, which should be empty, and starts
+     * logging the library's changes there.
+     */
+    public static LibraryStore open(Path dir, LibraryRepository library) throws IOException {
+        Files.createDirectories(dir);
+        long lastSeq = readSnapshot(dir.resolve(SNAPSHOT), library);
+        int snapshotRecords = records(library);
+        int[] replayed = new int[1];
+        lastSeq = WriteAheadLog.replay(dir, lastSeq, record -> {
+            apply(library, record);
+            replayed[0]++;
+        });
+        LibraryStore store = new LibraryStore(dir, library, lastSeq + 1, snapshotRecords, replayed[0]);
+        library.addListener(store);
+        if (store.snapshotDue()) {
+            store.snapshot();
+        }
+        return store;
+    }
+
+    private static int records(LibraryRepository library) {
+        return library.bookCount() + library.memberCount() + library.transactionCount();
+    }
+
+    // Snapshotting in proportion to the library keeps the total work of snapshots linear in its size
+    private boolean snapshotDue() {
+        return sinceSnapshot >= Math.max(SNAPSHOT_EVERY, snapshotRecords / 4);
+    }
+
+    /**
+     * Sets what happens when a change cannot be saved; only the first failure is reported.
+     */
+    public void setErrorHandler(Consumer<IOException> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    // --- Logging ---
+
+    @Override public void bookAdded(int row) { commit(BOOK, row, row, this::bookRecord); }
+    @Override public void booksAdded(int firstRow, int lastRow) { commit(BOOK, firstRow, lastRow, this::bookRecord); }
+    @Override public void memberAdded(int row) { commit(MEMBER, row, row, this::memberRecord); }
+    @Override public void membersAdded(int firstRow, int lastRow) { commit(MEMBER, firstRow, lastRow, this::memberRecord); }
+    @Override public void transactionAdded(int row) { commit(LOAN, row, row, this::transactionRecord); }
+    @Override public void transactionChanged(int row) { commit(RETURN, row, row, this::returnRecord); }
+
+    private RecordWriter bookRecord(int row) {
+        Book book = library.bookAt(row);
+        return out -> {
+            out.writeUTF(text(book.getId()));
+            out.writeUTF(text(book.getTitle()));
+            out.writeUTF(text(book.getAuthor()));
+            out.writeUTF(text(book.getCategory()));
+            out.writeBoolean(book.isAvailable());
+        };
+    }
+
+    private RecordWriter memberRecord(int row) {
+        Member member = library.memberAt(row);
+        return out -> {
+            out.writeUTF(text(member.getId()));
+            out.writeUTF(text(member.getName()));
+            out.writeUTF(text(member.getEmail()));
+            out.writeUTF(text(member.getPhone()));
+        };
+    }
+
+    private RecordWriter transactionRecord(int row) {
+        Transaction transaction = library.transactionAt(row);
+        long returned = time(transaction.getReturnDate());
+        return out -> writeTransaction(out, transaction, returned);
+    }
+
+    private RecordWriter returnRecord(int row) {
+        Transaction transaction = library.transactionAt(row);
+        return out -> {
+            out.writeUTF(text(transaction.getId()));
+            out.writeLong(time(transaction.getReturnDate()));
+        };
+    }
+
+    /**
+     * Logs the records of rows firstRow to lastRow; {@link #afterChange}
+     * waits once for all of them to be on disk.
+     */
+    private void commit(byte type, int firstRow, int lastRow, IntFunction<RecordWriter> records) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            long lastSeq = 0;
+            for (int row = firstRow; row <= lastRow; row++) {
+                bytes.reset();
+                records.apply(row).write(out);
+                lastSeq = log.append(type, bytes.toByteArray());
+            }
+            unsynced.set(lastSeq);
+        } catch (IOException ex) {
+            fail(ex);
+            return;
+        }
+        sinceSnapshot += lastRow - firstRow + 1;
+        if (snapshotDue() && !snapshotting) {
+            // Let the current change finish before copying the library
+            SwingUtilities.invokeLater(() -> {
+                if (snapshotDue()) {
+                    snapshot();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void afterChange() {
+        Long lastSeq = unsynced.get();
+        if (lastSeq != null) {
+            unsynced.remove();
+            try {
+                log.awaitDurable(lastSeq);
+            } catch (IOException ex) {
+                fail(ex);
+            }
+        }
+    }
+
+    private void fail(IOException ex) {
+        if (!failed) {
+            failed = true;
+            errorHandler.accept(ex);
+        }
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // --- Replay ---
+
+    /**
+     * Applies a logged change.
+     * @throws IOException If it does not apply, e.g. a book that is already
+     *         there: the snapshot and the log disagree.
+     */
+    private static void apply(LibraryRepository library, WriteAheadLog.Record record) throws IOException {
+        DataInputStream in = record.body;
+        try {
+            switch (record.type) {
+                case BOOK:
+                    library.addBook(new Book(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readBoolean()));
+                    break;
+                case MEMBER:
+                    library.addMember(new Member(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF()));
+                    break;
+                case TRANSACTION:
+                case LOAN:
+                    library.addTransaction(readTransaction(in, record.type == LOAN));
+                    break;
+                case RETURN:
+                    library.returnBook(in.readUTF(), date(in.readLong()));
+                    break;
+                default:
+                    throw new IOException("Unknown log record type " + record.type + " at " + record.seq);
+            }
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            throw new IOException("Log record " + record.seq + " does not apply: " + ex.getMessage(), ex);
+        }
+    }
+
+    // --- Snapshots ---
+
+    /** The library's records and their mutable fields, copied at one point in time. */
+    private static final class State {
+        final Book[] books;
+        final boolean[] available;
+        final Member[] members;
+        final Transaction[] transactions;
+        final long[] returned;
+
+        State(LibraryRepository library) {
+            books = new Book[library.bookCount()];
+            available = new boolean[books.length];
+            for (int i = 0; i < books.length; i++) {
+                books[i] = library.bookAt(i);
+                available[i] = books[i].isAvailable();
+            }
+            members = new Member[library.memberCount()];
+            for (int i = 0; i < members.length; i++) {
+                members[i] = library.memberAt(i);
+            }
+            transactions = new Transaction[library.transactionCount()];
+            returned = new long[transactions.length];
+            for (int i = 0; i < transactions.length; i++) {
+                transactions[i] = library.transactionAt(i);
+                returned[i] = time(transactions[i].getReturnDate());
+            }
+        }
+    }
+
+    /**
+     * Saves the library in the background; does nothing if a snapshot is
+     * already being written. Changes wait while the library is copied.
+     */
+    public synchronized void snapshot() {
+        if (snapshotting) {
+            return;
+        }
+        snapshotting = true;
+        long[] firstSeq = new long[1];
+        State[] state = new State[1];
+        library.read(() -> {
+            sinceSnapshot = 0;
+            firstSeq[0] = log.rotate(); // Later changes are not in this snapshot
+            state[0] = new State(library);
+            snapshotRecords = records(library);
+        });
+        snapshotter.execute(() -> {
+            try {
+                writeSnapshot(state[0], firstSeq[0] - 1);
+                WriteAheadLog.deleteBefore(dir, firstSeq[0]);
+            } catch (IOException ex) {
+                fail(ex);
+            } finally {
+                snapshotting = false;
+            }
+        });
+    }
+
+    private void writeSnapshot(State state, long lastSeq) throws IOException {
+        Path temp = dir.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            SnapshotWriter out = new SnapshotWriter(channel);
+            out.header(lastSeq);
+            out.section(state.books.length, (block, i) -> {
+                Book book = state.books[i];
+                block.writeString(book.getId());
+                block.writeString(book.getTitle());
+                block.writeString(book.getAuthor());
+                block.writeString(book.getCategory());
+                block.writeBoolean(state.available[i]);
+            });
+            out.section(state.members.length, (block, i) -> {
+                Member member = state.members[i];
+                block.writeString(member.getId());
+                block.writeString(member.getName());
+                block.writeString(member.getEmail());
+                block.writeString(member.getPhone());
+            });
+            out.section(state.transactions.length, (block, i) -> {
+                Transaction transaction = state.transactions[i];
+                block.writeString(transaction.getId());
+                block.writeString(transaction.getBookId());
+                block.writeString(transaction.getMemberId());
+                block.writeLong(time(transaction.getIssueDate()));
+                block.writeLong(time(transaction.getDueDate()));
+                block.writeLong(state.returned[i]);
+            });
+            out.finish();
+            channel.force(true);
+        }
+        Files.move(temp, dir.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a snapshot into library. The blocks are decoded in parallel while
+     * the file is read, and added once the whole file is checked.
+     * @return The sequence number of the last log record it contains, or 0 if there is none.
+     */
+    private static long readSnapshot(Path file, LibraryRepository library) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            SnapshotReader in = new SnapshotReader(channel);
+            long lastSeq = in.header(file);
+            boolean dueDates = in.version >= 2;
+            List<CompletableFuture<Book[]>> books = in.section(Book[]::new, block ->
+                new Book(block.readString(), block.readString(), block.readString(), block.readString(), block.readBoolean()));
+            List<CompletableFuture<Member[]>> members = in.section(Member[]::new, block ->
+                new Member(block.readString(), block.readString(), block.readString(), block.readString()));
+            List<CompletableFuture<Transaction[]>> transactions = in.section(Transaction[]::new, block -> {
+                String id = block.readString(), bookId = block.readString(), memberId = block.readString();
+                Date issued = date(block.readLong());
+                Date due = dueDates ? date(block.readLong()) : legacyDueDate(issued);
+                return new Transaction(id, bookId, memberId, issued, due, date(block.readLong()));
+            });
+            in.finish(file);
+
+            library.ensureCapacity(count(books), count(members), count(transactions));
+            for (CompletableFuture<Book[]> block : books) {
+                for (Book book : block.join()) {
+                    library.addBook(book);
+                }
+            }
+            for (CompletableFuture<Member[]> block : members) {
+                for (Member member : block.join()) {
+                    library.addMember(member);
+                }
+            }
+            for (CompletableFuture<Transaction[]> block : transactions) {
+                for (Transaction transaction : block.join()) {
+                    library.addTransaction(transaction);
+                }
+            }
+            return lastSeq;
+        } catch (CompletionException ex) {
+            throw new IOException("The snapshot " + file + " is damaged", ex.getCause());
+        }
+    }
+
+    private static int count(List<? extends CompletableFuture<? extends Object[]>> blocks) {
+        int count = 0;
+        for (CompletableFuture<? extends Object[]> block : blocks) {
+            count += block.join().length;
+        }
+        return count;
+    }
+
+    /*
+     * Snapshot layout: magic, version and last sequence number, then the books,
+     * members and transactions, each as a block count followed by blocks of
+     * [record count][byte length][records], then a CRC-32 of everything before.
+     * Strings are stored as a length and UTF-8 bytes. Version 1 transactions
+     * have no due date.
+     */
+    private static final int BLOCK_RECORDS = 65_536;
+
+    private interface RecordEncoder {
+        void encode(Block block, int index);
+    }
+
+    private interface RecordDecoder<T> {
+        T decode(Block block);
+    }
+
+    /** A growable byte array with the encoding of snapshot records. */
+    private static final class Block {
+        byte[] data;
+        int position;
+        int length;
+
+        Block(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+
+        private void ensure(int bytes) {
+            if (length + bytes > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + bytes));
+            }
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                data[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeBoolean(boolean value) {
+            ensure(1);
+            data[length++] = (byte) (value ? 1 : 0);
+        }
+
+        void writeString(String text) {
+            byte[] bytes = text(text).getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, data, length, bytes.length);
+            length += bytes.length;
+        }
+
+        int readInt() {
+            if (position + 4 > length) {
+                throw new IllegalStateException("Truncated block");
+            }
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = value << 8 | (data[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        long readLong() {
+            return (long) readInt() << 32 | (readInt() & 0xFFFFFFFFL);
+        }
+
+        boolean readBoolean() {
+            if (position >= length) {
+                throw new IllegalStateException("Truncated block");
+            }
+            return data[position++] != 0;
+        }
+
+        String readString() {
+            int bytes = readInt();
+            if (bytes < 0 || position + bytes > length) {
+                throw new IllegalStateException("Truncated block");
+            }
+            String text = new String(data, position, bytes, StandardCharsets.UTF_8);
+            position += bytes;
+            return text;
+        }
+    }
+
+    private static final class SnapshotWriter {
+        private final FileChannel channel;
+        private final CRC32 crc = new CRC32();
+        private final Block header = new Block(new byte[16], 0);
+        private final Block block = new Block(new byte[1 << 20], 0);
+
+        SnapshotWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void header(long lastSeq) throws IOException {
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeLong(lastSeq);
+            write(header);
+        }
+
+        void section(int count, RecordEncoder encoder) throws IOException {
+            header.writeInt((count + BLOCK_RECORDS - 1) / BLOCK_RECORDS);
+            write(header);
+            for (int start = 0; start < count; start += BLOCK_RECORDS) {
+                int end = Math.min(count, start + BLOCK_RECORDS);
+                for (int i = start; i < end; i++) {
+                    encoder.encode(block, i);
+                }
+                header.writeInt(end - start);
+                header.writeInt(block.length);
+                write(header);
+                write(block);
+            }
+        }
+
+        void finish() throws IOException {
+            header.writeLong(crc.getValue());
+            ByteBuffer buffer = ByteBuffer.wrap(header.data, 0, header.length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            header.length = 0;
+        }
+
+        private void write(Block bytes) throws IOException {
+            crc.update(bytes.data, 0, bytes.length);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.data, 0, bytes.length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            bytes.length = 0;
+        }
+    }
+
+    private static final class SnapshotReader {
+        private final FileChannel channel;
+        private final CRC32 crc = new CRC32();
+        private long position;
+        int version;
+
+        SnapshotReader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long header(Path file) throws IOException {
+            Block header = read(16);
+            if (header.readInt() != MAGIC) {
+                throw new IOException(file + " is not a library snapshot");
+            }
+            version = header.readInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException(file + " has unsupported version " + version);
+            }
+            return header.readLong();
+        }
+
+        /** Reads a section, handing each block to the common pool to decode. */
+        <T> List<CompletableFuture<T[]>> section(IntFunction<T[]> arrays, RecordDecoder<T> decoder) throws IOException {
+            int blocks = read(4).readInt();
+            List<CompletableFuture<T[]>> decoded = new ArrayList<>(Math.max(0, blocks));
+            for (int b = 0; b < blocks; b++) {
+                Block header = read(8);
+                int count = header.readInt();
+                Block block = read(header.readInt());
+                decoded.add(CompletableFuture.supplyAsync(() -> {
+                    T[] records = arrays.apply(count);
+                    for (int i = 0; i < count; i++) {
+                        records[i] = decoder.decode(block);
+                    }
+                    return records;
+                }));
+            }
+            return decoded;
+        }
+
+        void finish(Path file) throws IOException {
+            long expected = crc.getValue();
+            if (read(8).readLong() != expected || position != channel.size()) {
+                throw new IOException("The snapshot " + file + " is damaged");
+            }
+        }
+
+        private Block read(int bytes) throws IOException {
+            if (bytes < 0 || position + bytes > channel.size()) {
+                throw new EOFException("The snapshot ends too early");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(bytes);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("The snapshot ends too early");
+                }
+            }
+            crc.update(buffer.array(), 0, bytes);
+            position += bytes;
+            return new Block(buffer.array(), bytes);
+        }
+    }
+
+    // --- Encoding ---
+
+    private static void writeTransaction(DataOutputStream out, Transaction transaction, long returned) throws IOException {
+        out.writeUTF(text(transaction.getId()));
+        out.writeUTF(text(transaction.getBookId()));
+        out.writeUTF(text(transaction.getMemberId()));
+        out.writeLong(time(transaction.getIssueDate()));
+        out.writeLong(time(transaction.getDueDate()));
+        out.writeLong(returned);
+    }
+
+    private static Transaction readTransaction(DataInputStream in, boolean dueDate) throws IOException {
+        String id = in.readUTF(), bookId = in.readUTF(), memberId = in.readUTF();
+        Date issued = date(in.readLong());
+        Date due = dueDate ? date(in.readLong()) : legacyDueDate(issued);
+        return new Transaction(id, bookId, memberId, issued, due, date(in.readLong()));
+    }
+
+    // Loans saved before due dates existed get the standard loan period
+    private static Date legacyDueDate(Date issued) {
+        return issued == null ? null : LoanPolicy.STANDARD.dueDate(issued);
+    }
+
+    private static String text(String text) {
+        return text == null ? "" : text;
+    }
+
+    private static long time(Date date) {
+        return date == null ? NO_DATE : date.getTime();
+    }
+
+    private static Date date(long time) {
+        return time == NO_DATE ? null : new Date(time);
+    }
+
+    /**
+     * Waits for a snapshot being written, then closes the log.
+     */
+    @Override
+    public void close() throws IOException {
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+}
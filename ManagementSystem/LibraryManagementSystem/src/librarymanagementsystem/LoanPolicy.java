@@ -0,0 +1,61 @@
+package librarymanagementsystem;
+
+import java.util.Date;
+
+/**
+ * How long a book may be borrowed and what a late return costs: a fine for
+ * every started day past the due date, up to a maximum. Amounts are in cents.
+ */
+class LoanPolicy {
+    static final long DAY = 24L * 60 * 60 * 1000;
+    static final LoanPolicy STANDARD = new LoanPolicy("Standard", 14, 25, 1000);
+
+    private final String name;
+    private final int loanDays;
+    private final long finePerDay, maxFine;
+
+    public LoanPolicy(String name, int loanDays, long finePerDay, long maxFine) {
+        if (loanDays < 0 || finePerDay < 0 || maxFine < 0) {
+            throw new IllegalArgumentException("A loan policy cannot have negative days or fines");
+        }
+        this.name = name;
+        this.loanDays = loanDays;
+        this.finePerDay = finePerDay;
+        this.maxFine = maxFine;
+    }
+
+    public String getName() { return name; }
+    public int getLoanDays() { return loanDays; }
+    public long getFinePerDay() { return finePerDay; }
+    public long getMaxFine() { return maxFine; }
+
+    public Date dueDate(Date issueDate) {
+        return new Date(issueDate.getTime() + loanDays * DAY);
+    }
+
+    /** @return The fine for a loan this many days late. */
+    public long fine(long daysLate) {
+        if (daysLate <= 0 || finePerDay == 0) {
+            return 0;
+        }
+        return daysLate > maxFine / finePerDay ? maxFine : daysLate * finePerDay;
+    }
+
+    /** @return Whether one more day late would add to the fine. */
+    public boolean accrues(long daysLate) {
+        return finePerDay > 0 && fine(daysLate) < maxFine;
+    }
+
+    /** @return The started days between dueDate and time, or 0 if time is not past it. */
+    static long daysLate(Date dueDate, long time) {
+        if (dueDate == null || time <= dueDate.getTime()) {
+            return 0;
+        }
+        return (time - dueDate.getTime() - 1) / DAY + 1;
+    }
+
+    /** Formats cents as dollars, e.g. "$2.50". */
+    static String formatMoney(long cents) {
+        return String.format("$%,d.%02d", cents / 100, cents % 100);
+    }
+}
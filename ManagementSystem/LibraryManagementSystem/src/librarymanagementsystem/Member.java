@@ -0,0 +1,17 @@
+package librarymanagementsystem;
+
+class Member {
+    private String id, name, email, phone;
+    
+    public Member(String id, String name, String email, String phone) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.phone = phone;
+    }
+    
+    public String getId() { return id; }
+    public String getName() { return name; }
+    public String getEmail() { return email; }
+    public String getPhone() { return phone; }
+}
@@ -0,0 +1,90 @@
+package librarymanagementsystem;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Index of the words in every member's name and id, for finding members as
+ * their name is typed. Words are split and normalized like the
+ * {@link CatalogIndex}; a query matches the members with a word starting
+ * with each of its words.
+ *
+ * The index follows the repository as a {@link LibraryListener}. Searches
+ * may run on any thread while members are added on another.
+ */
+class MemberIndex implements LibraryListener {
+    private final LibraryRepository library;
+    private final NavigableMap<String, CatalogIndex.Postings> words = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public MemberIndex(LibraryRepository library) {
+        this.library = library;
+        library.read(() -> { // No member may slip in between
+            if (library.memberCount() > 0) {
+                membersAdded(0, library.memberCount() - 1);
+            }
+            library.addListener(this);
+        });
+    }
+
+    @Override
+    public void memberAdded(int row) {
+        membersAdded(row, row);
+    }
+
+    @Override
+    public void membersAdded(int firstRow, int lastRow) {
+        lock.writeLock().lock();
+        try {
+            for (int row = firstRow; row <= lastRow; row++) {
+                Member member = library.memberAt(row);
+                List<String> memberWords = CatalogIndex.tokenize(member.getName());
+                memberWords.addAll(CatalogIndex.tokenize(member.getId()));
+                for (String word : memberWords) {
+                    words.computeIfAbsent(word, w -> new CatalogIndex.Postings()).add(row);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param cancelled Polled between words; the search stops when it returns true.
+     * @return The rows of the matching members, or null if the query has no words.
+     */
+    public BitSet search(String query, BooleanSupplier cancelled) {
+        List<String> tokens = CatalogIndex.tokenize(query);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            BitSet result = null;
+            for (String token : tokens) {
+                if (cancelled.getAsBoolean()) {
+                    return new BitSet();
+                }
+                BitSet rows = new BitSet();
+                for (CatalogIndex.Postings postings : words.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+                    for (int i = 0; i < postings.size; i++) {
+                        rows.set(postings.rows[i]);
+                    }
+                }
+                if (result == null) {
+                    result = rows;
+                } else {
+                    result.and(rows);
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
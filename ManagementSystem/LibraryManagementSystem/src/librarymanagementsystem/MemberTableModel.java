@@ -0,0 +1,46 @@
+package librarymanagementsystem;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Shows the repository's members, reading each cell when it is painted.
+ * New members arrive on the EDT through an {@link EdtLibraryListener}.
+ */
+class MemberTableModel extends AbstractTableModel implements LibraryListener {
+    private static final String[] COLUMNS = {"Member ID", "Name", "Email", "Phone"};
+
+    private final LibraryRepository library;
+    private int memberCount; // As of the last change delivered on the EDT
+
+    public MemberTableModel(LibraryRepository library) {
+        this.library = library;
+        EdtLibraryListener.register(library, this, () -> memberCount = library.memberCount());
+    }
+
+    @Override public int getRowCount() { return memberCount; }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Member member = library.memberAt(row);
+        switch (column) {
+            case 0: return member.getId();
+            case 1: return member.getName();
+            case 2: return member.getEmail();
+            default: return member.getPhone();
+        }
+    }
+
+    @Override
+    public void memberAdded(int row) {
+        memberCount = row + 1;
+        fireTableRowsInserted(row, row);
+    }
+
+    @Override
+    public void membersAdded(int firstRow, int lastRow) {
+        memberCount = lastRow + 1;
+        fireTableRowsInserted(firstRow, lastRow);
+    }
+}
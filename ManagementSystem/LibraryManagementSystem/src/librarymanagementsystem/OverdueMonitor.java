@@ -0,0 +1,223 @@
+package librarymanagementsystem;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * Finds overdue loans and accrues their fines without scanning the open loans.
+ *
+ * Every open loan waits in a priority queue ordered by the time of its next
+ * event: its due date, then the start of each further day late until its
+ * fine reaches the cap of its {@link LoanPolicy}. A timer wakes up at the
+ * earliest event, so each tick only touches the loans that fall due or owe
+ * another day's fine, and the total of outstanding fines changes by exactly
+ * what those loans add. Returned loans are settled at once and dropped from
+ * the queue when they reach its head. The queue is only for fines: a loan
+ * keeps getting later after its fine is capped, so views compute the days
+ * late from the clock with {@link Loan#daysLateAt}.
+ *
+ * The monitor follows the repository as a {@link LibraryListener}; loans
+ * may be issued and returned on any thread while the timer runs on the EDT.
+ * Its listeners hear about changes to the overdue loans on the EDT; changes
+ * made on other threads are reported together by one event, after which
+ * {@link #overdueLoans} includes them all.
+ */
+class OverdueMonitor implements LibraryListener {
+    private static final int MAX_DELAY = 60_000; // Wake up at least once a minute in case the clock jumps
+
+    private final LibraryRepository library;
+    private final LongSupplier clock;
+    private final PriorityQueue<Loan> queue = new PriorityQueue<>(Comparator.comparingLong(loan -> loan.nextEvent));
+    private final Map<Transaction, Loan> openLoans = new IdentityHashMap<>();
+    private final List<Loan> overdue = new ArrayList<>(); // Unordered; each loan knows its index
+    private final List<ChangeListener> listeners = new ArrayList<>();
+    private final Timer timer;
+    private long totalFines;
+    private boolean changePosted; // An event is queued on the EDT
+
+    public OverdueMonitor(LibraryRepository library) {
+        this(library, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock The current time in milliseconds.
+     */
+    public OverdueMonitor(LibraryRepository library, LongSupplier clock) {
+        this.library = library;
+        this.clock = clock;
+        timer = new Timer(MAX_DELAY, e -> advance());
+        timer.setRepeats(false);
+        library.read(() -> { // No loan may slip in between
+            for (Transaction transaction : library.getOpenLoans()) {
+                track(transaction);
+            }
+            library.addListener(this);
+        });
+        advance();
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /** Stops the timer; the monitor no longer updates by itself. */
+    public void stop() {
+        timer.stop();
+    }
+
+    @Override
+    public synchronized void transactionAdded(int row) {
+        Transaction transaction = library.transactionAt(row);
+        if (transaction.getReturnDate() == null) {
+            Loan loan = track(transaction);
+            if (loan != null && queue.peek() == loan) {
+                // Due before anything else, possibly already
+                if (SwingUtilities.isEventDispatchThread()) {
+                    advance();
+                } else {
+                    SwingUtilities.invokeLater(this::advance);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void transactionChanged(int row) {
+        Loan loan = openLoans.remove(library.transactionAt(row));
+        if (loan == null) {
+            return;
+        }
+        loan.returned = true; // Left in the queue until it reaches the head
+        if (loan.daysLate > 0) {
+            // Fill the gap with the last overdue loan
+            Loan last = overdue.remove(overdue.size() - 1);
+            if (last != loan) {
+                overdue.set(loan.overdueIndex, last);
+                last.overdueIndex = loan.overdueIndex;
+            }
+            totalFines -= loan.fine;
+            fireChanged();
+        }
+    }
+
+    private Loan track(Transaction transaction) {
+        if (transaction.getDueDate() == null || openLoans.containsKey(transaction)) {
+            return null;
+        }
+        Loan loan = new Loan(transaction, library.getLoanPolicy(library.getBook(transaction.getBookId())));
+        loan.nextEvent = transaction.getDueDate().getTime() + 1; // Late from the first millisecond after the due date
+        openLoans.put(transaction, loan);
+        queue.add(loan);
+        return loan;
+    }
+
+    /**
+     * Processes every event up to now, then sets the timer for the next one.
+     */
+    public synchronized void advance() {
+        long now = clock.getAsLong();
+        boolean changed = false;
+        while (!queue.isEmpty() && queue.peek().nextEvent <= now) {
+            Loan loan = queue.poll();
+            if (loan.returned) {
+                continue;
+            }
+            long due = loan.transaction.getDueDate().getTime();
+            long daysLate = LoanPolicy.daysLate(loan.transaction.getDueDate(), now);
+            if (loan.daysLate == 0) {
+                loan.overdueIndex = overdue.size();
+                overdue.add(loan);
+            }
+            long fine = loan.policy.fine(daysLate);
+            totalFines += fine - loan.fine;
+            loan.fine = fine;
+            loan.daysLate = daysLate;
+            if (loan.policy.accrues(daysLate)) {
+                loan.nextEvent = due + daysLate * LoanPolicy.DAY + 1;
+                queue.add(loan);
+            }
+            changed = true;
+        }
+        if (queue.isEmpty()) {
+            timer.stop();
+        } else {
+            timer.setInitialDelay((int) Math.max(0, Math.min(MAX_DELAY, queue.peek().nextEvent - now)));
+            timer.restart();
+        }
+        if (changed) {
+            fireChanged();
+        }
+    }
+
+    private void fireChanged() {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            if (!changePosted) {
+                changePosted = true;
+                SwingUtilities.invokeLater(this::firePosted);
+            }
+            return;
+        }
+        ChangeEvent event = new ChangeEvent(this);
+        listeners.forEach(l -> l.stateChanged(event));
+    }
+
+    private void firePosted() {
+        synchronized (this) {
+            changePosted = false;
+        }
+        fireChanged();
+    }
+
+    /**
+     * @return The open loan of transaction, or null if it is returned or has no due date.
+     */
+    public synchronized Loan getLoan(Transaction transaction) {
+        return openLoans.get(transaction);
+    }
+
+    /** @return The time by the monitor's clock, for {@link Loan#daysLateAt}. */
+    public long currentTime() { return clock.getAsLong(); }
+
+    public synchronized int overdueCount() { return overdue.size(); }
+    public synchronized Loan overdueAt(int index) { return overdue.get(index); }
+
+    /** @return A copy of the overdue loans, in the order of {@link #overdueAt}. */
+    public synchronized Loan[] overdueLoans() { return overdue.toArray(new Loan[0]); }
+
+    /** @return The fines owed on all overdue loans still out, in cents. */
+    public synchronized long totalFines() { return totalFines; }
+
+    /** An open loan being watched. */
+    static final class Loan {
+        private final Transaction transaction;
+        private final LoanPolicy policy;
+        private long nextEvent;
+        private long daysLate; // As of the last event; stops at the fine's cap
+        private long fine;
+        private boolean returned;
+        private int overdueIndex; // In overdue, once daysLate > 0
+
+        Loan(Transaction transaction, LoanPolicy policy) {
+            this.transaction = transaction;
+            this.policy = policy;
+        }
+
+        public Transaction getTransaction() { return transaction; }
+        public LoanPolicy getPolicy() { return policy; }
+        public long getFine() { return fine; }
+
+        /** @return The started days past the due date at time. */
+        public long daysLateAt(long time) {
+            return LoanPolicy.daysLate(transaction.getDueDate(), time);
+        }
+
+        /** @return The fine owed if the book comes back at time, by the policy of {@link #getFine}. */
+        public long fineAt(long time) {
+            return policy.fine(daysLateAt(time));
+        }
+    }
+}
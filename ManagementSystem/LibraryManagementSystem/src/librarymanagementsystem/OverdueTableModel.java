@@ -0,0 +1,75 @@
+package librarymanagementsystem;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import java.text.SimpleDateFormat;
+
+/**
+ * Shows the overdue loans of an {@link OverdueMonitor} with their current
+ * fines. The rows are a copy of the monitor's loans, taken on the EDT once
+ * a burst of changes is reported, so loans returned on other threads never
+ * leave the table with fewer rows than it was last told about, and a
+ * thousand returns copy the list once rather than a thousand times. Days
+ * late are read from the clock, and repainted every minute since they keep
+ * growing after a fine stops changing.
+ */
+class OverdueTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"Transaction ID", "Book", "Member", "Due Date", "Days Late", "Fine"};
+    private static final int REPAINT_MILLIS = 60_000;
+
+    private final LibraryRepository library;
+    private final OverdueMonitor monitor;
+    private final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd"); // Used on the EDT only
+    private OverdueMonitor.Loan[] rows;
+    private boolean refreshPosted;
+
+    public OverdueTableModel(LibraryRepository library, OverdueMonitor monitor) {
+        this.library = library;
+        this.monitor = monitor;
+        rows = monitor.overdueLoans();
+        monitor.addChangeListener(e -> {
+            if (!refreshPosted) {
+                refreshPosted = true;
+                SwingUtilities.invokeLater(this::refresh);
+            }
+        });
+        new Timer(REPAINT_MILLIS, e -> {
+            if (getRowCount() > 0) {
+                fireTableRowsUpdated(0, getRowCount() - 1);
+            }
+        }).start();
+    }
+
+    private void refresh() {
+        refreshPosted = false;
+        rows = monitor.overdueLoans();
+        fireTableDataChanged();
+    }
+
+    @Override public int getRowCount() { return rows.length; }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        OverdueMonitor.Loan loan = rows[row];
+        Transaction t = loan.getTransaction();
+        switch (column) {
+            case 0:
+                return t.getId();
+            case 1:
+                Book book = library.getBook(t.getBookId());
+                return book != null ? book.getTitle() : t.getBookId();
+            case 2:
+                Member member = library.getMember(t.getMemberId());
+                return member != null ? member.getName() : t.getMemberId();
+            case 3:
+                return sdf.format(t.getDueDate());
+            case 4:
+                return loan.daysLateAt(monitor.currentTime());
+            default:
+                return LoanPolicy.formatMoney(loan.getFine());
+        }
+    }
+}
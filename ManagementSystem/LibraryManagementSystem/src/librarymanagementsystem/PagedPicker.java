@@ -0,0 +1,164 @@
+package librarymanagementsystem;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * A type-ahead list showing the items that match its text field, a page at a
+ * time. Typing restarts a short timer; when it fires, the {@link Source}
+ * looks up the matches and the first page is read on a worker thread.
+ * Scrolling to the end of the list reads the next page the same way, so a
+ * picker opens in the same time however many items there are, and the EDT
+ * only ever adds a finished page to the list.
+ */
+class PagedPicker<T> extends JPanel {
+    private static final int DEBOUNCE_MS = 120;
+    private static final int PAGE = 50;
+
+    /** Finds the items matching a query. */
+    interface Source<T> {
+        /**
+         * Runs on a worker thread; the iterator is then read on worker threads
+         * too, a page at a time and never by two at once.
+         * @param cancelled Returns true once a newer query replaces this one.
+         */
+        Iterator<T> find(String query, BooleanSupplier cancelled);
+    }
+
+    private final Source<T> source;
+    private final JTextField field = new JTextField();
+    private final DefaultListModel<T> items = new DefaultListModel<>();
+    private final JList<T> list = new JList<>(items);
+    private final JLabel status = new JLabel(" ");
+    private final Timer timer;
+    private SwingWorker<List<T>, Void> worker; // Reading the current page
+    private Iterator<T> matches; // The rest after the shown pages; null while a page is read or once all are shown
+
+    public PagedPicker(Source<T> source, Function<T, String> label) {
+        super(new BorderLayout(0, 5));
+        this.source = source;
+        setOpaque(false);
+
+        field.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        field.setToolTipText("Type to search");
+        list.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        DefaultListCellRenderer renderer = new DefaultListCellRenderer();
+        list.setCellRenderer((l, value, index, selected, focused) ->
+            renderer.getListCellRendererComponent(l, label.apply(value), index, selected, focused));
+        status.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        status.setForeground(new Color(107, 114, 128));
+
+        JScrollPane scrollPane = new JScrollPane(list);
+        scrollPane.getViewport().addChangeListener(e -> {
+            if (matches != null && list.getLastVisibleIndex() >= items.getSize() - 1) {
+                nextPage();
+            }
+        });
+
+        add(field, BorderLayout.NORTH);
+        add(scrollPane, BorderLayout.CENTER);
+        add(status, BorderLayout.SOUTH);
+
+        timer = new Timer(DEBOUNCE_MS, e -> search());
+        timer.setRepeats(false);
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { timer.restart(); }
+            public void removeUpdate(DocumentEvent e) { timer.restart(); }
+            public void changedUpdate(DocumentEvent e) { timer.restart(); }
+        });
+        field.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                int step = e.getKeyCode() == KeyEvent.VK_DOWN ? 1 : e.getKeyCode() == KeyEvent.VK_UP ? -1 : 0;
+                if (step != 0 && !items.isEmpty()) {
+                    int index = Math.max(0, Math.min(items.getSize() - 1, list.getSelectedIndex() + step));
+                    list.setSelectedIndex(index);
+                    list.ensureIndexIsVisible(index);
+                }
+            }
+        });
+        search();
+    }
+
+    /** @return The selected item, or null. */
+    public T getSelected() {
+        return list.getSelectedValue();
+    }
+
+    private void search() {
+        if (worker != null) {
+            worker.cancel(true);
+        }
+        items.clear();
+        matches = null;
+        status.setText("Searching...");
+        String query = field.getText();
+        readPage(cancelled -> source.find(query, cancelled));
+    }
+
+    private void nextPage() {
+        Iterator<T> rest = matches;
+        matches = null; // Keeps the viewport listener out until the page is shown
+        status.setText(String.format("%,d shown, loading more...", items.getSize()));
+        readPage(cancelled -> rest);
+    }
+
+    /**
+     * Reads the next page from the matches that find returns on a worker
+     * thread, then shows it.
+     */
+    private void readPage(Function<BooleanSupplier, Iterator<T>> find) {
+        worker = new SwingWorker<List<T>, Void>() {
+            private Iterator<T> rest;
+
+            @Override
+            protected List<T> doInBackground() {
+                Iterator<T> page = find.apply(this::isCancelled);
+                List<T> found = new ArrayList<>(PAGE);
+                while (found.size() < PAGE && !isCancelled() && page.hasNext()) {
+                    found.add(page.next());
+                }
+                rest = page.hasNext() ? page : null;
+                return found;
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                List<T> found;
+                try {
+                    found = get();
+                } catch (Exception ex) {
+                    status.setText("Search failed: " + ex.getMessage());
+                    return;
+                }
+                showPage(found, rest);
+            }
+        };
+        worker.execute();
+    }
+
+    private void showPage(List<T> page, Iterator<T> rest) {
+        for (T item : page) {
+            items.addElement(item);
+        }
+        matches = rest;
+        if (list.getSelectedIndex() < 0 && !items.isEmpty()) {
+            list.setSelectedIndex(0);
+        }
+        status.setText(items.isEmpty() ? "No matches"
+            : String.format("%,d shown%s", items.getSize(), matches != null ? ", scroll for more" : ""));
+    }
+}
@@ -0,0 +1,77 @@
+package librarymanagementsystem;
+
+import java.util.function.IntFunction;
+
+/**
+ * Finds the row of a record by its id, like a {@code Map<String, Integer>}
+ * but without an entry object or boxed row per record: an open-addressing
+ * table holds the rows and their ids' hash codes, and the ids themselves are
+ * read from the records. Loading a library of millions of records so
+ * allocates two int arrays instead of millions of objects.
+ *
+ * Rows are only ever added. Not thread-safe; the repository's lock guards it.
+ */
+final class RowIndex {
+    private final IntFunction<String> ids; // The id of the record in a row
+    private int[] rows = new int[16];      // Row + 1, or 0 for an empty slot
+    private int[] hashes = new int[16];
+    private int size;
+
+    RowIndex(IntFunction<String> ids) {
+        this.ids = ids;
+    }
+
+    /** @return The row of the record with this id, or -1. */
+    int get(String id) {
+        int hash = hash(id);
+        int mask = rows.length - 1;
+        for (int slot = hash & mask; rows[slot] != 0; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && ids.apply(rows[slot] - 1).equals(id)) {
+                return rows[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    boolean contains(String id) {
+        return get(id) >= 0;
+    }
+
+    /** Adds a row whose id is not in the index yet. */
+    void add(String id, int row) {
+        ensureCapacity(size + 1);
+        insert(hash(id), row);
+        size++;
+    }
+
+    /** Makes room for this many rows, so the table does not grow step by step. */
+    void ensureCapacity(int count) {
+        if (count * 2L <= rows.length) {
+            return;
+        }
+        int capacity = Integer.highestOneBit(Math.max(count, 8) * 2 - 1) << 1; // At most half full
+        int[] oldRows = rows, oldHashes = hashes;
+        rows = new int[capacity];
+        hashes = new int[capacity];
+        for (int slot = 0; slot < oldRows.length; slot++) {
+            if (oldRows[slot] != 0) {
+                insert(oldHashes[slot], oldRows[slot] - 1);
+            }
+        }
+    }
+
+    private void insert(int hash, int row) {
+        int mask = rows.length - 1;
+        int slot = hash & mask;
+        while (rows[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        rows[slot] = row + 1;
+        hashes[slot] = hash;
+    }
+
+    private static int hash(String id) {
+        int h = id.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,26 @@
+package librarymanagementsystem;
+
+import java.util.Date;
+
+class Transaction {
+    private String id, bookId, memberId;
+    private Date issueDate, dueDate;
+    private volatile Date returnDate; // Changed under the repository's write lock, read anywhere
+    
+    public Transaction(String id, String bookId, String memberId, Date issueDate, Date dueDate, Date returnDate) {
+        this.id = id;
+        this.bookId = bookId;
+        this.memberId = memberId;
+        this.issueDate = issueDate;
+        this.dueDate = dueDate;
+        this.returnDate = returnDate;
+    }
+    
+    public String getId() { return id; }
+    public String getBookId() { return bookId; }
+    public String getMemberId() { return memberId; }
+    public Date getIssueDate() { return issueDate; }
+    public Date getDueDate() { return dueDate; }
+    public Date getReturnDate() { return returnDate; }
+    public void setReturnDate(Date returnDate) { this.returnDate = returnDate; }
+}
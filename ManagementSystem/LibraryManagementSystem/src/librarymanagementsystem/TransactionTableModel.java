@@ -0,0 +1,61 @@
+package librarymanagementsystem;
+
+import javax.swing.table.AbstractTableModel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Shows the repository's transactions with book titles and member names
+ * resolved through the id indexes. Dates are formatted when a cell is
+ * painted; issuing or returning a book updates one row, on the EDT through
+ * an {@link EdtLibraryListener}.
+ */
+class TransactionTableModel extends AbstractTableModel implements LibraryListener {
+    private static final String[] COLUMNS = {"Transaction ID", "Book", "Member", "Issue Date", "Due Date", "Return Date"};
+
+    private final LibraryRepository library;
+    private int transactionCount; // As of the last change delivered on the EDT
+    private final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd"); // Used on the EDT only
+
+    public TransactionTableModel(LibraryRepository library) {
+        this.library = library;
+        EdtLibraryListener.register(library, this, () -> transactionCount = library.transactionCount());
+    }
+
+    @Override public int getRowCount() { return transactionCount; }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Transaction t = library.transactionAt(row);
+        switch (column) {
+            case 0:
+                return t.getId();
+            case 1:
+                Book book = library.getBook(t.getBookId());
+                return book != null ? book.getTitle() : t.getBookId();
+            case 2:
+                Member member = library.getMember(t.getMemberId());
+                return member != null ? member.getName() : t.getMemberId();
+            case 3:
+                return format(t.getIssueDate());
+            case 4:
+                return t.getDueDate() != null ? format(t.getDueDate()) : "";
+            default:
+                return t.getReturnDate() != null ? format(t.getReturnDate()) : "Not Returned";
+        }
+    }
+
+    private String format(Date date) {
+        return sdf.format(date);
+    }
+
+    @Override
+    public void transactionAdded(int row) {
+        transactionCount = row + 1;
+        fireTableRowsInserted(row, row);
+    }
+
+    @Override public void transactionChanged(int row) { fireTableRowsUpdated(row, row); }
+}
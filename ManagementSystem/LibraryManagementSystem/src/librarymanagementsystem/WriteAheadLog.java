@@ -0,0 +1,333 @@
+package librarymanagementsystem;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of library mutations, split into segment files named after
+ * the sequence number of their first record.
+ *
+ * Each record is framed as [length][CRC-32][sequence number][type][body].
+ * A single writer thread drains every record queued since its last write,
+ * writes them together and forces them to disk once (group commit), so many
+ * callers waiting in {@link #commit} share one fsync.
+ *
+ * Reading stops at the first torn or corrupt record of a segment, e.g. after
+ * a crash during a write, and cuts the segment there. If records are lost
+ * that way before a later segment, or any record after the snapshot is
+ * missing, the replay fails rather than apply records whose predecessors
+ * are lost.
+ */
+class WriteAheadLog implements Closeable {
+    private static final String PREFIX = "library-";
+    private static final String SUFFIX = ".wal";
+    private static final int HEADER = 8; // length + CRC
+    private static final int READ_BUFFER = 1 << 20;
+
+    /** A record read back from the log. */
+    static final class Record {
+        final long seq;
+        final byte type;
+        final DataInputStream body;
+
+        Record(long seq, byte type, DataInputStream body) {
+            this.seq = seq;
+            this.type = type;
+            this.body = body;
+        }
+    }
+
+    // Queue entry that starts a new segment
+    private static final class Rotate {
+        final long firstSeq;
+
+        Rotate(long firstSeq) {
+            this.firstSeq = firstSeq;
+        }
+    }
+
+    private final Path dir;
+    private final Thread writer;
+    private final ArrayDeque<Object> queue = new ArrayDeque<>(); // Framed records and Rotate markers
+    private FileChannel segment; // Used by the writer thread only
+    private long nextSeq;
+    private long durableSeq;
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * Starts a new segment in dir; the first record gets sequence number firstSeq.
+     */
+    public WriteAheadLog(Path dir, long firstSeq) throws IOException {
+        this.dir = dir;
+        this.nextSeq = firstSeq;
+        this.durableSeq = firstSeq - 1;
+        this.segment = openSegment(firstSeq);
+        writer = new Thread(this::writeLoop, "library-wal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private FileChannel openSegment(long firstSeq) throws IOException {
+        return FileChannel.open(segmentFile(dir, firstSeq), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // --- Writing ---
+
+    /**
+     * Appends a record and waits until it is on disk.
+     * @return Its sequence number.
+     */
+    public long commit(byte type, byte[] body) throws IOException {
+        long seq = append(type, body);
+        awaitDurable(seq);
+        return seq;
+    }
+
+    /**
+     * Queues a record without waiting; see {@link #awaitDurable}.
+     * @return Its sequence number.
+     */
+    public synchronized long append(byte type, byte[] body) throws IOException {
+        if (closed) {
+            throw new IOException("The log is closed");
+        }
+        long seq = nextSeq++;
+        ByteBuffer frame = ByteBuffer.allocate(HEADER + 9 + body.length);
+        frame.position(HEADER);
+        frame.putLong(seq).put(type).put(body);
+        CRC32 crc = new CRC32();
+        crc.update(frame.array(), HEADER, frame.capacity() - HEADER);
+        frame.putInt(0, frame.capacity() - HEADER).putInt(4, (int) crc.getValue());
+        frame.rewind();
+        queue.add(frame);
+        notifyAll();
+        return seq;
+    }
+
+    /**
+     * Waits until every record up to seq is on disk.
+     */
+    public synchronized void awaitDurable(long seq) throws IOException {
+        while (durableSeq < seq && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the log");
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Ends the current segment; later records go to a new one.
+     * @return The sequence number of the first record in the new segment.
+     */
+    public synchronized long rotate() {
+        queue.add(new Rotate(nextSeq));
+        notifyAll();
+        return nextSeq;
+    }
+
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>();
+        while (true) {
+            long lastSeq;
+            synchronized (this) {
+                while (queue.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+                if (queue.isEmpty()) {
+                    return; // Closed and drained
+                }
+                batch.addAll(queue);
+                queue.clear();
+                lastSeq = nextSeq - 1;
+            }
+            try {
+                for (Object entry : batch) {
+                    if (entry instanceof Rotate) {
+                        segment.force(false);
+                        segment.close();
+                        segment = openSegment(((Rotate) entry).firstSeq);
+                    } else {
+                        ByteBuffer frame = (ByteBuffer) entry;
+                        while (frame.hasRemaining()) {
+                            segment.write(frame);
+                        }
+                    }
+                }
+                segment.force(false);
+                synchronized (this) {
+                    durableSeq = Math.max(durableSeq, lastSeq);
+                    notifyAll();
+                }
+            } catch (IOException ex) {
+                synchronized (this) {
+                    failure = ex;
+                    notifyAll();
+                }
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes everything queued and closes the current segment.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        segment.close();
+        synchronized (this) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    // --- Reading ---
+
+    /**
+     * @return The first sequence numbers of the segments in dir, in order.
+     */
+    static List<Long> segments(Path dir) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (NumberFormatException ex) {
+                    // Not a segment
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Deletes the segments that start before firstSeq, e.g. once a snapshot covers them.
+     */
+    static void deleteBefore(Path dir, long firstSeq) throws IOException {
+        for (long start : segments(dir)) {
+            if (start < firstSeq) {
+                Files.deleteIfExists(segmentFile(dir, start));
+            }
+        }
+    }
+
+    /**
+     * Reads every intact record after afterSeq, oldest first. Segments are
+     * read rather than mapped, so a torn tail can be cut off on any platform.
+     * @return The highest sequence number seen, or afterSeq if none.
+     * @throws IOException If a record after afterSeq is damaged or missing
+     *                     and later records exist.
+     */
+    static long replay(Path dir, long afterSeq, RecordHandler handler) throws IOException {
+        long lastSeq = afterSeq;
+        ByteBuffer data = ByteBuffer.allocate(READ_BUFFER);
+        List<Long> segments = segments(dir);
+        for (int i = 0; i < segments.size(); i++) {
+            Path file = segmentFile(dir, segments.get(i));
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = in.size();
+                data.clear().flip();
+                long position = 0; // Of the next record
+                CRC32 crc = new CRC32();
+                while (position + HEADER <= size) {
+                    data = fill(in, data, HEADER);
+                    int length = data.getInt();
+                    int checksum = data.getInt();
+                    if (length < 9 || position + HEADER + length > size) {
+                        break; // Torn write
+                    }
+                    data = fill(in, data, length);
+                    byte[] payload = new byte[length];
+                    data.get(payload);
+                    crc.reset();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != checksum) {
+                        break; // Corrupt record
+                    }
+                    DataInputStream body = new DataInputStream(new ByteArrayInputStream(payload));
+                    long seq = body.readLong();
+                    byte type = body.readByte();
+                    if (seq > afterSeq) {
+                        if (seq != lastSeq + 1) {
+                            throw new IOException("Log record " + seq + " follows record " + lastSeq
+                                + "; the records between are missing");
+                        }
+                        handler.apply(new Record(seq, type, body));
+                        lastSeq = seq;
+                    }
+                    position += HEADER + length;
+                }
+                if (position < size) {
+                    if (i + 1 < segments.size() && segments.get(i + 1) > lastSeq + 1) {
+                        throw new IOException("Log segment " + file.getFileName() + " is damaged at byte " + position
+                            + "; records " + (lastSeq + 1) + " to " + (segments.get(i + 1) - 1) + " are lost");
+                    }
+                    in.truncate(position);
+                }
+            }
+        }
+        return lastSeq;
+    }
+
+    private static Path segmentFile(Path dir, long firstSeq) {
+        return dir.resolve(String.format("%s%019d%s", PREFIX, firstSeq, SUFFIX));
+    }
+
+    /**
+     * Reads from in until buffer has at least n unread bytes.
+     * @return buffer, or a larger one for a long record, ready to read.
+     */
+    private static ByteBuffer fill(FileChannel in, ByteBuffer buffer, int n) throws IOException {
+        if (buffer.remaining() >= n) {
+            return buffer;
+        }
+        if (buffer.capacity() < n) {
+            buffer = ByteBuffer.allocate(n).put(buffer);
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < n && in.read(buffer) >= 0) {
+            // Keep reading
+        }
+        buffer.flip();
+        if (buffer.remaining() < n) {
+            throw new EOFException("Log segment shrank while being read");
+        }
+        return buffer;
+    }
+
+    /** Applies a record read back from the log. */
+    interface RecordHandler {
+        void apply(Record record) throws IOException;
+    }
+}
@@ -0,0 +1,185 @@
+package librarymanagementsystem;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Stress test for concurrent circulation, run with
+ * {@code ant stress -Dstress.args="[desks] [operations per desk]"}: several desk threads issue
+ * and return random books of one small library as fast as they can, saving
+ * to a temporary data directory. Afterwards the books, loans, counters and
+ * listener events must agree with each other and with the successful
+ * operations, and the saved library must load back the same.
+ */
+final class CirculationStress {
+    private static final int BOOKS = 200;
+    private static final int MEMBERS = 50;
+
+    private CirculationStress() {}
+
+    public static void main(String[] args) throws Exception {
+        int desks = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        System.exit(run(desks, operations) ? 0 : 1);
+    }
+
+    /** @return Whether every check passed. */
+    static boolean run(int desks, int operations) throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("library-stress");
+        try {
+            LibraryRepository library = new LibraryRepository();
+            LibraryStore store = LibraryStore.open(dir, library);
+            for (int i = 0; i < BOOKS; i++) {
+                library.addBook(new Book("B" + i, "Book " + i, "Author " + i % 10, "Category " + i % 5, true));
+            }
+            for (int i = 0; i < MEMBERS; i++) {
+                library.addMember(new Member("M" + i, "Member " + i, "m" + i + "@example.com", "555-" + i));
+            }
+            Events events = new Events();
+            library.addListener(events);
+
+            LongAdder issued = new LongAdder(), returned = new LongAdder(), conflicts = new LongAdder();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int d = 0; d < desks; d++) {
+                Thread desk = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        start.await();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    for (int i = 0; i < operations; i++) {
+                        String bookId = "B" + random.nextInt(BOOKS);
+                        try {
+                            if (random.nextBoolean()) {
+                                library.issueBook(bookId, "M" + random.nextInt(MEMBERS), new Date());
+                                issued.increment();
+                            } else {
+                                // Another desk may return it first
+                                Transaction loan = library.getOpenLoan(bookId);
+                                if (loan != null) {
+                                    library.returnBook(loan.getId(), new Date());
+                                    returned.increment();
+                                }
+                            }
+                        } catch (IllegalStateException ex) {
+                            conflicts.increment();
+                        }
+                    }
+                }, "desk-" + d);
+                threads.add(desk);
+                desk.start();
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread desk : threads) {
+                desk.join();
+            }
+            long millis = (System.nanoTime() - begin) / 1_000_000;
+            store.close();
+
+            List<String> problems = new ArrayList<>();
+            check(library, problems);
+            expect(problems, "transactions", issued.sum(), library.transactionCount());
+            expect(problems, "returned transactions", returned.sum(),
+                library.transactionCount() - library.openLoanCount());
+            expect(problems, "transactionAdded events", issued.sum(), events.added.sum());
+            expect(problems, "transactionChanged events", returned.sum(), events.changed.sum());
+            if (events.overlapped.get()) {
+                problems.add("Listeners were called by two threads at once");
+            }
+
+            LibraryRepository reloaded = new LibraryRepository();
+            LibraryStore.open(dir, reloaded).close();
+            check(reloaded, problems);
+            expect(problems, "reloaded transactions", library.transactionCount(), reloaded.transactionCount());
+            expect(problems, "reloaded open loans", library.openLoanCount(), reloaded.openLoanCount());
+            for (Transaction transaction : library.getTransactions()) {
+                Transaction copy = reloaded.getTransaction(transaction.getId());
+                if (copy == null || !copy.getBookId().equals(transaction.getBookId())
+                        || (copy.getReturnDate() == null) != (transaction.getReturnDate() == null)) {
+                    problems.add("Transaction " + transaction.getId() + " did not reload the same");
+                }
+            }
+
+            System.out.printf("%d desks, %,d operations in %,d ms: %,d issued, %,d returned, %,d conflicts%n",
+                desks, (long) desks * operations, millis, issued.sum(), returned.sum(), conflicts.sum());
+            problems.stream().limit(20).forEach(problem -> System.out.println("FAILED: " + problem));
+            System.out.println(problems.isEmpty() ? "All checks passed" : problems.size() + " checks failed");
+            return problems.isEmpty();
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    // Every book is either available or on exactly one open loan, and the counters agree
+    private static void check(LibraryRepository library, List<String> problems) {
+        Map<String, Integer> openByBook = new HashMap<>();
+        long open = 0;
+        for (Transaction transaction : library.getTransactions()) {
+            if (library.getTransaction(transaction.getId()) != transaction) {
+                problems.add("Transaction ID " + transaction.getId() + " is not unique");
+            }
+            if (transaction.getReturnDate() == null) {
+                open++;
+                openByBook.merge(transaction.getBookId(), 1, Integer::sum);
+            }
+        }
+        long available = 0;
+        for (Book book : library.getBooks()) {
+            int loans = openByBook.getOrDefault(book.getId(), 0);
+            Transaction loan = library.getOpenLoan(book.getId());
+            if (loans > 1) {
+                problems.add(book.getId() + " is on " + loans + " open loans");
+            }
+            if (book.isAvailable() == (loans > 0) || (loan == null) != (loans == 0)) {
+                problems.add(book.getId() + " is " + (book.isAvailable() ? "available" : "issued")
+                    + " with " + loans + " open loans");
+            }
+            if (book.isAvailable()) {
+                available++;
+            }
+        }
+        long memberLoans = 0;
+        for (Member member : library.getMembers()) {
+            memberLoans += library.getOpenLoans(member.getId()).size();
+        }
+        expect(problems, "open loans counter", open, library.openLoanCount());
+        expect(problems, "open loans by member", open, memberLoans);
+        expect(problems, "available books counter", available, library.availableBookCount());
+    }
+
+    private static void expect(List<String> problems, String what, long expected, long actual) {
+        if (expected != actual) {
+            problems.add(what + ": expected " + expected + ", found " + actual);
+        }
+    }
+
+    /** Counts loan events and notices listeners being called concurrently. */
+    private static final class Events implements LibraryListener {
+        final LongAdder added = new LongAdder(), changed = new LongAdder();
+        final AtomicBoolean busy = new AtomicBoolean(), overlapped = new AtomicBoolean();
+
+        @Override public void transactionAdded(int row) { count(added); }
+        @Override public void transactionChanged(int row) { count(changed); }
+
+        private void count(LongAdder events) {
+            if (!busy.compareAndSet(false, true)) {
+                overlapped.set(true);
+                return;
+            }
+            events.increment();
+            Thread.onSpinWait();
+            busy.set(false);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package scientificcalc;
+
+import java.math.MathContext;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * CalculatorBenchmark
+ * JMH suite for the calculator engine: key dispatch on recorded keystroke
+ * streams, the arithmetic and scientific functions behind the keys,
+ * factorial and result formatting.
+ * Run with "ant bench" (see build.xml for the JMH jars it needs).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculatorBenchmark {
+
+    /**
+     * Keystroke streams as typed on the keypad, one key label per token.
+     * Each stream ends in "C" so it starts from a clear display every time.
+     */
+    private static final String[] STREAMS = {
+        // Everyday arithmetic with chained operators and corrections
+        "1 2 3 . 4 5 + 6 7 * 2 = BkSp 8 - 9 / 3 = C",
+        // Scientific keys on typed and computed operands
+        "3 0 sin + 6 0 cos = x^2 sqrt 1/x +/- 2 ln * e = C",
+        // Typed expression with parentheses and named functions
+        "( 2 + 3 ) * ( 4 - 1 ) / sin 3 0 ) = C",
+        // Long operands, powers and factorial
+        "9 8 7 6 5 4 3 2 1 x^y 2 = 1 0 ! - 1 2 3 4 5 6 % = C",
+    };
+
+    // Keys in all streams together; a constant because @OperationsPerInvocation needs one
+    static final int KEYS = 81;
+
+    /**
+     * A calculator with every key of the streams bound once, as the keypad does.
+     */
+    @State(Scope.Thread)
+    public static class KeypadState {
+        @Param({"double", "precision"})
+        public String mode;
+
+        CalculatorCore core;
+        String[] labels;
+        Runnable[] bound;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            core = new CalculatorCore();
+            if (mode.equals("precision")) {
+                core.setPrecision(new MathContext(34));
+            }
+            labels = String.join(" ", STREAMS).split(" ");
+            if (labels.length != KEYS) {
+                throw new IllegalStateException("KEYS must be " + labels.length);
+            }
+            bound = new Runnable[labels.length];
+            for (int i = 0; i < labels.length; i++) {
+                bound[i] = core.bind(labels[i]);
+            }
+        }
+    }
+
+    /** One key press through the pre-bound handlers, plus reading the display. */
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void boundKeys(KeypadState keypad, Blackhole blackhole) {
+        for (Runnable key : keypad.bound) {
+            key.run();
+            blackhole.consume(keypad.core.displayText());
+        }
+    }
+
+    /** One key press dispatched by its label, as scripted key streams do. */
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void pressByLabel(KeypadState keypad, Blackhole blackhole) {
+        for (String label : keypad.labels) {
+            keypad.core.press(label);
+            blackhole.consume(keypad.core.displayText());
+        }
+    }
+
+    /**
+     * A ring of operands drawn once per trial, so drawing costs nothing in the measurement.
+     */
+    public abstract static class Pool {
+        final double[] values = new double[1024];
+        int next;
+
+        double next() {
+            next = (next + 1) & (values.length - 1);
+            return values[next];
+        }
+    }
+
+    /**
+     * @return An operand spread over the ranges typed in practice, picked by i.
+     */
+    static double practice(Random random, int i) {
+        switch (i % 4) {
+            case 0: return random.nextInt(1000);                                // Whole numbers
+            case 1: return random.nextInt(100_000) / 100.0;                     // Money-like
+            case 2: return random.nextDouble() * 360;                           // Angles
+            default: return Math.pow(10, random.nextInt(30) - 15) * random.nextDouble(); // Extremes
+        }
+    }
+
+    /**
+     * Operands spread over the ranges typed in practice.
+     */
+    @State(Scope.Thread)
+    public static class Operands extends Pool {
+        @Setup(Level.Trial)
+        public void setUp() {
+            Random random = new Random(42);
+            for (int i = 0; i < values.length; i++) {
+                values[i] = practice(random, i);
+            }
+        }
+    }
+
+    /**
+     * An operator with right-hand operands in [0, 10), never 0 for "/".
+     */
+    @State(Scope.Thread)
+    public static class Operation extends Pool {
+        @Param({"+", "-", "*", "/", "x^y"})
+        public String op;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Random random = new Random(43);
+            for (int i = 0; i < values.length; i++) {
+                double value;
+                do {
+                    value = practice(random, i) % 10;
+                } while (op.equals("/") && value == 0);
+                values[i] = value;
+            }
+        }
+    }
+
+    /**
+     * A function with operands in its domain: integers 0 to 170 for "!",
+     * positive values below 100 for ln and 1/x, values in [0, 100) otherwise.
+     */
+    @State(Scope.Thread)
+    public static class Scientific extends Pool {
+        @Param({"sin", "tan", "sqrt", "ln", "x^2", "1/x", "!"})
+        public String command;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Random random = new Random(44);
+            boolean positive = command.equals("ln") || command.equals("1/x");
+            for (int i = 0; i < values.length; i++) {
+                double value;
+                if (command.equals("!")) {
+                    value = random.nextInt(171);
+                } else {
+                    do {
+                        value = practice(random, i) % 100;
+                    } while (positive && value <= 0);
+                }
+                values[i] = value;
+            }
+        }
+    }
+
+    @Benchmark
+    public double performOperation(Operands operands, Operation operation) {
+        return ScientificCalc.performOperation(operands.next(), operation.next(), operation.op);
+    }
+
+    @Benchmark
+    public double applyScientific(Scientific scientific) {
+        return ScientificCalc.applyScientific(scientific.command, scientific.next());
+    }
+
+    @State(Scope.Thread)
+    public static class Factorial {
+        @Param({"5", "20", "170"})
+        public long n;
+    }
+
+    @Benchmark
+    public double factorial(Factorial factorial) {
+        return ScientificCalc.factorial(factorial.n);
+    }
+
+    @Benchmark
+    public String formatResult(Operands operands) {
+        return ScientificCalc.formatResult(operands.next());
+    }
+}
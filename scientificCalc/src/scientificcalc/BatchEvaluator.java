@@ -0,0 +1,256 @@
+package scientificcalc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+/**
+ * BatchEvaluator
+ * Headless batch mode: evaluates one expression per input line and writes one
+ * result per output line, in input order.
+ *
+ * Files are memory-mapped window by window; standard input is read through a
+ * large channel buffer. Each window is cut into chunks at line boundaries and
+ * the chunks are evaluated in parallel on the common fork/join pool.
+ * Results are written with the shortest digits that round-trip exactly.
+ * Repeated expressions are parsed once, through the {@link ExpressionCache}.
+ */
+final class BatchEvaluator {
+
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8; // Largest mapping or buffer
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+    private final WritableByteChannel out;
+    private long evaluated;
+
+    private BatchEvaluator(WritableByteChannel out) {
+        this.out = out;
+    }
+
+    /**
+     * Runs a batch. Usage: --batch &lt;input file | -&gt; &lt;output file | -&gt;
+     * where "-" stands for standard input or output.
+     */
+    static void run(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: ScientificCalc --batch <input|-> <output|->");
+            System.exit(2);
+        }
+        String input = args[1];
+        String output = args[2];
+
+        WritableByteChannel out = output.equals("-")
+            ? Channels.newChannel(System.out)
+            : FileChannel.open(Path.of(output), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        BatchEvaluator batch = new BatchEvaluator(out);
+
+        long start = System.nanoTime();
+        try (out) {
+            if (input.equals("-")) {
+                batch.processStream(Channels.newChannel(System.in));
+            } else {
+                try (FileChannel in = FileChannel.open(Path.of(input), StandardOpenOption.READ)) {
+                    batch.processFile(in);
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Evaluated %d expressions in %.3f s (%.0f expressions/sec)%n",
+            batch.evaluated, seconds, batch.evaluated / Math.max(seconds, 1e-9));
+        System.err.println("Expression cache: " + ExpressionCache.global().statistics());
+    }
+
+    // --- Input ---
+
+    private void processFile(FileChannel in) throws IOException {
+        forEachWindow(in, this::processRegion);
+    }
+
+    private void processStream(ReadableByteChannel in) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WINDOW_SIZE);
+        boolean eof = false;
+        while (!eof) {
+            eof = in.read(buffer) < 0;
+            if (buffer.hasRemaining() && !eof) {
+                continue;
+            }
+            int filled = buffer.position();
+            int end = eof ? filled : lastLineEnd(buffer, filled);
+            if (end == 0 && !eof) {
+                ByteBuffer larger = ByteBuffer.allocateDirect(largerWindow(buffer.capacity(), -1));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+                continue;
+            }
+            processRegion(buffer, end);
+            // Keep the unfinished last line for the next read
+            buffer.limit(filled).position(end);
+            buffer.compact();
+        }
+    }
+
+    /**
+     * Receives the complete lines of one mapped window.
+     */
+    interface WindowHandler {
+        /** Handles the lines in window[0, end); end is just past a '\n' or at the end of the file. */
+        void process(ByteBuffer window, int end) throws IOException;
+    }
+
+    /**
+     * Memory-maps a file window by window, in file order, cutting each window
+     * after its last complete line; the rest is mapped again with the next one.
+     * A line longer than the window gets a larger window.
+     * @throws IOException If a line is too long to map.
+     */
+    static void forEachWindow(FileChannel in, WindowHandler handler) throws IOException {
+        long size = in.size();
+        long position = 0;
+        int window = WINDOW_SIZE;
+        while (position < size) {
+            int length = (int) Math.min(window, size - position);
+            ByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+            boolean last = position + length == size;
+            int end = last ? length : lastLineEnd(mapped, length);
+            if (end == 0) {
+                // A single line longer than the window: map a larger one
+                window = largerWindow(window, position);
+                continue;
+            }
+            handler.process(mapped, end);
+            position += end;
+        }
+    }
+
+    /**
+     * @return Twice window, at most the largest size that can be mapped.
+     * @param position Where the line starts, or -1 if unknown; for the error message.
+     * @throws IOException If window already has that size: the line is too long.
+     */
+    static int largerWindow(int window, long position) throws IOException {
+        if (window >= MAX_WINDOW_SIZE) {
+            throw new IOException("Line too long" + (position >= 0 ? " at byte " + position : "")
+                + ": lines must be shorter than " + MAX_WINDOW_SIZE + " bytes");
+        }
+        return (int) Math.min(2L * window, MAX_WINDOW_SIZE);
+    }
+
+    /**
+     * @return The offset just past the last '\n' before limit, or 0 if none.
+     */
+    static int lastLineEnd(ByteBuffer buffer, int limit) {
+        for (int i = limit - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Cuts buffer[0, end) into chunks of whole lines for parallel processing:
+     * enough to keep every core busy, but none smaller than 64KB.
+     * @return The chunk boundaries; chunk i is [bounds[i], bounds[i + 1]).
+     */
+    static int[] lineChunks(ByteBuffer buffer, int end) {
+        int chunks = Math.max(1, Math.min(end / MIN_CHUNK_SIZE,
+            Runtime.getRuntime().availableProcessors() * 4));
+        int[] bounds = new int[chunks + 1];
+        bounds[chunks] = end;
+        for (int i = 1; i < chunks; i++) {
+            int cut = Math.max(bounds[i - 1], (int) ((long) end * i / chunks));
+            while (cut < end && buffer.get(cut - 1) != '\n') {
+                cut++;
+            }
+            bounds[i] = cut;
+        }
+        return bounds;
+    }
+
+    // --- Evaluation ---
+
+    /**
+     * Evaluates the complete lines in buffer[0, end) in parallel and writes the
+     * results in order.
+     */
+    private void processRegion(ByteBuffer buffer, int end) throws IOException {
+        int[] bounds = lineChunks(buffer, end);
+        int chunks = bounds.length - 1;
+
+        ChunkResult[] results = IntStream.range(0, chunks).parallel()
+            .mapToObj(i -> evaluateChunk(buffer, bounds[i], bounds[i + 1]))
+            .toArray(ChunkResult[]::new);
+
+        for (ChunkResult result : results) {
+            ByteBuffer bytes = ByteBuffer.wrap(result.output);
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            evaluated += result.count;
+        }
+    }
+
+    private static ChunkResult evaluateChunk(ByteBuffer buffer, int from, int to) {
+        byte[] input = new byte[to - from];
+        buffer.get(from, input);
+        StringBuilder output = new StringBuilder(input.length);
+        char[] digits = new char[NumberFormatter.MAX_CHARS];
+        int count = 0;
+
+        int lineStart = 0;
+        while (lineStart < input.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < input.length && input[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int textEnd = lineEnd > lineStart && input[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            String line = new String(input, lineStart, textEnd - lineStart, StandardCharsets.UTF_8).trim();
+            if (!line.isEmpty()) {
+                appendResult(line, output, digits);
+                count++;
+            }
+            output.append('\n');
+            lineStart = lineEnd + 1;
+        }
+        return new ChunkResult(output.toString().getBytes(StandardCharsets.UTF_8), count);
+    }
+
+    /**
+     * Evaluates one expression and appends its result, or "Error".
+     * @param digits Scratch buffer of {@link NumberFormatter#MAX_CHARS} chars.
+     */
+    static void appendResult(String line, StringBuilder output, char[] digits) {
+        double value;
+        try {
+            value = ExpressionCache.global().evaluate(line);
+        } catch (RuntimeException ex) {
+            output.append("Error");
+            return;
+        }
+        if (Double.isFinite(value)) {
+            output.append(digits, 0, NumberFormatter.format(value, NumberFormatter.ROUND_TRIP_DIGITS, digits, 0));
+        } else {
+            output.append(ScientificCalc.formatResult(value));
+        }
+    }
+
+    private static final class ChunkResult {
+        final byte[] output;
+        final int count;
+
+        ChunkResult(byte[] output, int count) {
+            this.output = output;
+            this.count = count;
+        }
+    }
+}
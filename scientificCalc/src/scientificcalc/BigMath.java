@@ -0,0 +1,338 @@
+package scientificcalc;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * BigMath
+ * Arbitrary-precision counterparts of the calculator operations, used when
+ * precision mode is on. Results are rounded to the caller's MathContext;
+ * factorials are exact. Operations without an arbitrary-precision version
+ * run in double precision and keep only the double's shortest digits (at
+ * most 17), so they never show digits the double does not have.
+ */
+final class BigMath {
+
+    /** Factorials below this are served from a precomputed table. */
+    private static final int SMALL_LIMIT = 256;
+    private static final BigInteger[] SMALL_FACTORIALS = new BigInteger[SMALL_LIMIT];
+
+    /** Largest factorial argument accepted (the result has about 5.6 million digits). */
+    static final int MAX_FACTORIAL = 1_000_000;
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    // The most precise PI and e computed so far; larger precisions replace them
+    private static volatile BigDecimal pi = BigDecimal.ZERO;
+    private static volatile BigDecimal e = BigDecimal.ZERO;
+
+    static {
+        SMALL_FACTORIALS[0] = BigInteger.ONE;
+        for (int i = 1; i < SMALL_LIMIT; i++) {
+            SMALL_FACTORIALS[i] = SMALL_FACTORIALS[i - 1].multiply(BigInteger.valueOf(i));
+        }
+    }
+
+    private BigMath() {
+    }
+
+    /**
+     * Applies a binary operation with the semantics of its double
+     * {@link CalcFunction}, rounded to mc. Custom functions run in double precision.
+     */
+    static BigDecimal performOperation(BigDecimal num1, BigDecimal num2, CalcFunction op, MathContext mc) {
+        switch (op.name()) {
+            case "+": return num1.add(num2, mc);
+            case "-": return num1.subtract(num2, mc);
+            case "*": return num1.multiply(num2, mc);
+            case "/":
+                if (num2.signum() == 0) {
+                    throw new ArithmeticException("Division by zero");
+                }
+                return num1.divide(num2, mc);
+            case "x^y": return power(num1, num2, mc);
+            default:
+                return toBig(op.apply(num1.doubleValue(), num2.doubleValue()), mc);
+        }
+    }
+
+    /**
+     * Applies a unary function or constant with the semantics of its double
+     * {@link CalcFunction}. Algebraic functions and the constants PI and e are
+     * computed to full precision; transcendental functions (trigonometry,
+     * logarithms) and custom functions are computed in double precision.
+     */
+    static BigDecimal applyScientific(CalcFunction function, BigDecimal value, MathContext mc) {
+        switch (function.name()) {
+            case "sqrt":
+                if (value.signum() < 0) throw new ArithmeticException("Cannot take sqrt of negative");
+                return value.sqrt(mc);
+            case "x^2": return value.multiply(value, mc);
+            case "1/x":
+                if (value.signum() == 0) throw new ArithmeticException("Cannot divide by zero");
+                return BigDecimal.ONE.divide(value, mc);
+            case "%": return value.divide(HUNDRED, mc);
+            case "+/-": return value.negate();
+            case "!":
+                if (value.signum() < 0 || value.stripTrailingZeros().scale() > 0) {
+                    throw new ArithmeticException("Invalid input for !");
+                }
+                if (value.compareTo(BigDecimal.valueOf(MAX_FACTORIAL)) > 0) {
+                    throw new ArithmeticException("Input too large for !");
+                }
+                return new BigDecimal(factorial(value.intValueExact()));
+            case "PI": return pi(mc);
+            case "e": return e(mc);
+            default:
+                return toBig(function.arity() == 0 ? function.value() : function.apply(value.doubleValue()), mc);
+        }
+    }
+
+    private static BigDecimal power(BigDecimal base, BigDecimal exponent, MathContext mc) {
+        try {
+            int n = exponent.intValueExact();
+            if (Math.abs(n) <= 999_999_999) {
+                return base.pow(n, mc);
+            }
+        } catch (ArithmeticException notAnInt) {
+            // Fall through to double precision for fractional or huge exponents
+        }
+        return toBig(Math.pow(base.doubleValue(), exponent.doubleValue()), mc);
+    }
+
+    /**
+     * @return A double-precision result with its shortest round-trip digits,
+     *         rounded to mc if that is shorter.
+     */
+    static BigDecimal toBig(double result, MathContext mc) {
+        if (Double.isNaN(result) || Double.isInfinite(result)) {
+            throw new ArithmeticException("Result out of range");
+        }
+        return BigDecimal.valueOf(result).round(mc);
+    }
+
+    // --- Constants ---
+
+    /**
+     * @return PI rounded to mc, by Machin's formula
+     *         PI = 16 atan(1/5) - 4 atan(1/239).
+     */
+    static BigDecimal pi(MathContext mc) {
+        BigDecimal known = pi;
+        if (known.precision() < mc.getPrecision() + 2) {
+            MathContext work = new MathContext(mc.getPrecision() + 10);
+            known = arctanInverse(5, work).multiply(BigDecimal.valueOf(16))
+                .subtract(arctanInverse(239, work).multiply(BigDecimal.valueOf(4)), work);
+            pi = known;
+        }
+        return known.round(mc);
+    }
+
+    /** atan(1/x) = 1/x - 1/(3x^3) + 1/(5x^5) - ... */
+    private static BigDecimal arctanInverse(int x, MathContext work) {
+        BigDecimal power = BigDecimal.ONE.divide(BigDecimal.valueOf(x), work); // 1/x^(2k+1)
+        BigDecimal xSquared = BigDecimal.valueOf((long) x * x);
+        BigDecimal sum = power;
+        BigDecimal limit = BigDecimal.ONE.movePointLeft(work.getPrecision() + 2);
+        for (int k = 1; power.compareTo(limit) > 0; k++) {
+            power = power.divide(xSquared, work);
+            BigDecimal term = power.divide(BigDecimal.valueOf(2L * k + 1), work);
+            sum = (k & 1) == 1 ? sum.subtract(term) : sum.add(term);
+        }
+        return sum;
+    }
+
+    /**
+     * @return e rounded to mc, as the sum of 1/k!.
+     */
+    static BigDecimal e(MathContext mc) {
+        BigDecimal known = e;
+        if (known.precision() < mc.getPrecision() + 2) {
+            MathContext work = new MathContext(mc.getPrecision() + 10);
+            BigDecimal term = BigDecimal.ONE;
+            BigDecimal sum = BigDecimal.ONE;
+            BigDecimal limit = BigDecimal.ONE.movePointLeft(work.getPrecision() + 2);
+            for (int k = 1; term.compareTo(limit) > 0; k++) {
+                term = term.divide(BigDecimal.valueOf(k), work);
+                sum = sum.add(term);
+            }
+            known = sum.round(work);
+            e = known;
+        }
+        return known.round(mc);
+    }
+
+    // --- Factorial ---
+
+    /**
+     * Computes n! exactly with the prime-swing algorithm:
+     * n! = (n/2)!^2 * swing(n), where swing(n) is assembled from its prime
+     * factorization and multiplied by binary splitting. Powers of two are
+     * kept out of the products and applied as one final shift.
+     * @param n A non-negative integer.
+     * @return n!
+     */
+    static BigInteger factorial(int n) {
+        if (n < 0) {
+            throw new ArithmeticException("Invalid input for !");
+        }
+        if (n < SMALL_LIMIT) {
+            return SMALL_FACTORIALS[n];
+        }
+        int[] oddPrimes = oddPrimesUpTo(n);
+        // The exponent of 2 in n! is n - popcount(n)
+        return oddFactorial(n, oddPrimes).shiftLeft(n - Integer.bitCount(n));
+    }
+
+    /** The odd part of n!. */
+    private static BigInteger oddFactorial(int n, int[] oddPrimes) {
+        if (n < SMALL_LIMIT) {
+            BigInteger f = SMALL_FACTORIALS[n];
+            return f.shiftRight(f.getLowestSetBit());
+        }
+        BigInteger half = oddFactorial(n / 2, oddPrimes);
+        BigInteger swing = oddSwing(n, oddPrimes);
+        return half.parallelMultiply(half).parallelMultiply(swing);
+    }
+
+    /** The odd part of swing(n) = n! / (n/2)!^2. */
+    private static BigInteger oddSwing(int n, int[] oddPrimes) {
+        int sqrtN = (int) Math.sqrt(n);
+        long[] factors = new long[oddPrimes.length];
+        int count = 0;
+        for (int p : oddPrimes) {
+            if (p > n) {
+                break;
+            }
+            if (p <= sqrtN) {
+                // Exponent of p is the number of odd quotients n / p^k
+                long product = 1;
+                int q = n;
+                while ((q /= p) > 0) {
+                    if ((q & 1) == 1) {
+                        product *= p;
+                    }
+                }
+                if (product > 1) {
+                    factors[count++] = product;
+                }
+            } else if (((n / p) & 1) == 1) {
+                factors[count++] = p;
+            }
+        }
+        return product(factors, 0, count);
+    }
+
+    /** Multiplies factors[from, to) by binary splitting. */
+    private static BigInteger product(long[] factors, int from, int to) {
+        int length = to - from;
+        if (length == 0) {
+            return BigInteger.ONE;
+        }
+        if (length <= 16) {
+            BigInteger result = BigInteger.valueOf(factors[from]);
+            long pending = 1;
+            for (int i = from + 1; i < to; i++) {
+                // Pair up small factors in a long before touching BigInteger
+                if (factors[i] < (1L << 31) && pending < (1L << 31)) {
+                    pending *= factors[i];
+                } else {
+                    result = result.multiply(BigInteger.valueOf(pending));
+                    pending = factors[i];
+                }
+            }
+            return result.multiply(BigInteger.valueOf(pending));
+        }
+        int mid = (from + to) >>> 1;
+        return product(factors, from, mid).parallelMultiply(product(factors, mid, to));
+    }
+
+    /** Sieve of Eratosthenes over odd numbers. */
+    private static int[] oddPrimesUpTo(int n) {
+        boolean[] composite = new boolean[n / 2 + 1]; // index i stands for 2i + 1
+        int count = 0;
+        for (int i = 1; 2 * i + 1 <= n; i++) {
+            if (!composite[i]) {
+                count++;
+                long p = 2L * i + 1;
+                for (long m = p * p; m <= n; m += 2 * p) {
+                    composite[(int) (m / 2)] = true;
+                }
+            }
+        }
+        int[] primes = new int[count];
+        int k = 0;
+        for (int i = 1; 2 * i + 1 <= n; i++) {
+            if (!composite[i]) {
+                primes[k++] = 2 * i + 1;
+            }
+        }
+        return primes;
+    }
+
+    // --- Display ---
+
+    /**
+     * Rounds value to mc like {@link BigDecimal#round}, in microseconds even
+     * for exact values with millions of digits such as 100000!: the rounding
+     * is read from the leading bits times a power of two computed to a few
+     * more digits than mc, and only a value too close to halfway for that to
+     * decide is rounded exactly.
+     */
+    static BigDecimal round(BigDecimal value, MathContext mc) {
+        BigInteger unscaled = value.unscaledValue().abs();
+        int digits = mc.getPrecision();
+        int kept = (digits + 20) * 4; // Bits, a little over 3.33 per digit
+        int shift = unscaled.bitLength() - kept;
+        RoundingMode mode = mc.getRoundingMode();
+        if (digits == 0 || shift < 64 || mode != RoundingMode.HALF_UP && mode != RoundingMode.HALF_EVEN
+                && mode != RoundingMode.HALF_DOWN) {
+            return value.round(mc);
+        }
+        MathContext work = new MathContext(digits + 10);
+        // |value| = (top + fraction) * 2^shift * 10^-scale with 0 <= fraction < 1
+        BigDecimal top = new BigDecimal(unscaled.shiftRight(shift));
+        BigDecimal approx = top.multiply(BigDecimal.valueOf(2).pow(shift, work), work)
+            .scaleByPowerOfTen(-value.scale());
+        // A few units of the working precision from halfway between two results could go either way
+        BigDecimal below = approx.round(new MathContext(digits, RoundingMode.DOWN));
+        BigDecimal step = below.ulp();
+        BigDecimal halfway = below.add(step.divide(BigDecimal.valueOf(2)));
+        BigDecimal slack = approx.ulp().multiply(BigDecimal.TEN);
+        if (approx.subtract(halfway).abs().compareTo(slack) <= 0) {
+            return value.round(mc);
+        }
+        BigDecimal result = approx.round(mc);
+        return value.signum() < 0 ? result.negate() : result;
+    }
+
+    /**
+     * Formats a value for the display with every digit of mc, without
+     * trailing zeros. Scientific notation is used only when the leading digit
+     * is beyond both 10^-8 and the last digit of mc (or 10^31 if that is
+     * larger). Exact values with more digits than mc, such as 100000!, cost
+     * one rounding instead of rendering every digit.
+     */
+    static String format(BigDecimal value, MathContext mc) {
+        if (value.signum() == 0) {
+            return "0";
+        }
+        BigDecimal rounded = round(value, mc).stripTrailingZeros();
+        int exponent = rounded.precision() - rounded.scale() - 1; // Power of ten of the leading digit
+        if (exponent >= -8 && exponent < Math.max(32, mc.getPrecision())) {
+            return rounded.toPlainString();
+        }
+        String digits = rounded.unscaledValue().abs().toString();
+        StringBuilder text = new StringBuilder(digits.length() + 12);
+        if (rounded.signum() < 0) {
+            text.append('-');
+        }
+        text.append(digits.charAt(0));
+        if (digits.length() > 1) {
+            text.append('.').append(digits, 1, digits.length());
+        }
+        return text.append('E').append(exponent).toString();
+    }
+}
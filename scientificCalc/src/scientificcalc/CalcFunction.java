@@ -0,0 +1,107 @@
+package scientificcalc;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * CalcFunction
+ * A constant, unary function or binary operator known to the calculator,
+ * registered under a name in a {@link FunctionRegistry}. The same object
+ * serves the keypad and expressions, so applying it is a single call.
+ *
+ * Implementations must be pure: expressions fold calls with constant
+ * arguments at compile time.
+ */
+public final class CalcFunction {
+
+    private final String name;
+    private final int arity;
+    private final double constant;
+    private final DoubleUnaryOperator unary;
+    private final DoubleBinaryOperator binary;
+    private final String kernel;
+
+    private CalcFunction(String name, int arity, double constant,
+                         DoubleUnaryOperator unary, DoubleBinaryOperator binary, String kernel) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Function name must not be empty");
+        }
+        this.name = name;
+        this.arity = arity;
+        this.constant = constant;
+        this.unary = unary;
+        this.binary = binary;
+        this.kernel = kernel;
+    }
+
+    /**
+     * A named constant such as PI.
+     */
+    public static CalcFunction constant(String name, double value) {
+        return new CalcFunction(name, 0, value, null, null, null);
+    }
+
+    /**
+     * A function of one argument, e.g. sin or a custom "vat(x)".
+     */
+    public static CalcFunction unary(String name, DoubleUnaryOperator function) {
+        return new CalcFunction(name, 1, 0.0, function, null, null);
+    }
+
+    /**
+     * A function of two arguments, e.g. x^y or a custom "fv(rate, years)".
+     */
+    public static CalcFunction binary(String name, DoubleBinaryOperator function) {
+        return new CalcFunction(name, 2, 0.0, null, function, null);
+    }
+
+    /**
+     * A built-in backed by the static method of the same signature named
+     * kernel in {@link MathKernels}.
+     */
+    static CalcFunction builtin(String name, String kernel, DoubleUnaryOperator function) {
+        return new CalcFunction(name, 1, 0.0, function, null, kernel);
+    }
+
+    static CalcFunction builtin(String name, String kernel, DoubleBinaryOperator function) {
+        return new CalcFunction(name, 2, 0.0, null, function, kernel);
+    }
+
+    /**
+     * @return The key label or expression name, e.g. "sin", "x^y", "PI".
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return 0 for constants, 1 for unary functions, 2 for binary ones.
+     */
+    public int arity() {
+        return arity;
+    }
+
+    /**
+     * @return The MathKernels method implementing a built-in, or null.
+     */
+    String kernel() {
+        return kernel;
+    }
+
+    double value() {
+        return constant;
+    }
+
+    double apply(double value) {
+        return unary.applyAsDouble(value);
+    }
+
+    double apply(double left, double right) {
+        return binary.applyAsDouble(left, right);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
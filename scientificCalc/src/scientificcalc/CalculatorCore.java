@@ -0,0 +1,645 @@
+package scientificcalc;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * CalculatorCore
+ * The calculator's key-driven state machine, independent of Swing so it can
+ * be embedded or driven from scripted key streams.
+ *
+ * The operand being typed lives in an {@link InputAccumulator}; results are
+ * kept as numbers. Text is rendered only when {@link #displayText()} is
+ * called, so pressing keys does no parsing or string building.
+ *
+ * Keys are bound once with {@link #bind(String)}: the label is resolved to
+ * its handler and {@link CalcFunction} up front, so pressing a bound key is
+ * a single call with no string matching.
+ *
+ * Each completed calculation is reported as an expression and its result
+ * to the listener set with {@link #setHistoryListener(BiConsumer)}.
+ */
+public final class CalculatorCore {
+
+    private static final Runnable IGNORED_KEY = () -> { };
+
+    private final FunctionRegistry registry;
+    private final ExpressionCache expressions; // Parsed forms of entered expressions
+    private final Map<String, Runnable> boundKeys = new HashMap<>(); // Cache for press(String)
+
+    // --- Calculator State Variables ---
+    private final InputAccumulator input = new InputAccumulator();
+    private boolean typing = false;         // True while a number is being typed
+    private double shownValue = 0.0;        // The displayed result when not typing
+    private double currentResult = 0.0;
+    private CalcFunction lastOperation = null; // Pending binary operation
+    private boolean error = false;          // True if the display shows "Error"
+
+    // Expression entry, active once '(' is pressed: keys are appended as text
+    // and '=' compiles and evaluates the whole expression.
+    private final StringBuilder expression = new StringBuilder();
+    private boolean expressionMode = false;
+
+    // Precision mode: when set, arithmetic runs in BigDecimal rounded to this context
+    private MathContext precision = null;
+    private BigDecimal bigResult = BigDecimal.ZERO;
+    private BigDecimal shownBig = BigDecimal.ZERO;
+    private BigDecimal roundedFrom = null;  // Last value rounded by round(BigDecimal)
+    private BigDecimal rounded = BigDecimal.ZERO;
+    private BigDecimal formattedBig = null; // Last value rendered by formatResult(BigDecimal)
+    private String formattedBigText = "";
+
+    // History, recorded only while a listener is set: the calculation typed
+    // so far, e.g. "5+3*", and the one just completed
+    private final StringBuilder calculation = new StringBuilder();
+    private int operatorStart = 0;           // Where the trailing operator starts in calculation
+    private String completed = null;
+    private BiConsumer<String, String> historyListener = null;
+
+    // Rendered display, rebuilt lazily after a state change
+    private final char[] inputText = new char[InputAccumulator.MAX_DIGITS * 2 + 2];
+    private String displayText = "0";
+    private boolean displayStale = false;
+
+    /**
+     * Creates a calculator using the global function registry.
+     */
+    public CalculatorCore() {
+        this(FunctionRegistry.global());
+    }
+
+    /**
+     * Creates a calculator whose function keys resolve in the given registry.
+     */
+    public CalculatorCore(FunctionRegistry registry) {
+        this.registry = registry;
+        this.expressions = registry == FunctionRegistry.global()
+            ? ExpressionCache.global()
+            : new ExpressionCache(registry, ExpressionCache.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Resolves a key label once and returns the handler to run on each press.
+     * @param label A button label: a digit, ".", "C", "BkSp", "=", "(", ")"
+     *              or the name of a registered function (e.g. "+", "sin", "PI").
+     * @throws IllegalArgumentException If the label is unknown.
+     */
+    public Runnable bind(String label) {
+        Runnable action = action(label);
+        String token = expressionToken(label);
+        boolean opensExpression = label.equals("(");
+        return () -> {
+            if (expressionMode || opensExpression) {
+                handleExpressionKey(label, token);
+            } else {
+                action.run();
+            }
+            displayStale = true;
+            if (completed != null) {
+                String done = completed;
+                completed = null;
+                if (historyListener != null) {
+                    historyListener.accept(done, displayText());
+                }
+            }
+        };
+    }
+
+    /**
+     * Sets the listener that receives each completed calculation as its
+     * expression (e.g. "5+3*2" or "sin(30)") and the displayed result.
+     * @param listener The listener, or null for none.
+     */
+    public void setHistoryListener(BiConsumer<String, String> listener) {
+        historyListener = listener;
+    }
+
+    /**
+     * Puts an expression (e.g. one taken from the history) into the display
+     * for editing; '=' evaluates it. A pending operation is kept, so
+     * "5 +" followed by inserting "2*3" gives "5+(2*3)".
+     */
+    public void insertExpression(String text) {
+        if (!expressionMode) {
+            expression.setLength(0);
+            if (lastOperation != null) {
+                expression.append(pendingText()).append(expressionToken(lastOperation.name()));
+            }
+            typing = false;
+            expressionMode = true;
+        }
+        boolean plainNumber = text.chars().allMatch(c -> Character.isDigit(c) || c == '.');
+        if (expression.length() > 0 && !plainNumber) {
+            expression.append('(').append(text).append(')');
+        } else {
+            expression.append(text);
+        }
+        displayStale = true;
+    }
+
+    /**
+     * Handles one key, identified by its button label (e.g. "7", "+", "sin", "=").
+     * Unknown labels are ignored. Prefer {@link #bind(String)} for repeated presses.
+     */
+    public void press(String command) {
+        Runnable key = boundKeys.get(command);
+        if (key == null) {
+            try {
+                key = bind(command);
+            } catch (IllegalArgumentException unknown) {
+                key = IGNORED_KEY;
+            }
+            boundKeys.put(command, key);
+        }
+        key.run();
+    }
+
+    private Runnable action(String label) {
+        switch (label) {
+            case ".": return this::handleDecimal;
+            case "C": return this::clear;
+            case "BkSp": return this::backspace;
+            case "=": return this::calculate;
+            case "(": return IGNORED_KEY; // Always handled as expression entry
+            case ")": return IGNORED_KEY; // A lone ')' has nothing to close
+            default:
+                if (label.length() == 1 && Character.isDigit(label.charAt(0))) {
+                    int digit = label.charAt(0) - '0';
+                    return () -> handleNumber(digit);
+                }
+                CalcFunction function = registry.require(label);
+                if (function.arity() == 2) {
+                    return () -> handleArithmetic(function);
+                }
+                return () -> handleScientific(function);
+        }
+    }
+
+    /**
+     * @return The text the display should show.
+     */
+    public String displayText() {
+        if (displayStale) {
+            displayText = renderDisplay();
+            displayStale = false;
+        }
+        return displayText;
+    }
+
+    /**
+     * @return The number currently on the display (NaN while it shows an error).
+     */
+    public double value() {
+        if (error) {
+            return Double.NaN;
+        }
+        if (typing) {
+            return input.value();
+        }
+        return precision != null ? shownBig.doubleValue() : shownValue;
+    }
+
+    /**
+     * @return The precision mode context, or null in double mode.
+     */
+    public MathContext getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Switches precision mode on (with the given context) or off (null).
+     * The displayed value and the running result are carried over.
+     */
+    public void setPrecision(MathContext mc) {
+        if (mc == null) {
+            if (precision != null) {
+                currentResult = bigResult.doubleValue();
+                shownValue = shownBig.doubleValue();
+            }
+        } else if (precision == null) {
+            bigResult = Double.isFinite(currentResult) ? BigMath.toBig(currentResult, mc) : BigDecimal.ZERO;
+            shownBig = Double.isFinite(shownValue) ? BigMath.toBig(shownValue, mc) : BigDecimal.ZERO;
+        }
+        precision = mc;
+        roundedFrom = null; // Rounded and formatted to the old precision
+        formattedBig = null;
+        displayStale = true;
+    }
+
+    private String renderDisplay() {
+        if (expressionMode) {
+            return expression.toString();
+        }
+        if (error) {
+            return "Error";
+        }
+        if (typing) {
+            return new String(inputText, 0, input.render(inputText, 0));
+        }
+        return precision != null ? formatResult(shownBig) : ScientificCalc.formatResult(shownValue);
+    }
+
+    // --- Expression entry ---
+
+    /**
+     * Handles a key while entering a parenthesized expression. The first '('
+     * seeds the expression with any pending operation, e.g. "5 + (" becomes "5+(".
+     */
+    private void handleExpressionKey(String command, String token) {
+        if (!expressionMode) {
+            expression.setLength(0);
+            if (lastOperation != null) {
+                expression.append(pendingText()).append(expressionToken(lastOperation.name()));
+                if (typing) {
+                    expression.append(input).append('*');
+                }
+            } else if (typing) {
+                expression.append(input).append('*');
+            }
+            expressionMode = true;
+        }
+
+        switch (command) {
+            case "C":
+                expressionMode = false;
+                clear();
+                break;
+            case "BkSp":
+                if (expression.length() > 0) {
+                    expression.setLength(expression.length() - 1);
+                }
+                if (expression.length() == 0) {
+                    expressionMode = false;
+                    clear();
+                }
+                break;
+            case "=":
+                evaluateExpression();
+                break;
+            default:
+                // A unary key after an operand applies to it, e.g. "(4)" then sqrt gives "sqrt((4))"
+                CalcFunction function = registry.lookup(command);
+                int start = function != null && function.arity() == 1 ? lastOperandStart() : -1;
+                if (start >= 0) {
+                    String operand = expression.substring(start);
+                    expression.setLength(start);
+                    expression.append(describe(function, operand));
+                } else {
+                    expression.append(token);
+                }
+        }
+    }
+
+    /**
+     * @return Where the operand at the end of the expression starts: a number,
+     *         a constant, or a parenthesized group with any function name
+     *         before it; -1 if the expression ends in an operator or '('.
+     */
+    private int lastOperandStart() {
+        int i = expression.length();
+        if (i == 0) {
+            return -1;
+        }
+        char last = expression.charAt(i - 1);
+        if (last == ')') {
+            int depth = 0;
+            do {
+                char c = expression.charAt(--i);
+                if (c == ')') depth++;
+                else if (c == '(') depth--;
+            } while (depth > 0 && i > 0);
+            if (depth > 0) {
+                return -1;
+            }
+            while (i > 0 && Character.isLetter(expression.charAt(i - 1))) {
+                i--; // Function name, e.g. "sin(30)"
+            }
+            return i;
+        }
+        if (!Character.isLetterOrDigit(last) && last != '.') {
+            return -1;
+        }
+        while (i > 0 && (Character.isLetterOrDigit(expression.charAt(i - 1)) || expression.charAt(i - 1) == '.')) {
+            i--;
+        }
+        // The signed exponent of a number such as "2e-3"
+        if (i >= 3 && (expression.charAt(i - 1) == '-' || expression.charAt(i - 1) == '+')
+                && (expression.charAt(i - 2) == 'e' || expression.charAt(i - 2) == 'E')
+                && Character.isDigit(expression.charAt(i - 3))) {
+            i -= 2;
+            while (i > 0 && (Character.isDigit(expression.charAt(i - 1)) || expression.charAt(i - 1) == '.')) {
+                i--;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Maps a button label to the text it contributes to an expression.
+     */
+    private String expressionToken(String command) {
+        switch (command) {
+            case "x^y": return "^";
+            case "x^2": return "^2";
+            case "1/x": return "1/(";
+            case "+/-": return "-";
+            default:
+                // Named functions open a call, e.g. "sin("
+                CalcFunction function = registry.lookup(command);
+                boolean named = Character.isLetter(command.charAt(0));
+                return function != null && function.arity() > 0 && named ? command + "(" : command;
+        }
+    }
+
+    private void evaluateExpression() {
+        // Close any parentheses the user left open
+        int open = 0;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '(') open++;
+            else if (c == ')') open--;
+        }
+        for (; open > 0; open--) {
+            expression.append(')');
+        }
+
+        expressionMode = false;
+        lastOperation = null;
+        typing = false;
+        String text = expression.toString();
+        if (historyListener != null) {
+            completed = text;
+        }
+        try {
+            if (precision != null) {
+                // Evaluated over BigDecimal; the cached trees are folded in double precision
+                bigResult = ExpressionParser.parseExact(text, registry).evalBig(precision);
+                showResult();
+            } else {
+                double result = expressions.evaluate(text);
+                currentResult = result;
+                show(result);
+            }
+        } catch (RuntimeException ex) {
+            fail();
+        }
+    }
+
+    // --- Number entry ---
+
+    private void handleNumber(int digit) {
+        if (!typing || error) {
+            input.reset();
+            typing = true;
+            error = false;
+        }
+        input.appendDigit(digit);
+    }
+
+    private void handleDecimal() {
+        if (!typing || error) {
+            input.reset();
+            typing = true;
+            error = false;
+        }
+        input.appendPoint();
+    }
+
+    private void clear() {
+        input.reset();
+        typing = false;
+        error = false;
+        currentResult = 0.0;
+        bigResult = BigDecimal.ZERO;
+        lastOperation = null;
+        show(0.0);
+    }
+
+    private void backspace() {
+        if (error) {
+            clear();
+            return;
+        }
+        if (!typing || !input.backspace()) {
+            typing = false;
+            show(0.0);
+        }
+    }
+
+    // --- Operations ---
+
+    private void handleArithmetic(CalcFunction op) {
+        try {
+            if (lastOperation != null && typing) {
+                // Chained operation, e.g. "5 + 3 *": apply the pending one first
+                record(false);
+                if (historyListener != null) {
+                    calculation.insert(0, '(').append(')'); // Evaluated left to right
+                }
+                applyPending();
+            } else if (typing || lastOperation == null) {
+                // First number in a sequence, or a displayed result
+                record(true);
+                takeOperand();
+            } else if (historyListener != null) {
+                // An operator was pressed twice: the new one replaces it
+                calculation.setLength(operatorStart);
+            }
+            if (historyListener != null) {
+                operatorStart = calculation.length();
+                calculation.append(expressionToken(op.name()));
+            }
+
+            lastOperation = op;
+            typing = false;
+            showResult();
+
+        } catch (RuntimeException ex) {
+            fail();
+        }
+    }
+
+    private void calculate() {
+        if (lastOperation == null) {
+            // No operation is pending: keep showing the current number
+            if (typing) {
+                takeOperand();
+                showResult();
+            }
+            typing = false;
+            return;
+        }
+
+        try {
+            if (historyListener != null) {
+                completed = calculation.append(operandText()).toString();
+                calculation.setLength(0);
+            }
+            applyPending();
+            lastOperation = null; // Clear pending operation
+            typing = false;
+            showResult();
+
+        } catch (RuntimeException ex) {
+            fail();
+        }
+    }
+
+    private void handleScientific(CalcFunction function) {
+        try {
+            // Constants (PI, e) ignore the current display
+            boolean constant = function.arity() == 0;
+
+            // If an arithmetic operation is pending, clear it before unary function
+            lastOperation = null;
+            if (historyListener != null) {
+                completed = describe(function, constant ? "" : operandText());
+            }
+
+            if (precision != null) {
+                BigDecimal value = constant ? BigDecimal.ZERO : bigOperand();
+                bigResult = BigMath.applyScientific(function, value, precision);
+            } else {
+                currentResult = constant ? function.value() : function.apply(operand());
+            }
+
+            typing = false;
+            showResult();
+
+        } catch (RuntimeException ex) {
+            fail();
+        }
+    }
+
+    /**
+     * Adds the operand to the calculation being recorded for the history.
+     * @param first Whether it starts a new calculation.
+     */
+    private void record(boolean first) {
+        if (historyListener != null) {
+            if (first) {
+                calculation.setLength(0);
+            }
+            calculation.append(operandText());
+        }
+    }
+
+    /**
+     * @return The operand as shown: the typed digits or the displayed result.
+     */
+    private String operandText() {
+        if (typing) {
+            return new String(inputText, 0, input.render(inputText, 0));
+        }
+        return precision != null ? formatResult(shownBig) : ScientificCalc.formatResult(shownValue);
+    }
+
+    /**
+     * @return A unary function applied to operand as expression text, e.g. "sin(30)" or "5^2".
+     */
+    private String describe(CalcFunction function, String operand) {
+        if (function.arity() == 0) {
+            return function.name();
+        }
+        String token = expressionToken(function.name());
+        if (token.endsWith("(")) {
+            return token + operand + ")";
+        }
+        if (function.name().equals("+/-")) {
+            return "-(" + operand + ")";
+        }
+        return operand + token;
+    }
+
+    private double operand() {
+        return typing ? input.value() : shownValue;
+    }
+
+    private BigDecimal bigOperand() {
+        return typing ? input.bigValue() : shownBig;
+    }
+
+    /** currentResult = currentResult (lastOperation) operand */
+    private void applyPending() {
+        if (precision != null) {
+            bigResult = BigMath.performOperation(bigResult, bigOperand(), lastOperation, precision);
+        } else {
+            currentResult = lastOperation.apply(currentResult, operand());
+        }
+    }
+
+    /** currentResult = operand */
+    private void takeOperand() {
+        if (precision != null) {
+            bigResult = bigOperand();
+        } else {
+            currentResult = operand();
+        }
+    }
+
+    private void showResult() {
+        if (precision != null) {
+            shownBig = bigResult;
+        } else {
+            shownValue = currentResult;
+        }
+        error = false;
+    }
+
+    private void show(double value) {
+        shownValue = value;
+        if (precision != null) {
+            shownBig = toBig(value);
+        }
+        error = false;
+    }
+
+    private void fail() {
+        error = true;
+        typing = false;
+        lastOperation = null;
+        shownValue = 0.0;
+        shownBig = BigDecimal.ZERO;
+    }
+
+    private BigDecimal toBig(double value) {
+        return BigMath.toBig(value, precision);
+    }
+
+    /**
+     * @return The pending result as expression text, with all of its digits
+     *         in precision mode (exact ones such as 100000! at the precision).
+     */
+    private String pendingText() {
+        return precision != null ? round(bigResult).toString() : ScientificCalc.formatResult(currentResult);
+    }
+
+    /**
+     * Rounds a precision-mode value to the precision. The last rounding is
+     * cached, so that displaying a huge exact value (e.g. 100000!) and then
+     * continuing a calculation from it rounds it only once.
+     */
+    private BigDecimal round(BigDecimal value) {
+        if (value != roundedFrom) {
+            rounded = BigMath.round(value, precision);
+            roundedFrom = value;
+        }
+        return rounded;
+    }
+
+    /**
+     * Formats a precision-mode result to the precision. Huge values (e.g.
+     * 100000!) are rendered in scientific notation, and the text of the last
+     * value is cached so that repainting or re-reading it never renders the number again.
+     */
+    private String formatResult(BigDecimal result) {
+        if (result != formattedBig) {
+            formattedBigText = BigMath.format(round(result), precision);
+            formattedBig = result;
+        }
+        return formattedBigText;
+    }
+}
@@ -0,0 +1,17 @@
+package scientificcalc;
+
+/**
+ * CompiledFormula
+ * An expression in executable form: either the {@link Node} tree or a hidden
+ * class generated by {@link FormulaCompiler}.
+ */
+@FunctionalInterface
+interface CompiledFormula {
+
+    /**
+     * @param vars Variable values, indexed by slot.
+     * @return The value of the formula.
+     * @throws ArithmeticException On a math error such as division by zero.
+     */
+    double evaluate(double[] vars);
+}
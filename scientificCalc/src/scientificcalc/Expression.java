@@ -0,0 +1,164 @@
+package scientificcalc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Expression
+ * A formula compiled once into an immutable evaluation tree and evaluated
+ * many times with different variable values, without re-parsing.
+ *
+ * Operators and functions are the calculator's own {@link CalcFunction}s,
+ * so e.g. trigonometric functions work in degrees and 5! is a factorial,
+ * and custom functions registered in a {@link FunctionRegistry} can be called.
+ * Instances are thread-safe.
+ *
+ * Evaluation is tiered: the tree is interpreted at first, and an expression
+ * evaluated more than {@link FormulaCompiler#COMPILE_THRESHOLD} times (e.g. in
+ * a parameter sweep) is compiled to bytecode so the JIT can optimize the whole
+ * formula. If compilation fails the tree keeps being interpreted.
+ */
+public final class Expression {
+
+    // One-variable arguments, so evaluate(double) allocates no array per call
+    private static final ThreadLocal<double[]> SINGLE_VALUE = ThreadLocal.withInitial(() -> new double[1]);
+
+    private final String source;
+    private final Node root;
+    private final List<String> variables;
+
+    // Current tier: the counting interpreter, then the compiled class or plain interpreter
+    private volatile CompiledFormula formula;
+    private volatile boolean compiled;
+    private boolean tiered; // Guarded by this
+    private int evaluations; // Racy on purpose; only decides when to tier up
+
+    private Expression(String source, Node root, List<String> variables) {
+        this.source = source;
+        this.root = root;
+        this.variables = variables;
+        // Constants are folded into a single node; nothing to gain from compiling them
+        this.formula = root instanceof Node.Constant ? root::eval : this::interpret;
+    }
+
+    /**
+     * Parses and compiles an expression against the global function registry.
+     * @param source The expression text, e.g. "price * (1 + rate)^years".
+     * @return The compiled expression.
+     * @throws IllegalArgumentException If the text is not a valid expression.
+     */
+    public static Expression compile(String source) {
+        return compile(source, FunctionRegistry.global());
+    }
+
+    /**
+     * Parses and compiles an expression against the given function registry.
+     */
+    public static Expression compile(String source, FunctionRegistry registry) {
+        List<String> names = new ArrayList<>();
+        Node root = ExpressionParser.parse(source, registry, names);
+        return new Expression(source, root, Collections.unmodifiableList(names));
+    }
+
+    /**
+     * Evaluates the expression. Passing a reused array avoids any allocation.
+     * @param values Variable values in the order given by {@link #variables()}.
+     * @return The result.
+     * @throws ArithmeticException On a math error such as division by zero.
+     */
+    public double evaluate(double... values) {
+        if (values.length < variables.size()) {
+            throw new IllegalArgumentException("Expected " + variables.size() + " values but got " + values.length);
+        }
+        return formula.evaluate(values);
+    }
+
+    /**
+     * Evaluates an expression of at most one variable without allocating,
+     * e.g. for each sample of a root finder or quadrature.
+     * @param value The variable's value.
+     * @return The result.
+     * @throws ArithmeticException On a math error such as division by zero.
+     */
+    public double evaluate(double value) {
+        if (variables.size() > 1) {
+            throw new IllegalArgumentException("Expected " + variables.size() + " values but got 1");
+        }
+        double[] values = SINGLE_VALUE.get();
+        double outer = values[0]; // Set if this runs inside another evaluate(double) on this thread
+        values[0] = value;
+        try {
+            return formula.evaluate(values);
+        } finally {
+            values[0] = outer;
+        }
+    }
+
+    /**
+     * Compiles the expression to bytecode now instead of after
+     * {@link FormulaCompiler#COMPILE_THRESHOLD} evaluations.
+     * @return This expression.
+     */
+    public Expression compileNow() {
+        tierUp();
+        return this;
+    }
+
+    /**
+     * @return True if evaluation runs generated bytecode.
+     */
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    private double interpret(double[] values) {
+        if (++evaluations >= FormulaCompiler.COMPILE_THRESHOLD) {
+            tierUp();
+        }
+        return root.eval(values);
+    }
+
+    private synchronized void tierUp() {
+        if (tiered) {
+            return;
+        }
+        tiered = true;
+        try {
+            formula = FormulaCompiler.compile(root);
+            compiled = true;
+        } catch (IllegalStateException ex) {
+            formula = root::eval; // Stop counting; stay interpreted
+        }
+    }
+
+    /**
+     * @return The variable names in order of first appearance.
+     */
+    public List<String> variables() {
+        return variables;
+    }
+
+    /**
+     * @return True if the expression has no variables.
+     */
+    public boolean isConstant() {
+        return variables.isEmpty();
+    }
+
+    /**
+     * @return The expression text this was compiled from.
+     */
+    public String source() {
+        return source;
+    }
+
+    Node root() {
+        return root;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -0,0 +1,272 @@
+package scientificcalc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ExpressionCache
+ * Bounded cache of compiled expressions keyed by their normalized text, so
+ * formulas entered again (interactively, in batch files or over the server)
+ * are not parsed again. Expressions without variables also keep their value,
+ * and invalid texts keep their parse error.
+ *
+ * Eviction is least-recently-used. The cache is split into independently
+ * locked segments, each an access-ordered LinkedHashMap, so threads rarely
+ * contend. Registering a function clears the cache, since it may change the
+ * meaning of a cached text (a variable name becoming a function).
+ */
+final class ExpressionCache {
+
+    static final int DEFAULT_CAPACITY = Integer.getInteger("scientificcalc.expressionCacheSize", 4096);
+
+    private static final int SEGMENTS = 16;
+
+    private static final ExpressionCache GLOBAL = new ExpressionCache(FunctionRegistry.global(), DEFAULT_CAPACITY);
+
+    private final FunctionRegistry registry;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private volatile int registryVersion;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * A compiled expression, with its value if it has no variables.
+     */
+    static final class Entry {
+        final Expression expression;       // Null if the text is invalid
+        final IllegalArgumentException invalid;
+        final boolean constant;
+        final double value;
+        final ArithmeticException error; // Thrown by a constant expression, e.g. "1/0"
+
+        Entry(String source, FunctionRegistry registry) {
+            Expression compiled = null;
+            IllegalArgumentException parseError = null;
+            try {
+                compiled = Expression.compile(source, registry);
+            } catch (IllegalArgumentException ex) {
+                parseError = ex;
+            }
+            double result = Double.NaN;
+            ArithmeticException failure = null;
+            if (compiled != null && compiled.isConstant()) {
+                try {
+                    result = compiled.evaluate();
+                } catch (ArithmeticException ex) {
+                    failure = ex;
+                }
+            }
+            this.expression = compiled;
+            this.invalid = parseError;
+            this.constant = compiled != null && compiled.isConstant();
+            this.value = result;
+            this.error = failure;
+        }
+
+        /**
+         * @throws IllegalArgumentException If the text is not a valid expression.
+         */
+        Expression expression() {
+            if (invalid != null) {
+                throw invalid;
+            }
+            return expression;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<String, Entry> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true); // Access order: get() moves an entry to the end
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    ExpressionCache(FunctionRegistry registry, int capacity) {
+        this.registry = registry;
+        this.registryVersion = registry.version();
+        int perSegment = Math.max(1, (capacity + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * @return The cache for the global function registry.
+     */
+    static ExpressionCache global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @return The compiled expression for source, parsed on a miss.
+     * @throws IllegalArgumentException If the text is not a valid expression.
+     */
+    Expression get(String source) {
+        return entry(source).expression();
+    }
+
+    /**
+     * Evaluates an expression without variables.
+     * @throws IllegalArgumentException If the text is not a valid expression or has variables.
+     * @throws ArithmeticException On a math error such as division by zero.
+     */
+    double evaluate(String source) {
+        Entry entry = entry(source);
+        if (!entry.constant) {
+            throw new IllegalArgumentException("Unknown name " + entry.expression().variables().get(0));
+        }
+        if (entry.error != null) {
+            throw entry.error;
+        }
+        return entry.value;
+    }
+
+    Entry entry(String source) {
+        int version = registry.version();
+        if (version != registryVersion) {
+            clear();
+            registryVersion = version;
+        }
+
+        String key = normalize(source);
+        Segment segment = segments[(key.hashCode() ^ (key.hashCode() >>> 16)) & (SEGMENTS - 1)];
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+        }
+        if (entry != null) {
+            hits.increment();
+            return entry;
+        }
+
+        // Parse outside the lock; two threads may both parse a new text, which is harmless
+        misses.increment();
+        entry = new Entry(key, registry);
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+        return entry;
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return A summary such as "hits=90 misses=10 (90.0% hit rate) evictions=0".
+     */
+    String statistics() {
+        long h = hits();
+        long m = misses();
+        return String.format("hits=%d misses=%d (%.1f%% hit rate) evictions=%d",
+            h, m, 100.0 * h / Math.max(1, h + m), evictions());
+    }
+
+    /**
+     * Removes whitespace that does not separate two tokens which would
+     * otherwise join, so that "2 + 3" and "2+3" share an entry while "2 3"
+     * stays invalid and "2e -3" stays 2, e, minus 3 rather than 0.002.
+     */
+    static String normalize(String source) {
+        int n = source.length();
+        StringBuilder key = null;
+        for (int i = 0; i < n; i++) {
+            char c = source.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                if (key != null) {
+                    key.append(c);
+                }
+                continue;
+            }
+            if (key == null) {
+                key = new StringBuilder(n).append(source, 0, i);
+            }
+            int next = i + 1;
+            while (next < n && Character.isWhitespace(source.charAt(next))) {
+                next++;
+            }
+            if (key.length() > 0 && next < n && joins(key, source.charAt(next))) {
+                key.append(' ');
+            }
+            i = next - 1;
+        }
+        return key == null ? source : key.toString();
+    }
+
+    /**
+     * @return Whether appending next to text would change how the end of text
+     *         is tokenized: two names or numbers, or the exponent of a number.
+     */
+    private static boolean joins(CharSequence text, char next) {
+        int end = text.length();
+        char last = text.charAt(end - 1);
+        if (isWordChar(last) && isWordChar(next)) {
+            return true;
+        }
+        if (next == '+' || next == '-') {
+            return endsWithExponentMark(text, end); // "2e" "-3"
+        }
+        return Character.isDigit(next) && (last == '+' || last == '-')
+            && endsWithExponentMark(text, end - 1); // "2e-" "3"
+    }
+
+    /**
+     * @return Whether text[0, end) ends with a number followed by 'e' or 'E',
+     *         such as "2.5e", which a signed exponent would extend.
+     */
+    private static boolean endsWithExponentMark(CharSequence text, int end) {
+        if (end < 2 || (text.charAt(end - 1) != 'e' && text.charAt(end - 1) != 'E')) {
+            return false;
+        }
+        int start = end - 1;
+        while (start > 0 && (Character.isDigit(text.charAt(start - 1)) || text.charAt(start - 1) == '.')) {
+            start--;
+        }
+        // Digits after a letter belong to a name, as in "x2e"
+        return start < end - 1 && (start == 0 || !isWordChar(text.charAt(start - 1)));
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+    }
+}
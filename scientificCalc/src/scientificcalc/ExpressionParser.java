@@ -0,0 +1,280 @@
+package scientificcalc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ExpressionParser
+ * Tokenizer and precedence parser that turns expression text into an
+ * immutable {@link Node} tree.
+ *
+ * Grammar (lowest to highest precedence):
+ * <pre>
+ *   expr    := term (('+' | '-') term)*
+ *   term    := unary (('*' | '/') unary)*
+ *   unary   := ('-' | '+') unary | power
+ *   power   := postfix ('^' unary)?          right associative
+ *   postfix := primary ('!' | '%')*
+ *   primary := number | constant | variable | function '(' expr (',' expr)? ')' | '(' expr ')'
+ * </pre>
+ * Operators, functions and constants are resolved in a {@link FunctionRegistry}
+ * while parsing, so the tree calls them directly. Sub-trees that do not depend
+ * on a variable are folded into constants, except in trees parsed for
+ * {@link Node#evalBig}, whose number literals also keep their exact value.
+ */
+final class ExpressionParser {
+
+    // --- Token kinds ---
+    private static final int NUMBER = 0;
+    private static final int IDENT = 1;
+    private static final int SYMBOL = 2;
+    private static final int END = 3;
+
+    private final String source;
+    private final FunctionRegistry registry;
+    private final boolean exact;
+    private final List<Object> tokenValues = new ArrayList<>();
+    private final List<Integer> tokenKinds = new ArrayList<>();
+    private final List<Integer> tokenPositions = new ArrayList<>();
+    private final Map<String, Node.Variable> variables = new LinkedHashMap<>();
+    private int pos;
+
+    private ExpressionParser(String source, FunctionRegistry registry, boolean exact) {
+        this.source = source;
+        this.registry = registry;
+        this.exact = exact;
+    }
+
+    /**
+     * Parses the given text into an expression tree.
+     * @param source The expression text.
+     * @param registry Resolves operators, functions and constants.
+     * @param variables Receives the variables in order of first appearance.
+     * @return The root of the tree.
+     * @throws IllegalArgumentException If the text is not a valid expression.
+     */
+    static Node parse(String source, FunctionRegistry registry, List<String> variables) {
+        return parse(new ExpressionParser(source, registry, false), variables);
+    }
+
+    /**
+     * Parses the given text for precision mode: nothing is folded in double
+     * precision and number literals keep their exact decimal value.
+     * @return The root of a tree to evaluate with {@link Node#evalBig}.
+     * @throws IllegalArgumentException If the text is not a valid expression.
+     */
+    static Node parseExact(String source, FunctionRegistry registry) {
+        return parse(new ExpressionParser(source, registry, true), new ArrayList<>());
+    }
+
+    private static Node parse(ExpressionParser parser, List<String> variables) {
+        parser.tokenize();
+        Node root = parser.parseExpression();
+        if (parser.kind() != END) {
+            throw parser.error("Unexpected '" + parser.value() + "'");
+        }
+        variables.addAll(parser.variables.keySet());
+        return root;
+    }
+
+    // --- Tokenizer ---
+
+    private void tokenize() {
+        int i = 0;
+        int n = source.length();
+        while (i < n) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isDigit(c) || c == '.') {
+                int start = i;
+                while (i < n && (Character.isDigit(source.charAt(i)) || source.charAt(i) == '.')) {
+                    i++;
+                }
+                // Exponent part, only when followed by digits (so "2e" stays 2 then e)
+                if (i < n && (source.charAt(i) == 'E' || source.charAt(i) == 'e')) {
+                    int j = i + 1;
+                    if (j < n && (source.charAt(j) == '+' || source.charAt(j) == '-')) {
+                        j++;
+                    }
+                    if (j < n && Character.isDigit(source.charAt(j))) {
+                        i = j;
+                        while (i < n && Character.isDigit(source.charAt(i))) {
+                            i++;
+                        }
+                    }
+                }
+                String text = source.substring(start, i);
+                try {
+                    double value = Double.parseDouble(text);
+                    add(NUMBER, exact ? new Node.Constant(value, new BigDecimal(text)) : value, start);
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException("Invalid number '" + text + "' at " + start);
+                }
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < n && (Character.isLetterOrDigit(source.charAt(i)) || source.charAt(i) == '_')) {
+                    i++;
+                }
+                add(IDENT, source.substring(start, i), start);
+            } else if ("+-*/^!%(),".indexOf(c) >= 0) {
+                add(SYMBOL, String.valueOf(c), i);
+                i++;
+            } else {
+                throw new IllegalArgumentException("Unexpected character '" + c + "' at " + i);
+            }
+        }
+        add(END, "end of input", n);
+    }
+
+    private void add(int kind, Object value, int position) {
+        tokenKinds.add(kind);
+        tokenValues.add(value);
+        tokenPositions.add(position);
+    }
+
+    private int kind() {
+        return tokenKinds.get(pos);
+    }
+
+    private Object value() {
+        return tokenValues.get(pos);
+    }
+
+    private boolean accept(String symbol) {
+        if (kind() == SYMBOL && value().equals(symbol)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String symbol) {
+        if (!accept(symbol)) {
+            throw error("Expected '" + symbol + "'");
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at " + tokenPositions.get(pos));
+    }
+
+    // --- Recursive descent ---
+
+    private Node parseExpression() {
+        Node left = parseTerm();
+        while (true) {
+            if (accept("+")) {
+                left = binary(registry.require("+"), left, parseTerm());
+            } else if (accept("-")) {
+                left = binary(registry.require("-"), left, parseTerm());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Node parseTerm() {
+        Node left = parseUnary();
+        while (true) {
+            if (accept("*")) {
+                left = binary(registry.require("*"), left, parseUnary());
+            } else if (accept("/")) {
+                left = binary(registry.require("/"), left, parseUnary());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Node parseUnary() {
+        if (accept("-")) {
+            return function(registry.require("+/-"), parseUnary());
+        }
+        if (accept("+")) {
+            return parseUnary();
+        }
+        return parsePower();
+    }
+
+    private Node parsePower() {
+        Node base = parsePostfix();
+        if (accept("^")) {
+            return binary(registry.require("x^y"), base, parseUnary());
+        }
+        return base;
+    }
+
+    private Node parsePostfix() {
+        Node node = parsePrimary();
+        while (true) {
+            if (accept("!")) {
+                node = function(registry.require("!"), node);
+            } else if (accept("%")) {
+                node = function(registry.require("%"), node);
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private Node parsePrimary() {
+        if (kind() == NUMBER) {
+            Object literal = value();
+            pos++;
+            return literal instanceof Node.Constant ? (Node) literal : new Node.Constant((Double) literal);
+        }
+        if (accept("(")) {
+            Node inner = parseExpression();
+            expect(")");
+            return inner;
+        }
+        if (kind() == IDENT) {
+            String name = (String) value();
+            pos++;
+            CalcFunction function = registry.lookup(name);
+            if (function == null) {
+                return variables.computeIfAbsent(name, key -> new Node.Variable(key, variables.size()));
+            }
+            if (function.arity() == 0) {
+                return exact ? new Node.NamedConstant(function) : new Node.Constant(function.value());
+            }
+            expect("(");
+            Node first = parseExpression();
+            if (function.arity() == 1) {
+                expect(")");
+                return function(function, first);
+            }
+            expect(",");
+            Node second = parseExpression();
+            expect(")");
+            return binary(function, first, second);
+        }
+        throw error("Unexpected '" + value() + "'");
+    }
+
+    // --- Node construction with constant folding ---
+
+    private Node function(CalcFunction function, Node operand) {
+        return fold(new Node.Function(function, operand));
+    }
+
+    private Node binary(CalcFunction function, Node left, Node right) {
+        return fold(new Node.Binary(function, left, right));
+    }
+
+    private Node fold(Node node) {
+        if (exact || !node.isConstant()) {
+            return node;
+        }
+        try {
+            return new Node.Constant(node.eval(null));
+        } catch (ArithmeticException ex) {
+            // Keep the node so that the error surfaces on evaluation
+            return node;
+        }
+    }
+}
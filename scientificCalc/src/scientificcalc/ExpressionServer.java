@@ -0,0 +1,217 @@
+package scientificcalc;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ExpressionServer
+ * Line-based TCP service on localhost that evaluates expressions for other
+ * processes, with the same functions and result format as batch mode.
+ *
+ * Protocol: one request per line, one response line per request, in order.
+ * <pre>
+ *   2^10 + sin(30)          -&gt;  1024.5
+ *   1+1; 2*3; 1/0           -&gt;  2;6;Error        (a batch)
+ *   STATS                   -&gt;  requests=... p50_us=... p99_us=... throughput=... cache_hit_rate=...
+ *   RESET                   -&gt;  OK               (clears the statistics)
+ *   QUIT                    closes the connection
+ * </pre>
+ * Every connection runs on its own virtual thread. Requests may be pipelined:
+ * responses are buffered and flushed once no further request is waiting, so
+ * a client sending many lines at once gets the answers in few packets.
+ *
+ * Run with "--serve [port]"; "--loadtest [port] [connections] [requests]"
+ * drives a running server and reports throughput and latency percentiles.
+ */
+final class ExpressionServer {
+
+    static final int DEFAULT_PORT = 7878;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PIPELINE_WINDOW = 128;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder expressions = new LongAdder();
+    private volatile long statsSince = System.nanoTime();
+
+    /**
+     * Runs the server until the process is stopped. Usage: --serve [port]
+     */
+    static void run(String[] args) throws IOException {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        ExpressionServer server = new ExpressionServer();
+        try (ServerSocket listener = new ServerSocket(port, 512, InetAddress.getLoopbackAddress())) {
+            System.err.println("Evaluating expressions on " + listener.getLocalSocketAddress());
+            while (true) {
+                Socket socket = listener.accept();
+                Thread.ofVirtual().name("calc-connection").start(() -> server.handle(socket));
+            }
+        }
+    }
+
+    // --- Server ---
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(
+                 new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+             Writer out = new BufferedWriter(
+                 new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            socket.setTcpNoDelay(true);
+            StringBuilder response = new StringBuilder();
+            char[] digits = new char[NumberFormatter.MAX_CHARS];
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                long start = System.nanoTime();
+                String request = line.trim();
+                if (request.equalsIgnoreCase("QUIT")) {
+                    break;
+                }
+
+                response.setLength(0);
+                if (request.equalsIgnoreCase("STATS")) {
+                    response.append(stats());
+                } else if (request.equalsIgnoreCase("RESET")) {
+                    latency.reset();
+                    expressions.reset();
+                    statsSince = System.nanoTime();
+                    response.append("OK");
+                } else {
+                    evaluate(request, response, digits);
+                }
+                response.append('\n');
+                out.append(response);
+
+                // Answer everything already received before flushing
+                if (!in.ready()) {
+                    out.flush();
+                }
+                latency.record(System.nanoTime() - start);
+            }
+            out.flush();
+        } catch (IOException ex) {
+            // Client went away; nothing to answer
+        }
+    }
+
+    /**
+     * Evaluates one expression, or a batch separated by ';'.
+     */
+    private void evaluate(String request, StringBuilder response, char[] digits) {
+        int start = 0;
+        while (true) {
+            int end = request.indexOf(';', start);
+            String expression = (end < 0 ? request.substring(start) : request.substring(start, end)).trim();
+            if (!expression.isEmpty()) {
+                BatchEvaluator.appendResult(expression, response, digits);
+                expressions.increment();
+            }
+            if (end < 0) {
+                return;
+            }
+            response.append(';');
+            start = end + 1;
+        }
+    }
+
+    private String stats() {
+        double seconds = (System.nanoTime() - statsSince) / 1e9;
+        long evaluated = expressions.sum();
+        ExpressionCache cache = ExpressionCache.global();
+        return String.format("requests=%d expressions=%d p50_us=%.1f p99_us=%.1f throughput=%.0f/s cache_hit_rate=%.1f%%",
+            latency.count(), evaluated, latency.percentile(0.50) / 1e3, latency.percentile(0.99) / 1e3,
+            evaluated / Math.max(seconds, 1e-9),
+            100.0 * cache.hits() / Math.max(1, cache.hits() + cache.misses()));
+    }
+
+    // --- Load test client ---
+
+    /**
+     * Load-tests a running server. Usage: --loadtest [port] [connections] [requests per connection]
+     * Each connection pipelines its requests in windows of 128 and measures
+     * the round trip of every window; the server's own STATS follow.
+     */
+    static void loadTest(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int requests = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+
+        command(port, "RESET");
+        LatencyHistogram windowLatency = new LatencyHistogram();
+        List<Thread> clients = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            int client = c;
+            clients.add(Thread.ofVirtual().start(() -> {
+                try {
+                    drive(port, client, requests, windowLatency);
+                } catch (IOException ex) {
+                    System.err.println("Client " + client + " failed: " + ex.getMessage());
+                }
+            }));
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long total = (long) connections * requests;
+        System.out.printf("%d requests on %d connections in %.2f s: %.0f requests/sec%n",
+            total, connections, seconds, total / seconds);
+        System.out.printf("Client round trip per %d-request window: p50 %.1f us, p99 %.1f us%n",
+            PIPELINE_WINDOW, windowLatency.percentile(0.50) / 1e3, windowLatency.percentile(0.99) / 1e3);
+        System.out.println("Server: " + command(port, "STATS"));
+    }
+
+    private static void drive(int port, int client, int requests, LatencyHistogram windowLatency) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(
+                 new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+             Writer out = new BufferedWriter(
+                 new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            socket.setTcpNoDelay(true);
+            for (int sent = 0; sent < requests; sent += PIPELINE_WINDOW) {
+                int window = Math.min(PIPELINE_WINDOW, requests - sent);
+                long start = System.nanoTime();
+                for (int i = 0; i < window; i++) {
+                    int n = sent + i;
+                    out.append(Integer.toString(client)).append(" + sin(").append(Integer.toString(n % 360))
+                       .append(") * 2^").append(Integer.toString(n % 10)).append(" / 7\n");
+                }
+                out.flush();
+                for (int i = 0; i < window; i++) {
+                    if (in.readLine() == null) {
+                        throw new IOException("Server closed the connection");
+                    }
+                }
+                windowLatency.record(System.nanoTime() - start);
+            }
+            out.append("QUIT\n").flush();
+        }
+    }
+
+    /**
+     * Sends one request on a new connection and returns the response line.
+     */
+    private static String command(int port, String request) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write(request + "\nQUIT\n");
+            out.flush();
+            return in.readLine();
+        }
+    }
+}
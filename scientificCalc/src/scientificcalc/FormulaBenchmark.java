@@ -0,0 +1,68 @@
+package scientificcalc;
+
+/**
+ * FormulaBenchmark
+ * Compares tree interpretation with {@link FormulaCompiler} bytecode on a few
+ * formulas, evaluated over a sweep of x values with the calculator's key
+ * semantics (degrees, checked division, etc.).
+ * Run with "ant bench-formula" or directly:
+ * <pre>
+ *   java -cp build/classes scientificcalc.FormulaBenchmark [evaluations]
+ * </pre>
+ */
+final class FormulaBenchmark {
+
+    private static final String[] FORMULAS = {
+        "x^2 + 3*x - 7",
+        "((x + 1) * (x - 1) / (x^2 + 2))^3 - x/7",
+        "sin(x) * cos(x) + sqrt(x^2 + 1) - ln(x^2 + 1)",
+        "1/(1 + e^(-x/100)) * 100 + 2*x%",
+    };
+
+    private static final int ROUNDS = 5;
+
+    private FormulaBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int evaluations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        System.out.printf("%-48s %14s %16s %8s%n", "formula", "tree ns/eval", "compiled ns/eval", "speedup");
+
+        for (String source : FORMULAS) {
+            Expression expression = Expression.compile(source);
+            Node root = expression.root();
+            CompiledFormula tree = root::eval;
+            CompiledFormula compiled = FormulaCompiler.compile(root);
+
+            double treeNanos = Double.MAX_VALUE, compiledNanos = Double.MAX_VALUE;
+            double treeSum = 0, compiledSum = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                treeSum = sweep(tree, evaluations);
+                treeNanos = Math.min(treeNanos, (System.nanoTime() - start) / (double) evaluations);
+
+                start = System.nanoTime();
+                compiledSum = sweep(compiled, evaluations);
+                compiledNanos = Math.min(compiledNanos, (System.nanoTime() - start) / (double) evaluations);
+            }
+            if (Double.doubleToLongBits(treeSum) != Double.doubleToLongBits(compiledSum)) {
+                throw new IllegalStateException("Results differ for " + source + ": " + treeSum + " vs " + compiledSum);
+            }
+            System.out.printf("%-48s %14.2f %16.2f %7.1fx%n", source, treeNanos, compiledNanos, treeNanos / compiledNanos);
+        }
+    }
+
+    /**
+     * Evaluates f for x = 1, 2, ... and sums the results, so none can be
+     * optimized away.
+     */
+    private static double sweep(CompiledFormula formula, int evaluations) {
+        double[] vars = new double[1];
+        double sum = 0;
+        for (int i = 1; i <= evaluations; i++) {
+            vars[0] = i;
+            sum += formula.evaluate(vars);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,162 @@
+package scientificcalc;
+
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.CodeBuilder;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.constant.ConstantDescs.CD_Object;
+import static java.lang.constant.ConstantDescs.CD_double;
+import static java.lang.constant.ConstantDescs.CD_void;
+import static java.lang.constant.ConstantDescs.INIT_NAME;
+import static java.lang.constant.ConstantDescs.MTD_void;
+
+/**
+ * FormulaCompiler
+ * Turns an expression tree into a hidden class whose evaluate method is the
+ * whole formula as straight-line bytecode, e.g. for "x^2 + 3*x":
+ * <pre>
+ *   aload_1; iconst_0; daload; aload_1; iconst_0; daload; invokestatic MathKernels.power
+ *   ldc 3.0; aload_1; iconst_0; daload; dmul; dadd; dreturn
+ * </pre>
+ * The JIT can then inline every operation into one compiled method instead of
+ * dispatching through {@link Node#eval} at each node.
+ *
+ * Built-ins call the same {@link MathKernels} methods as the keypad (plus, minus
+ * and times are emitted as plain dadd/dsub/dmul, which is what those methods do),
+ * so results are bit-for-bit those of tree evaluation. Custom functions are
+ * called through the {@link CalcFunction} objects handed to the constructor.
+ */
+final class FormulaCompiler {
+
+    /** Evaluations of an expression before it is compiled; see {@link Expression#evaluate}. */
+    static final int COMPILE_THRESHOLD = Integer.getInteger("scientificcalc.compileThreshold", 1000);
+
+    private static final ClassDesc CD_FORMULA = ClassDesc.of(CompiledFormula.class.getName());
+    private static final ClassDesc CD_FUNCTION = ClassDesc.of(CalcFunction.class.getName());
+    private static final ClassDesc CD_FUNCTIONS = CD_FUNCTION.arrayType();
+    private static final ClassDesc CD_KERNELS = ClassDesc.of(MathKernels.class.getName());
+    private static final ClassDesc CD_GENERATED = ClassDesc.of("scientificcalc.GeneratedFormula");
+
+    private static final MethodTypeDesc MTD_EVALUATE = MethodTypeDesc.of(CD_double, CD_double.arrayType());
+    private static final MethodTypeDesc MTD_INIT = MethodTypeDesc.of(CD_void, CD_FUNCTIONS);
+    private static final MethodTypeDesc MTD_UNARY = MethodTypeDesc.of(CD_double, CD_double);
+    private static final MethodTypeDesc MTD_BINARY = MethodTypeDesc.of(CD_double, CD_double, CD_double);
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private FormulaCompiler() {
+    }
+
+    /**
+     * Compiles an expression tree into a new hidden class. The class is
+     * unloaded again once the returned object is unreachable.
+     * @param root The expression tree.
+     * @return The compiled formula.
+     * @throws IllegalStateException If the class cannot be generated or defined,
+     *         e.g. because the formula exceeds the JVM's 64KB method size limit.
+     */
+    static CompiledFormula compile(Node root) {
+        List<CalcFunction> functions = new ArrayList<>();
+        byte[] bytes;
+        try {
+            bytes = ClassFile.of().build(CD_GENERATED, clb -> {
+                clb.withFlags(ClassFile.ACC_FINAL | ClassFile.ACC_SYNTHETIC);
+                clb.withInterfaceSymbols(CD_FORMULA);
+                clb.withField("functions", CD_FUNCTIONS, ClassFile.ACC_PRIVATE | ClassFile.ACC_FINAL);
+
+                // GeneratedFormula(CalcFunction[] functions)
+                clb.withMethodBody(INIT_NAME, MTD_INIT, ClassFile.ACC_PUBLIC, cob -> cob
+                        .aload(0)
+                        .invokespecial(CD_Object, INIT_NAME, MTD_void)
+                        .aload(0)
+                        .aload(1)
+                        .putfield(CD_GENERATED, "functions", CD_FUNCTIONS)
+                        .return_());
+
+                // double evaluate(double[] vars)
+                clb.withMethodBody("evaluate", MTD_EVALUATE, ClassFile.ACC_PUBLIC | ClassFile.ACC_FINAL, cob -> {
+                    functions.clear(); // In case the builder runs this handler again
+                    emit(cob, root, functions);
+                    cob.dreturn();
+                });
+            });
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalStateException("Cannot generate formula class", ex);
+        }
+
+        try {
+            MethodHandles.Lookup hidden = LOOKUP.defineHiddenClass(bytes, true);
+            return (CompiledFormula) hidden
+                    .findConstructor(hidden.lookupClass(), MethodType.methodType(void.class, CalcFunction[].class))
+                    .invoke(functions.toArray(new CalcFunction[0]));
+        } catch (Throwable ex) {
+            throw new IllegalStateException("Cannot define formula class", ex);
+        }
+    }
+
+    /**
+     * Emits code leaving the value of node on the operand stack.
+     */
+    private static void emit(CodeBuilder cob, Node node, List<CalcFunction> functions) {
+        if (node instanceof Node.Constant) {
+            cob.loadConstant(((Node.Constant) node).value);
+        } else if (node instanceof Node.Variable) {
+            cob.aload(1)
+               .loadConstant(((Node.Variable) node).slot)
+               .daload();
+        } else if (node instanceof Node.Function) {
+            Node.Function call = (Node.Function) node;
+            String kernel = call.function.kernel();
+            if (kernel == null) {
+                loadFunction(cob, call.function, functions);
+                emit(cob, call.operand, functions);
+                cob.invokevirtual(CD_FUNCTION, "apply", MTD_UNARY);
+            } else if (kernel.equals("negate")) {
+                emit(cob, call.operand, functions);
+                cob.dneg();
+            } else {
+                emit(cob, call.operand, functions);
+                cob.invokestatic(CD_KERNELS, kernel, MTD_UNARY);
+            }
+        } else {
+            Node.Binary call = (Node.Binary) node;
+            String kernel = call.function.kernel();
+            if (kernel == null) {
+                loadFunction(cob, call.function, functions);
+            }
+            emit(cob, call.left, functions);
+            emit(cob, call.right, functions);
+            if (kernel == null) {
+                cob.invokevirtual(CD_FUNCTION, "apply", MTD_BINARY);
+            } else if (kernel.equals("add")) {
+                cob.dadd();
+            } else if (kernel.equals("subtract")) {
+                cob.dsub();
+            } else if (kernel.equals("multiply")) {
+                cob.dmul();
+            } else {
+                cob.invokestatic(CD_KERNELS, kernel, MTD_BINARY);
+            }
+        }
+    }
+
+    /**
+     * Emits this.functions[i] for a custom function.
+     */
+    private static void loadFunction(CodeBuilder cob, CalcFunction function, List<CalcFunction> functions) {
+        int index = functions.indexOf(function);
+        if (index < 0) {
+            index = functions.size();
+            functions.add(function);
+        }
+        cob.aload(0)
+           .getfield(CD_GENERATED, "functions", CD_FUNCTIONS)
+           .loadConstant(index)
+           .aaload();
+    }
+}
@@ -0,0 +1,111 @@
+package scientificcalc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FunctionRegistry
+ * Maps key labels and expression names to {@link CalcFunction}s.
+ *
+ * Keys and expressions resolve their functions here once (when a button is
+ * bound or an expression is compiled), so evaluation never looks names up.
+ * Custom functions registered on {@link #global()} become available to the
+ * keypad core and to expressions, e.g.
+ * <pre>
+ *   FunctionRegistry.global().register(CalcFunction.binary("fv", (rate, years) -> Math.pow(1 + rate, years)));
+ * </pre>
+ */
+public final class FunctionRegistry {
+
+    private static final FunctionRegistry GLOBAL = withBuiltins();
+
+    private final Map<String, CalcFunction> functions = new ConcurrentHashMap<>();
+    // Bumped on every registration, so caches of parsed expressions can tell they are stale
+    private final AtomicInteger version = new AtomicInteger();
+
+    private FunctionRegistry() {
+    }
+
+    /**
+     * @return The registry shared by the calculator, batch mode and {@link Expression#compile(String)}.
+     */
+    public static FunctionRegistry global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @return A new registry holding only the built-in keys and functions.
+     */
+    public static FunctionRegistry withBuiltins() {
+        FunctionRegistry registry = new FunctionRegistry();
+
+        // Arithmetic and Power
+        registry.register(CalcFunction.builtin("+", "add", MathKernels::add));
+        registry.register(CalcFunction.builtin("-", "subtract", MathKernels::subtract));
+        registry.register(CalcFunction.builtin("*", "multiply", MathKernels::multiply));
+        registry.register(CalcFunction.builtin("/", "divide", MathKernels::divide));
+        registry.register(CalcFunction.builtin("x^y", "power", MathKernels::power));
+
+        // Scientific functions
+        registry.register(CalcFunction.builtin("sin", "sin", MathKernels::sin));
+        registry.register(CalcFunction.builtin("cos", "cos", MathKernels::cos));
+        registry.register(CalcFunction.builtin("tan", "tan", MathKernels::tan));
+        registry.register(CalcFunction.builtin("asin", "asin", MathKernels::asin));
+        registry.register(CalcFunction.builtin("acos", "acos", MathKernels::acos));
+        registry.register(CalcFunction.builtin("atan", "atan", MathKernels::atan));
+        registry.register(CalcFunction.builtin("log", "log", MathKernels::log));
+        registry.register(CalcFunction.builtin("ln", "ln", MathKernels::ln));
+        registry.register(CalcFunction.builtin("sqrt", "sqrt", MathKernels::sqrt));
+        registry.register(CalcFunction.builtin("x^2", "square", MathKernels::square));
+        registry.register(CalcFunction.builtin("1/x", "reciprocal", MathKernels::reciprocal));
+        registry.register(CalcFunction.builtin("%", "percent", MathKernels::percent));
+        registry.register(CalcFunction.builtin("+/-", "negate", MathKernels::negate));
+        registry.register(CalcFunction.builtin("!", "factorial", MathKernels::factorial));
+        registry.register(CalcFunction.builtin("deg", "deg", MathKernels::deg));
+        registry.register(CalcFunction.builtin("rad", "rad", MathKernels::rad));
+
+        // Constants
+        registry.register(CalcFunction.constant("PI", Math.PI));
+        registry.register(CalcFunction.constant("e", Math.E));
+
+        return registry;
+    }
+
+    /**
+     * Adds a function.
+     * @throws IllegalArgumentException If the name is already taken.
+     */
+    public void register(CalcFunction function) {
+        if (functions.putIfAbsent(function.name(), function) != null) {
+            throw new IllegalArgumentException("Function already registered: " + function.name());
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return A number that changes whenever a function is registered.
+     */
+    int version() {
+        return version.get();
+    }
+
+    /**
+     * @return The function registered under name, or null.
+     */
+    public CalcFunction lookup(String name) {
+        return functions.get(name);
+    }
+
+    /**
+     * @return The function registered under name.
+     * @throws IllegalArgumentException If there is none.
+     */
+    CalcFunction require(String name) {
+        CalcFunction function = functions.get(name);
+        if (function == null) {
+            throw new IllegalArgumentException("Unknown function: " + name);
+        }
+        return function;
+    }
+}
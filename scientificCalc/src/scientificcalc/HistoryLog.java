@@ -0,0 +1,425 @@
+package scientificcalc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HistoryLog
+ * Append-only file of evaluated expressions, one "expression TAB result"
+ * line per entry.
+ *
+ * Only the byte offset of each entry is kept in memory; entries are read
+ * back from the file when asked for, with a small cache for the rows on
+ * screen, so opening a history of millions of entries costs one scan of the
+ * file. New entries are buffered and written in batches by a background
+ * thread every half second, or sooner once 64KB are waiting, and on close.
+ *
+ * Several calculators may share the file. Each batch is written at the end
+ * of the file under a file lock, so their entries interleave instead of
+ * overwriting each other; entries written by another calculator show up the
+ * next time the history is opened.
+ *
+ * The file defaults to ~/.scientificcalc/history.log and can be changed with
+ * the system property "scientificcalc.historyFile". Thread-safe.
+ */
+final class HistoryLog implements Closeable {
+
+    static final Path DEFAULT_FILE = Path.of(System.getProperty("scientificcalc.historyFile",
+        Path.of(System.getProperty("user.home"), ".scientificcalc", "history.log").toString()));
+
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int READ_BLOCK = 1024 * 1024;
+    private static final int FLUSH_BYTES = 64 * 1024;
+    private static final long FLUSH_MILLIS = 500;
+    private static final int CACHED_ENTRIES = 512;
+    // Locked instead of the data so that other processes can still read the
+    // file while a batch is written; no file ever reaches this offset
+    private static final long LOCK_POSITION = Long.MAX_VALUE - 1;
+
+    /**
+     * One history entry.
+     */
+    static final class Entry {
+        final String expression;
+        final String result;
+
+        Entry(String expression, String result) {
+            this.expression = expression;
+            this.result = result;
+        }
+
+        @Override
+        public String toString() {
+            return expression + " = " + result;
+        }
+    }
+
+    private final FileChannel file;
+    private final ScheduledExecutorService flusher;
+
+    // Entry i is the bytes from starts[i] to ends[i], newline included;
+    // another process's entries may lie between two of ours
+    private long[] starts = new long[1024];
+    private long[] ends = new long[1024];
+    private int written;
+    private List<Entry> pending = new ArrayList<>();
+    private List<Entry> flushing = List.of(); // The batch being written; still read from memory
+    private int pendingBytes;
+    private final Object writeLock = new Object(); // Held while writing a batch, never inside this
+    private boolean closed;
+
+    private final Map<Integer, Entry> cache = new LinkedHashMap<>(CACHED_ENTRIES * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+            return size() > CACHED_ENTRIES;
+        }
+    };
+
+    private HistoryLog(FileChannel file) {
+        this.file = file;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "history-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens (or creates) a history file and indexes its entries. A partly
+     * written last line, left by a calculator that crashed while writing, is
+     * cut off; the file is locked meanwhile, so no one else is writing it.
+     */
+    static HistoryLog open(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        HistoryLog log = new HistoryLog(file);
+        try {
+            log.index();
+        } catch (IOException ex) {
+            file.close();
+            throw ex;
+        }
+        log.flusher.scheduleWithFixedDelay(log::flushQuietly, FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        return log;
+    }
+
+    private void index() throws IOException {
+        FileLock lock = file.lock(LOCK_POSITION, 1, false);
+        try {
+            long size = file.size();
+            long position = 0;
+            long end = 0;
+            while (position < size) {
+                int length = (int) Math.min(WINDOW_SIZE, size - position);
+                ByteBuffer mapped = file.map(FileChannel.MapMode.READ_ONLY, position, length);
+                for (int i = 0; i < length; i++) {
+                    if (mapped.get(i) == '\n') {
+                        addEntry(end, position + i + 1);
+                        end = position + i + 1;
+                    }
+                }
+                position += length;
+            }
+            if (end < size) {
+                file.truncate(end);
+            }
+        } finally {
+            lock.release();
+        }
+    }
+
+    private void addEntry(long start, long end) {
+        if (written == starts.length) {
+            starts = Arrays.copyOf(starts, written * 2);
+            ends = Arrays.copyOf(ends, written * 2);
+        }
+        starts[written] = start;
+        ends[written] = end;
+        written++;
+    }
+
+    // --- Writing ---
+
+    /**
+     * Adds an entry. It is readable at once and reaches the file with the next batch.
+     */
+    synchronized void append(String expression, String result) {
+        if (closed) {
+            return;
+        }
+        pending.add(new Entry(clean(expression), clean(result)));
+        pendingBytes += expression.length() + result.length() + 2;
+        if (pendingBytes >= FLUSH_BYTES) {
+            flusher.execute(this::flushQuietly);
+            pendingBytes = 0;
+        }
+    }
+
+    private static String clean(String text) {
+        return text.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * Writes all buffered entries to the end of the file. The batch is
+     * swapped out under the lock and written outside it, so append and get
+     * never wait for the disk.
+     */
+    void flush() throws IOException {
+        synchronized (writeLock) {
+            List<Entry> batch;
+            synchronized (this) {
+                if (pending.isEmpty() || !file.isOpen()) {
+                    return;
+                }
+                batch = pending;
+                flushing = batch;
+                pending = new ArrayList<>();
+                pendingBytes = 0;
+            }
+
+            StringBuilder text = new StringBuilder(batch.size() * 32);
+            for (Entry entry : batch) {
+                text.append(entry.expression).append('\t').append(entry.result).append('\n');
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+            long position;
+            try {
+                position = writeAtEnd(bytes);
+            } catch (IOException ex) {
+                synchronized (this) {
+                    // Retried with the next batch
+                    batch.addAll(pending);
+                    pending = batch;
+                    flushing = List.of();
+                }
+                throw ex;
+            }
+
+            synchronized (this) {
+                // Index the new lines from where the batch landed and their byte lengths
+                for (Entry entry : batch) {
+                    long length = entry.expression.getBytes(StandardCharsets.UTF_8).length
+                        + entry.result.getBytes(StandardCharsets.UTF_8).length + 2;
+                    addEntry(position, position + length);
+                    position += length;
+                }
+                flushing = List.of();
+            }
+        }
+    }
+
+    /**
+     * Writes bytes at the end of the file, holding the file lock.
+     * @return Where the bytes start.
+     */
+    private long writeAtEnd(ByteBuffer bytes) throws IOException {
+        FileLock lock = file.lock(LOCK_POSITION, 1, false);
+        try {
+            long position = file.size();
+            if (position > 0 && read(position - 1, position)[0] != '\n') {
+                // Ends a line torn by a calculator that crashed while writing
+                position += file.write(ByteBuffer.wrap(new byte[] {'\n'}), position);
+            }
+            for (long at = position; bytes.hasRemaining(); ) {
+                at += file.write(bytes, at);
+            }
+            return position;
+        } finally {
+            lock.release();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException ex) {
+            System.err.println("Could not write the calculation history: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Writes the remaining entries and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        synchronized (writeLock) {
+            try {
+                flush();
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+    // --- Reading ---
+
+    /**
+     * @return The number of entries, written and buffered.
+     */
+    synchronized int size() {
+        return written + flushing.size() + pending.size();
+    }
+
+    /**
+     * @return Entry i, oldest first.
+     */
+    synchronized Entry get(int i) {
+        if (i >= written) {
+            int buffered = i - written;
+            return buffered < flushing.size() ? flushing.get(buffered) : pending.get(buffered - flushing.size());
+        }
+        Entry entry = cache.get(i);
+        if (entry == null) {
+            try {
+                byte[] line = read(starts[i], ends[i]);
+                entry = parse(line, 0, line.length);
+            } catch (IOException ex) {
+                entry = new Entry("", "Error (" + ex.getMessage() + ")");
+            }
+            cache.put(i, entry);
+        }
+        return entry;
+    }
+
+    private byte[] read(long from, long to) throws IOException {
+        byte[] bytes = new byte[(int) (to - from)];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            if (file.read(buffer, from + buffer.position()) < 0) {
+                throw new IOException("History file is shorter than its index");
+            }
+        }
+        return bytes;
+    }
+
+    private static Entry parse(byte[] line, int from, int to) {
+        int end = to > from && line[to - 1] == '\n' ? to - 1 : to;
+        int tab = from;
+        while (tab < end && line[tab] != '\t') {
+            tab++;
+        }
+        String expression = new String(line, from, tab - from, StandardCharsets.UTF_8);
+        String result = tab < end ? new String(line, tab + 1, end - tab - 1, StandardCharsets.UTF_8) : "";
+        return new Entry(expression, result);
+    }
+
+    /**
+     * Finds the entries whose expression or result contains query, ignoring
+     * ASCII case. The file is scanned in 1MB blocks without decoding lines.
+     * @param count Searches entries 0 to count - 1.
+     * @param job Receives progress in entries; cancelling it stops the search.
+     * @return The indexes of the matching entries, in order.
+     * @throws java.util.concurrent.CancellationException If the job is cancelled.
+     */
+    int[] search(String query, int count, Numerics.Job job) throws IOException {
+        byte[] needle = lowerCase(query.getBytes(StandardCharsets.UTF_8));
+        long[] from;
+        long[] to;
+        int onDisk;
+        List<Entry> buffered;
+        synchronized (this) {
+            // Offsets below written never change, so the arrays can be read unlocked
+            from = starts;
+            to = ends;
+            onDisk = Math.min(written, count);
+            buffered = new ArrayList<>(flushing);
+            buffered.addAll(pending);
+            buffered = buffered.subList(0, Math.max(0, Math.min(count - written, buffered.size())));
+        }
+        job.start(onDisk + buffered.size());
+
+        int[] matches = new int[64];
+        int found = 0;
+        int first = 0;
+        while (first < onDisk) {
+            job.checkCancelled();
+            int last = first + 1;
+            while (last < onDisk && to[last] - from[first] <= READ_BLOCK) {
+                last++;
+            }
+            byte[] block = lowerCase(read(from[first], to[last - 1]));
+            for (int i = first; i < last; i++) {
+                int start = (int) (from[i] - from[first]);
+                int end = (int) (to[i] - from[first]);
+                if (contains(block, start, end, needle)) {
+                    if (found == matches.length) {
+                        matches = Arrays.copyOf(matches, found * 2);
+                    }
+                    matches[found++] = i;
+                }
+            }
+            job.advance(last - first);
+            first = last;
+        }
+        for (int i = 0; i < buffered.size(); i++) {
+            if (matches(buffered.get(i), query)) {
+                if (found == matches.length) {
+                    matches = Arrays.copyOf(matches, found * 2);
+                }
+                matches[found++] = onDisk + i;
+            }
+        }
+        return Arrays.copyOf(matches, found);
+    }
+
+    /**
+     * @return Whether entry contains query, compared like {@link #search}.
+     */
+    static boolean matches(Entry entry, String query) {
+        String needle = lowerAscii(query);
+        return lowerAscii(entry.expression).contains(needle) || lowerAscii(entry.result).contains(needle);
+    }
+
+    private static String lowerAscii(String text) {
+        return new String(lowerCase(text.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] lowerCase(byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] >= 'A' && bytes[i] <= 'Z') {
+                bytes[i] += 'a' - 'A';
+            }
+        }
+        return bytes;
+    }
+
+    private static boolean contains(byte[] haystack, int from, int to, byte[] needle) {
+        int last = to - needle.length;
+        outer:
+        for (int i = from; i <= last; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,279 @@
+package scientificcalc;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * HistoryPanel
+ * Side panel listing the calculation history from a {@link HistoryLog}.
+ *
+ * The list is virtualized: its model reads entries from the log only for
+ * the rows being painted, and every row has the same fixed height so the
+ * list never measures the entries it does not show. The search field
+ * filters in a background worker; double-click or Enter puts the selected
+ * expression back into the calculator.
+ */
+final class HistoryPanel extends JPanel {
+
+    private static final int SEARCH_DELAY = 150;
+
+    private final HistoryModel model = new HistoryModel();
+    private final JList<HistoryLog.Entry> list = new JList<>(model);
+    private final JTextField search = new JTextField();
+    private final JLabel status = new JLabel(" ");
+    private final Timer searchTimer;
+    private final Consumer<String> insert;
+
+    private HistoryLog log;
+    private final List<HistoryLog.Entry> early = new ArrayList<>(); // Recorded before the log opened
+    private Numerics.Job searchJob;
+
+    /**
+     * @param insert Receives an expression the user picked from the history.
+     */
+    HistoryPanel(Consumer<String> insert) {
+        super(new BorderLayout(5, 5));
+        this.insert = insert;
+
+        list.setFont(new Font("Monospaced", Font.PLAIN, 14));
+        list.setFixedCellHeight(22);
+        list.setFixedCellWidth(220);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    insertSelected();
+                }
+            }
+        });
+        list.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "insert");
+        list.getActionMap().put("insert", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                insertSelected();
+            }
+        });
+
+        searchTimer = new Timer(SEARCH_DELAY, e -> startSearch());
+        searchTimer.setRepeats(false);
+        search.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+
+        JPanel top = new JPanel(new BorderLayout(5, 5));
+        top.add(new JLabel("History"), BorderLayout.NORTH);
+        top.add(search, BorderLayout.CENTER);
+        add(top, BorderLayout.NORTH);
+        add(new JScrollPane(list), BorderLayout.CENTER);
+        add(status, BorderLayout.SOUTH);
+        setBorder(BorderFactory.createEmptyBorder(0, 0, 5, 5));
+        status.setText("Loading history...");
+    }
+
+    /**
+     * Opens the log in the background and shows it once it is indexed.
+     */
+    void load(Path file) {
+        new SwingWorker<HistoryLog, Void>() {
+            @Override
+            protected HistoryLog doInBackground() throws Exception {
+                return HistoryLog.open(file);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    attach(get());
+                } catch (ExecutionException ex) {
+                    status.setText("History unavailable: " + ex.getCause().getMessage());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }.execute();
+    }
+
+    private void attach(HistoryLog opened) {
+        log = opened;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                opened.close();
+            } catch (IOException ex) {
+                System.err.println("Could not save the calculation history: " + ex.getMessage());
+            }
+        }, "history-close"));
+        for (HistoryLog.Entry entry : early) {
+            log.append(entry.expression, entry.result);
+        }
+        early.clear();
+        model.reset();
+        scrollToEnd();
+        updateStatus();
+    }
+
+    /**
+     * Appends a calculation. Called on the EDT.
+     */
+    void record(String expression, String result) {
+        if (log == null) {
+            early.add(new HistoryLog.Entry(expression, result));
+            return;
+        }
+        log.append(expression, result);
+        model.appended(log.size() - 1);
+        scrollToEnd();
+        updateStatus();
+    }
+
+    private void insertSelected() {
+        HistoryLog.Entry entry = list.getSelectedValue();
+        if (entry != null) {
+            insert.accept(entry.expression);
+        }
+    }
+
+    private void scrollToEnd() {
+        int size = model.getSize();
+        if (size > 0) {
+            list.ensureIndexIsVisible(size - 1);
+        }
+    }
+
+    private void updateStatus() {
+        if (log == null) {
+            return;
+        }
+        int total = log.size();
+        status.setText(model.filter == null
+            ? String.format("%,d entries", total)
+            : String.format("%,d of %,d entries", model.filtered, total));
+    }
+
+    // --- Search ---
+
+    private void startSearch() {
+        if (log == null) {
+            return;
+        }
+        if (searchJob != null) {
+            searchJob.cancel();
+        }
+        String query = search.getText();
+        if (query.isEmpty()) {
+            searchJob = null;
+            model.setFilter(null, null);
+            scrollToEnd();
+            updateStatus();
+            return;
+        }
+        Numerics.Job job = new Numerics.Job();
+        searchJob = job;
+        HistoryLog current = log;
+        int searched = log.size(); // Entries are only appended on this thread
+        status.setText("Searching...");
+        new SwingWorker<int[], Void>() {
+            @Override
+            protected int[] doInBackground() throws Exception {
+                return current.search(query, searched, job);
+            }
+
+            @Override
+            protected void done() {
+                if (job != searchJob) {
+                    return; // A newer search replaced this one
+                }
+                try {
+                    model.setFilter(get(), query);
+                    for (int i = searched; i < current.size(); i++) {
+                        model.appended(i); // Recorded while searching
+                    }
+                    scrollToEnd();
+                    updateStatus();
+                } catch (CancellationException ex) {
+                    // Superseded
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (!(cause instanceof CancellationException)) {
+                        status.setText("Search failed: " + cause.getMessage());
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * All entries of the log, or the matches of the current search. Rows are
+     * read from the log only when the list asks for them.
+     */
+    private final class HistoryModel extends AbstractListModel<HistoryLog.Entry> {
+        int[] filter; // Entry indexes of the search matches, or null for all
+        int filtered;
+        String query;
+
+        @Override
+        public int getSize() {
+            if (log == null) {
+                return 0;
+            }
+            return filter == null ? log.size() : filtered;
+        }
+
+        @Override
+        public HistoryLog.Entry getElementAt(int row) {
+            return log.get(filter == null ? row : filter[row]);
+        }
+
+        void reset() {
+            fireContentsChanged(this, 0, Integer.MAX_VALUE);
+        }
+
+        void setFilter(int[] matches, String query) {
+            filter = matches;
+            filtered = matches == null ? 0 : matches.length;
+            this.query = query;
+            fireContentsChanged(this, 0, Integer.MAX_VALUE);
+        }
+
+        void appended(int index) {
+            if (filter == null) {
+                fireIntervalAdded(this, index, index);
+            } else if (HistoryLog.matches(log.get(index), query)) {
+                if (filtered == filter.length) {
+                    filter = Arrays.copyOf(filter, Math.max(16, filtered * 2));
+                }
+                filter[filtered++] = index;
+                fireIntervalAdded(this, filtered - 1, filtered - 1);
+            }
+        }
+    }
+}
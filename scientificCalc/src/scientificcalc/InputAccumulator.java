@@ -0,0 +1,140 @@
+package scientificcalc;
+
+import java.math.BigDecimal;
+
+/**
+ * InputAccumulator
+ * Builds the number being typed on the keypad directly as a scaled integer
+ * (mantissa and count of fraction digits), so key presses do no parsing or
+ * string concatenation. Text is only rendered when the display asks for it.
+ */
+final class InputAccumulator {
+
+    /** Digits accepted per number; keeps the mantissa exactly representable as a double. */
+    static final int MAX_DIGITS = 15;
+
+    private static final double[] POW10 = new double[MAX_DIGITS + 1];
+
+    static {
+        POW10[0] = 1.0;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10.0;
+        }
+    }
+
+    private long mantissa;      // All digits typed, without the decimal point
+    private int digits;         // Significant digits in the mantissa (leading integer zeros excluded)
+    private int fractionDigits; // Digits typed after the decimal point
+    private boolean point;      // Decimal point typed
+
+    /**
+     * Starts a new number (0).
+     */
+    void reset() {
+        mantissa = 0;
+        digits = 0;
+        fractionDigits = 0;
+        point = false;
+    }
+
+    /**
+     * Appends a digit, ignoring leading zeros and digits beyond {@link #MAX_DIGITS}.
+     */
+    void appendDigit(int digit) {
+        if (mantissa == 0 && digit == 0 && !point) {
+            return; // "0" stays "0"
+        }
+        if (digits >= MAX_DIGITS || fractionDigits >= MAX_DIGITS) {
+            return;
+        }
+        mantissa = mantissa * 10 + digit;
+        if (mantissa != 0) {
+            digits++;
+        }
+        if (point) {
+            fractionDigits++;
+        }
+    }
+
+    /**
+     * Appends the decimal point unless one was already typed.
+     */
+    void appendPoint() {
+        point = true;
+    }
+
+    /**
+     * Removes the last typed character.
+     * @return False if nothing is left to remove, i.e. the number is back to 0.
+     */
+    boolean backspace() {
+        if (fractionDigits > 0) {
+            fractionDigits--;
+            removeLastDigit();
+        } else if (point) {
+            point = false;
+        } else if (mantissa != 0) {
+            removeLastDigit();
+        }
+        return mantissa != 0 || point;
+    }
+
+    private void removeLastDigit() {
+        if (mantissa != 0) {
+            digits--;
+        }
+        mantissa /= 10;
+    }
+
+    /**
+     * @return The typed number; exact to the nearest double since both the
+     *         mantissa and the power of ten are exact doubles.
+     */
+    double value() {
+        return mantissa / POW10[fractionDigits];
+    }
+
+    /**
+     * @return The typed number as an exact decimal.
+     */
+    BigDecimal bigValue() {
+        return BigDecimal.valueOf(mantissa, fractionDigits);
+    }
+
+    /**
+     * Renders the typed number as it should appear on the display, keeping
+     * trailing zeros and a trailing decimal point ("1.50", "3.").
+     */
+    int render(char[] dst, int offset) {
+        int pos = offset;
+        long scale = (long) POW10[fractionDigits];
+        long integer = mantissa / scale;
+        long fraction = mantissa % scale;
+
+        int integerDigits = 1;
+        for (long v = integer; v >= 10; v /= 10) {
+            integerDigits++;
+        }
+        for (int i = pos + integerDigits - 1; i >= pos; i--) {
+            dst[i] = (char) ('0' + integer % 10);
+            integer /= 10;
+        }
+        pos += integerDigits;
+
+        if (point) {
+            dst[pos++] = '.';
+            for (int i = pos + fractionDigits - 1; i >= pos; i--) {
+                dst[i] = (char) ('0' + fraction % 10);
+                fraction /= 10;
+            }
+            pos += fractionDigits;
+        }
+        return pos - offset;
+    }
+
+    @Override
+    public String toString() {
+        char[] buffer = new char[MAX_DIGITS * 2 + 2];
+        return new String(buffer, 0, render(buffer, 0));
+    }
+}
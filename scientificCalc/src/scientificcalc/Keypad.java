@@ -0,0 +1,256 @@
+package scientificcalc;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Keypad
+ * The calculator keys as one component instead of one JButton per key.
+ * Each key is painted from a cached image (one per key for the normal and
+ * the pressed look), clicks are hit-tested against the grid, and pressing a
+ * key repaints only that key's cell.
+ *
+ * The grid has the same geometry as GridLayout(rows, columns, 5, 5); empty
+ * labels leave their cell blank.
+ */
+final class Keypad extends JComponent {
+
+    private static final int GAP = 5;
+
+    private static final Font KEY_FONT = new Font("Inter", Font.BOLD, 18);
+    private static final Color BORDER = new Color(200, 200, 200);
+    private static final Color DARK_TEXT = new Color(30, 30, 30);
+    private static final Color DIGIT = new Color(240, 240, 240);
+    private static final Color OPERATOR = new Color(59, 130, 246);
+    private static final Color CLEAR = new Color(239, 68, 68);
+    private static final Color UTILITY = new Color(229, 231, 235);
+
+    private final String[] labels;
+    private final Runnable[] actions;
+    private final Color[] backgrounds;
+    private final Color[] foregrounds;
+    private final int rows;
+    private final int columns;
+
+    // Glyph cache for the current cell size; rebuilt lazily after a resize
+    private final BufferedImage[] normal;
+    private final BufferedImage[] pressed;
+    private int cellWidth = -1;
+    private int cellHeight = -1;
+
+    private int pressedKey = -1;
+    private int hoverKey = -1;
+
+    /**
+     * @param labels The key labels in row-major order; null or "" for a blank cell.
+     * @param action Creates the action run when a key is clicked, once per key.
+     */
+    Keypad(String[] labels, int rows, int columns, Function<String, Runnable> action) {
+        this.labels = labels.clone();
+        this.rows = rows;
+        this.columns = columns;
+        int keys = rows * columns;
+        actions = new Runnable[keys];
+        backgrounds = new Color[keys];
+        foregrounds = new Color[keys];
+        normal = new BufferedImage[keys];
+        pressed = new BufferedImage[keys];
+
+        for (int i = 0; i < keys && i < labels.length; i++) {
+            String label = labels[i];
+            if (label == null || label.isEmpty()) {
+                continue;
+            }
+            actions[i] = action.apply(label);
+            style(i, label);
+        }
+
+        setOpaque(false);
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (SwingUtilities.isLeftMouseButton(e)) {
+                    setPressed(keyAt(e.getX(), e.getY()));
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                int key = pressedKey;
+                setPressed(-1);
+                if (key >= 0 && key == keyAt(e.getX(), e.getY())) {
+                    actions[key].run();
+                }
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                updateHover(e.getX(), e.getY());
+            }
+
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                updateHover(e.getX(), e.getY());
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                updateHover(-1, -1);
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+    }
+
+    private void style(int key, String label) {
+        if (label.length() == 1 && Character.isDigit(label.charAt(0))) {
+            backgrounds[key] = DIGIT;
+            foregrounds[key] = DARK_TEXT;
+        } else if (label.equals("=") || label.equals("+") || label.equals("-")
+                || label.equals("*") || label.equals("/")) {
+            backgrounds[key] = OPERATOR; // Blue operators
+            foregrounds[key] = Color.WHITE;
+        } else if (label.equals("C") || label.equals("BkSp")) {
+            backgrounds[key] = CLEAR; // Red clear/delete
+            foregrounds[key] = Color.WHITE;
+        } else {
+            backgrounds[key] = UTILITY; // Gray scientific/utility
+            foregrounds[key] = DARK_TEXT;
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        return new Dimension(columns * 90 + (columns - 1) * GAP, rows * 70 + (rows - 1) * GAP);
+    }
+
+    // --- Geometry ---
+
+    /**
+     * @return The key under (x, y), or -1 for a gap, a blank cell or outside.
+     */
+    int keyAt(int x, int y) {
+        if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight()) {
+            return -1;
+        }
+        layoutCells();
+        int column = Math.min(columns - 1, x / (cellWidth + GAP));
+        int row = Math.min(rows - 1, y / (cellHeight + GAP));
+        if (x - column * (cellWidth + GAP) >= cellWidth || y - row * (cellHeight + GAP) >= cellHeight) {
+            return -1;
+        }
+        int key = row * columns + column;
+        return actions[key] != null ? key : -1;
+    }
+
+    private Rectangle cellBounds(int key) {
+        layoutCells();
+        int row = key / columns;
+        int column = key % columns;
+        return new Rectangle(column * (cellWidth + GAP), row * (cellHeight + GAP), cellWidth, cellHeight);
+    }
+
+    /**
+     * Sizes the cells like GridLayout does and drops the glyph cache when
+     * the size changed.
+     */
+    private void layoutCells() {
+        int width = Math.max(1, (getWidth() - (columns - 1) * GAP) / columns);
+        int height = Math.max(1, (getHeight() - (rows - 1) * GAP) / rows);
+        if (width != cellWidth || height != cellHeight) {
+            cellWidth = width;
+            cellHeight = height;
+            Arrays.fill(normal, null);
+            Arrays.fill(pressed, null);
+        }
+    }
+
+    // --- Interaction ---
+
+    private void setPressed(int key) {
+        if (key == pressedKey) {
+            return;
+        }
+        int previous = pressedKey;
+        pressedKey = key;
+        repaintKey(previous);
+        repaintKey(key);
+    }
+
+    private void updateHover(int x, int y) {
+        int key = keyAt(x, y);
+        if (key == hoverKey) {
+            return;
+        }
+        hoverKey = key;
+        setCursor(key >= 0 ? Cursor.getPredefinedCursor(Cursor.HAND_CURSOR) : null);
+    }
+
+    private void repaintKey(int key) {
+        if (key >= 0) {
+            repaint(cellBounds(key));
+        }
+    }
+
+    // --- Painting ---
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        layoutCells();
+        Rectangle clip = g.getClipBounds();
+        for (int key = 0; key < actions.length; key++) {
+            if (actions[key] == null) {
+                continue;
+            }
+            Rectangle cell = cellBounds(key);
+            if (clip != null && !clip.intersects(cell)) {
+                continue;
+            }
+            g.drawImage(glyph(key), cell.x, cell.y, null);
+        }
+    }
+
+    private BufferedImage glyph(int key) {
+        BufferedImage[] cache = key == pressedKey ? pressed : normal;
+        BufferedImage image = cache[key];
+        if (image == null) {
+            image = renderKey(key, key == pressedKey);
+            cache[key] = image;
+        }
+        return image;
+    }
+
+    private BufferedImage renderKey(int key, boolean down) {
+        BufferedImage image = getGraphicsConfiguration() != null
+            ? getGraphicsConfiguration().createCompatibleImage(cellWidth, cellHeight)
+            : new BufferedImage(cellWidth, cellHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            Color background = backgrounds[key];
+            g.setColor(down ? background.darker() : background);
+            g.fillRect(0, 0, cellWidth, cellHeight);
+            g.setColor(BORDER);
+            g.drawRect(0, 0, cellWidth - 1, cellHeight - 1);
+
+            g.setFont(KEY_FONT);
+            g.setColor(foregrounds[key]);
+            FontMetrics metrics = g.getFontMetrics();
+            String label = labels[key];
+            int x = (cellWidth - metrics.stringWidth(label)) / 2;
+            int y = (cellHeight - metrics.getHeight()) / 2 + metrics.getAscent();
+            g.drawString(label, x, y);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+}
@@ -0,0 +1,112 @@
+package scientificcalc;
+
+/**
+ * MathKernels
+ * The calculator's built-in operations as plain static methods, one per key.
+ * {@link FunctionRegistry} binds them to keys and expression names; keeping
+ * them static lets generated code call them directly.
+ */
+final class MathKernels {
+
+    private MathKernels() {
+    }
+
+    // --- Arithmetic and Power ---
+
+    static double add(double num1, double num2) {
+        return num1 + num2;
+    }
+
+    static double subtract(double num1, double num2) {
+        return num1 - num2;
+    }
+
+    static double multiply(double num1, double num2) {
+        return num1 * num2;
+    }
+
+    static double divide(double num1, double num2) {
+        if (num2 == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        return num1 / num2;
+    }
+
+    static double power(double num1, double num2) {
+        return Math.pow(num1, num2);
+    }
+
+    // --- Scientific functions (trigonometry works in degrees) ---
+
+    static double sin(double value) {
+        return Math.sin(Math.toRadians(value));
+    }
+
+    static double cos(double value) {
+        return Math.cos(Math.toRadians(value));
+    }
+
+    static double tan(double value) {
+        return Math.tan(Math.toRadians(value));
+    }
+
+    static double asin(double value) {
+        return Math.toDegrees(Math.asin(value));
+    }
+
+    static double acos(double value) {
+        return Math.toDegrees(Math.acos(value));
+    }
+
+    static double atan(double value) {
+        return Math.toDegrees(Math.atan(value));
+    }
+
+    static double log(double value) {
+        if (value <= 0) throw new ArithmeticException("Invalid input for log");
+        return Math.log10(value);
+    }
+
+    static double ln(double value) {
+        if (value <= 0) throw new ArithmeticException("Invalid input for ln");
+        return Math.log(value);
+    }
+
+    static double sqrt(double value) {
+        if (value < 0) throw new ArithmeticException("Cannot take sqrt of negative");
+        return Math.sqrt(value);
+    }
+
+    static double square(double value) {
+        return value * value;
+    }
+
+    static double reciprocal(double value) {
+        if (value == 0) throw new ArithmeticException("Cannot divide by zero");
+        return 1.0 / value;
+    }
+
+    static double percent(double value) {
+        return value / 100.0;
+    }
+
+    static double negate(double value) {
+        return -value;
+    }
+
+    static double factorial(double value) {
+        // Factorial: check for non-integer or negative
+        if (value != (long) value || value < 0) {
+            throw new ArithmeticException("Invalid input for !");
+        }
+        return ScientificCalc.factorial((long) value);
+    }
+
+    static double deg(double value) {
+        return Math.toDegrees(value);
+    }
+
+    static double rad(double value) {
+        return Math.toRadians(value);
+    }
+}
@@ -0,0 +1,180 @@
+package scientificcalc;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Node
+ * An immutable node of a compiled expression tree. Evaluation works on
+ * primitive doubles only, so evaluating a tree does not allocate. Precision
+ * mode evaluates an unfolded tree over BigDecimal with {@link BigMath}.
+ */
+abstract class Node {
+
+    /**
+     * Evaluates this node.
+     * @param vars Variable values, indexed by the slot assigned at compile time.
+     * @return The value of this node.
+     */
+    abstract double eval(double[] vars);
+
+    /**
+     * Evaluates this node with the precision-mode semantics of {@link BigMath}.
+     * @param mc The precision of every intermediate result.
+     * @throws IllegalArgumentException If the node depends on a variable.
+     */
+    abstract BigDecimal evalBig(MathContext mc);
+
+    /**
+     * @return True if this node does not depend on any variable.
+     */
+    abstract boolean isConstant();
+
+    // --- Leaf nodes ---
+
+    static final class Constant extends Node {
+        final double value;
+        final BigDecimal exact; // The literal as written, or null for a computed value
+
+        Constant(double value) {
+            this(value, null);
+        }
+
+        Constant(double value, BigDecimal exact) {
+            this.value = value;
+            this.exact = exact;
+        }
+
+        @Override
+        double eval(double[] vars) {
+            return value;
+        }
+
+        @Override
+        BigDecimal evalBig(MathContext mc) {
+            if (exact != null) {
+                return exact;
+            }
+            return BigMath.toBig(value, mc);
+        }
+
+        @Override
+        boolean isConstant() {
+            return true;
+        }
+    }
+
+    /**
+     * A constant function such as PI, which precision mode computes to the
+     * precision instead of widening its double value.
+     */
+    static final class NamedConstant extends Node {
+        final CalcFunction function;
+
+        NamedConstant(CalcFunction function) {
+            this.function = function;
+        }
+
+        @Override
+        double eval(double[] vars) {
+            return function.value();
+        }
+
+        @Override
+        BigDecimal evalBig(MathContext mc) {
+            return BigMath.applyScientific(function, BigDecimal.ZERO, mc);
+        }
+
+        @Override
+        boolean isConstant() {
+            return true;
+        }
+    }
+
+    static final class Variable extends Node {
+        final String name;
+        final int slot;
+
+        Variable(String name, int slot) {
+            this.name = name;
+            this.slot = slot;
+        }
+
+        @Override
+        double eval(double[] vars) {
+            return vars[slot];
+        }
+
+        @Override
+        BigDecimal evalBig(MathContext mc) {
+            throw new IllegalArgumentException("No value for variable '" + name + "'");
+        }
+
+        @Override
+        boolean isConstant() {
+            return false;
+        }
+    }
+
+    // --- Operator nodes ---
+
+    /**
+     * A unary function, bound at compile time to the same {@link CalcFunction}
+     * as the calculator's scientific button of that name.
+     */
+    static final class Function extends Node {
+        final CalcFunction function;
+        final Node operand;
+
+        Function(CalcFunction function, Node operand) {
+            this.function = function;
+            this.operand = operand;
+        }
+
+        @Override
+        double eval(double[] vars) {
+            return function.apply(operand.eval(vars));
+        }
+
+        @Override
+        BigDecimal evalBig(MathContext mc) {
+            return BigMath.applyScientific(function, operand.evalBig(mc), mc);
+        }
+
+        @Override
+        boolean isConstant() {
+            return operand.isConstant();
+        }
+    }
+
+    /**
+     * A binary operator or two-argument function, bound at compile time to the
+     * same {@link CalcFunction} as the calculator's arithmetic button of that name.
+     */
+    static final class Binary extends Node {
+        final CalcFunction function;
+        final Node left;
+        final Node right;
+
+        Binary(CalcFunction function, Node left, Node right) {
+            this.function = function;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double eval(double[] vars) {
+            return function.apply(left.eval(vars), right.eval(vars));
+        }
+
+        @Override
+        BigDecimal evalBig(MathContext mc) {
+            return BigMath.performOperation(left.evalBig(mc), right.evalBig(mc), function, mc);
+        }
+
+        @Override
+        boolean isConstant() {
+            return left.isConstant() && right.isConstant();
+        }
+    }
+}
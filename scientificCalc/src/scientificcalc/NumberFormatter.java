@@ -0,0 +1,293 @@
+package scientificcalc;
+
+import java.math.BigInteger;
+
+/**
+ * NumberFormatter
+ * Fast double-to-text conversion producing the shortest decimal that reads
+ * back as the same double, optionally rounded to fewer significant digits.
+ *
+ * Digit generation follows the Schubfach algorithm (R. Giulietti, "The
+ * Schubfach way to render doubles"): the shortest digits are found with a
+ * few 128-bit multiplications by a cached power of ten, without BigInteger
+ * or String allocation. The power-of-ten table is built once at class load.
+ * Rounding to fewer digits starts from the exact value, which the same
+ * multiplication yields, never from the shortest digits, so a value is
+ * never rounded twice.
+ *
+ * All methods are static and write into a caller-supplied char buffer, so
+ * the formatter is thread-safe as long as each thread uses its own buffer.
+ */
+final class NumberFormatter {
+
+    /** Enough room for any output: sign, 17 digits, point, 8 leading zeros, exponent. */
+    static final int MAX_CHARS = 32;
+
+    /** Significant digits needed for every double to round-trip. */
+    static final int ROUND_TRIP_DIGITS = 17;
+
+    // --- IEEE 754 binary64 parameters ---
+    private static final int P = 53;
+    private static final int Q_MIN = -1074;
+    private static final long C_MIN = 1L << (P - 1);
+    private static final long C_TINY = 3;
+    private static final int BQ_MASK = 0x7ff;
+    private static final long T_MASK = (1L << (P - 1)) - 1;
+    private static final long MASK_63 = (1L << 63) - 1;
+
+    // --- Powers of ten: 10^e ~ g * 2^r with 2^125 <= g < 2^126, g split in two 63-bit halves ---
+    private static final int E_MIN = -300;
+    private static final int E_MAX = 330;
+    private static final long[] G = new long[2 * (E_MAX - E_MIN + 1)];
+
+    private static final long[] POW10 = new long[19];
+
+    static {
+        BigInteger mask63 = BigInteger.valueOf(MASK_63);
+        for (int e = E_MIN; e <= E_MAX; e++) {
+            int r = flog2pow10(e) - 125;
+            BigInteger g;
+            if (e >= 0) {
+                BigInteger pow = BigInteger.TEN.pow(e);
+                g = r >= 0 ? pow.shiftRight(r) : pow.shiftLeft(-r);
+            } else {
+                g = BigInteger.ONE.shiftLeft(-r).divide(BigInteger.TEN.pow(-e));
+            }
+            g = g.add(BigInteger.ONE);
+            int index = 2 * (e - E_MIN);
+            G[index] = g.shiftRight(63).longValue();
+            G[index + 1] = g.and(mask63).longValue();
+        }
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private NumberFormatter() {
+    }
+
+    /**
+     * Formats a finite double. Numbers with a magnitude in [1e-8, 1e12) are
+     * written in plain notation, all others as d.dddE&lt;exponent&gt;.
+     * @param value The value to format.
+     * @param maxDigits Maximum significant digits (1 to 17); if the shortest
+     *                  round-trip digits are longer, the value is rounded half-even.
+     * @param dst Destination buffer with at least {@link #MAX_CHARS} free chars.
+     * @param offset Where to start writing.
+     * @return The number of chars written.
+     * @throws IllegalArgumentException If value is NaN or infinite.
+     */
+    static int format(double value, int maxDigits, char[] dst, int offset) {
+        long bits = Double.doubleToRawLongBits(value);
+        long t = bits & T_MASK;
+        int bq = (int) (bits >>> (P - 1)) & BQ_MASK;
+        if (bq == BQ_MASK) {
+            throw new IllegalArgumentException("Not a finite number: " + value);
+        }
+
+        int pos = offset;
+        if (bq == 0 && t == 0) {
+            dst[pos++] = '0';
+            return pos - offset;
+        }
+        if (bits < 0) {
+            dst[pos++] = '-';
+        }
+
+        if (bq != 0) {
+            int mq = -Q_MIN + 1 - bq;
+            long c = C_MIN | t;
+            if (0 < mq && mq < P && (c >> mq) << mq == c) {
+                // Fast path: an integer below 2^53
+                return pos - offset + render(c >> mq, 0, c >> mq, 0, false, maxDigits, dst, pos);
+            }
+            return pos - offset + shortest(-mq, c, 0, maxDigits, dst, pos);
+        }
+        // Subnormal
+        return pos - offset + (t < C_TINY
+            ? shortest(Q_MIN, 10 * t, -1, maxDigits, dst, pos)
+            : shortest(Q_MIN, t, 0, maxDigits, dst, pos));
+    }
+
+    /**
+     * Convenience for callers that need a String, e.g. the GUI display.
+     */
+    static String toString(double value, int maxDigits) {
+        char[] buffer = new char[MAX_CHARS];
+        return new String(buffer, 0, format(value, maxDigits, buffer, 0));
+    }
+
+    // --- Schubfach digit generation ---
+
+    /**
+     * Finds the shortest decimal in the rounding interval of c * 2^q and renders it.
+     * @return The number of chars written.
+     */
+    private static int shortest(int q, long c, int dk, int maxDigits, char[] dst, int offset) {
+        int out = (int) c & 0x1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != C_MIN || q == Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            // The interval is asymmetric at a power of two
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(-k) + 2;
+
+        int index = 2 * (-k - E_MIN);
+        long g1 = G[index];
+        long g0 = G[index + 1];
+
+        long vb = rop(g1, g0, cb << h);
+        long vbl = rop(g1, g0, cbl << h);
+        long vbr = rop(g1, g0, cbr << h);
+
+        long s = vb >> 2;
+        if (s >= 100) {
+            // Try one digit less: sp10 = 10 * floor(s / 10)
+            long sp10 = 10 * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                return render(upin ? sp10 : tp10, k, s, k + dk, (vb & 0x3) != 0, maxDigits, dst, offset);
+            }
+        }
+
+        long t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            return render(uin ? s : t, k + dk, s, k + dk, (vb & 0x3) != 0, maxDigits, dst, offset);
+        }
+        // Both candidates are in the interval: pick the closer one, ties to even
+        long cmp = vb - (s + t << 1);
+        return render(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk, s, k + dk, (vb & 0x3) != 0,
+            maxDigits, dst, offset);
+    }
+
+    /** Round-to-odd of (g1 * 2^63 + g0) * cp / 2^127. */
+    private static long rop(long g1, long g0, long cp) {
+        long x1 = Math.multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = Math.multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    /** floor(e * log10(2)) */
+    private static int flog10pow2(int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+
+    /** floor(e * log10(2) + log10(3/4)) */
+    private static int flog10threeQuartersPow2(int e) {
+        return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+    }
+
+    /** floor(e * log2(10)) */
+    private static int flog2pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+
+    // --- Rendering ---
+
+    /**
+     * Writes digits * 10^exponent, or if that is longer than maxDigits
+     * significant digits, the value rounded to maxDigits.
+     * @param floor The value's integer part in units of 10^floorExponent,
+     *              with at least as many digits as the shortest ones.
+     * @param inexact Whether the value has a fraction beyond floor.
+     */
+    private static int render(long digits, int exponent, long floor, int floorExponent, boolean inexact,
+                              int maxDigits, char[] dst, int offset) {
+        while (digits % 10 == 0) {
+            digits /= 10;
+            exponent++;
+        }
+        int length = digitCount(digits);
+        if (length > maxDigits) {
+            // Round the value itself, not its shortest digits
+            int dropped = digitCount(floor) - maxDigits;
+            long divisor = POW10[dropped];
+            long quotient = floor / divisor;
+            long remainder = floor % divisor;
+            long half = divisor / 2;
+            if (remainder > half || remainder == half && (inexact || (quotient & 1) == 1)) {
+                quotient++;
+            }
+            exponent = floorExponent + dropped;
+            digits = quotient;
+            while (digits % 10 == 0) {
+                digits /= 10;
+                exponent++;
+            }
+            length = digitCount(digits);
+        }
+
+        // Power of ten of the leading digit
+        int leading = exponent + length - 1;
+        int pos = offset;
+        if (leading >= -8 && leading < 12) {
+            if (leading < 0) {
+                dst[pos++] = '0';
+                dst[pos++] = '.';
+                for (int i = -1; i > leading; i--) {
+                    dst[pos++] = '0';
+                }
+                pos = writeDigits(digits, length, dst, pos);
+            } else if (exponent >= 0) {
+                pos = writeDigits(digits, length, dst, pos);
+                for (int i = 0; i < exponent; i++) {
+                    dst[pos++] = '0';
+                }
+            } else {
+                // Write the digits and open a gap for the decimal point
+                int point = pos + leading + 1;
+                pos = writeDigits(digits, length, dst, pos);
+                System.arraycopy(dst, point, dst, point + 1, pos - point);
+                dst[point] = '.';
+                pos++;
+            }
+        } else {
+            int start = pos;
+            pos = writeDigits(digits, length, dst, pos + 1);
+            dst[start] = dst[start + 1];
+            if (length > 1) {
+                dst[start + 1] = '.';
+            } else {
+                pos--;
+            }
+            dst[pos++] = 'E';
+            if (leading < 0) {
+                dst[pos++] = '-';
+                leading = -leading;
+            }
+            pos = writeDigits(leading, digitCount(leading), dst, pos);
+        }
+        return pos - offset;
+    }
+
+    private static int writeDigits(long value, int length, char[] dst, int offset) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            dst[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + length;
+    }
+
+    private static int digitCount(long value) {
+        int count = 1;
+        while (count < POW10.length && value >= POW10[count]) {
+            count++;
+        }
+        return count;
+    }
+}
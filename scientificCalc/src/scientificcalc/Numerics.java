@@ -0,0 +1,389 @@
+package scientificcalc;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Numerics
+ * Root finding, integration and differentiation of one-variable functions,
+ * typically an {@link Expression} entered by the user. The functions are the
+ * calculator's own, so e.g. sin(x) takes x in degrees.
+ *
+ * Integration is adaptive Gauss-Kronrod (7/15 points). Sub-intervals whose
+ * error is still too large are split in two and refined as fork/join tasks,
+ * so wide or difficult intervals use all cores. Long computations take a
+ * {@link Job} that reports progress and can be cancelled from another thread.
+ */
+final class Numerics {
+
+    /** Relative accuracy aimed for by all methods. */
+    static final double TOLERANCE = 1e-12;
+
+    private static final int MAX_ITERATIONS = 200;
+    private static final int MAX_DEPTH = 48;
+
+    // Intervals narrower than this fraction of the whole are refined serially
+    private static final double FORK_FRACTION = 1.0 / 4096;
+
+    // Gauss-Kronrod 7/15 nodes on [-1, 1] (symmetric, node 0 last) and weights
+    private static final double[] XGK = {
+        0.991455371120812639206854697526329, 0.949107912342758524526189684047851,
+        0.864864423359769072789712788640926, 0.741531185599394439863864773280788,
+        0.586087235467691130294144845693013, 0.405845151377397166906606412076961,
+        0.207784955007898467600689403773245, 0.000000000000000000000000000000000
+    };
+    private static final double[] WGK = {
+        0.022935322010529224963732008058970, 0.063092092629978553290700663189204,
+        0.104790010322250183839876322541518, 0.140653259715525918745189590510238,
+        0.169004726639267902826583426598550, 0.190350578064785409913256402421014,
+        0.204432940075298892414161999234649, 0.209482141084727828012999174891714
+    };
+    private static final double[] WG = { // Gauss weights for XGK[1], XGK[3], XGK[5], XGK[7]
+        0.129484966168869693270611432679082, 0.279705391489276667901467771423780,
+        0.381830050505118944950369775488975, 0.417959183673469387755102040816327
+    };
+
+    private Numerics() {
+    }
+
+    /**
+     * Cancellation flag and progress of one computation, shared between the
+     * worker threads and the dialog showing it.
+     */
+    static final class Job {
+        private volatile boolean cancelled;
+        private final DoubleAdder done = new DoubleAdder();
+        private volatile double total = 1;
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @return Progress from 0 to 1; safe to call from any thread.
+         */
+        double progress() {
+            return Math.min(1, done.sum() / total);
+        }
+
+        /**
+         * Resets progress; it then runs from 0 to total units of work.
+         */
+        void start(double total) {
+            done.reset();
+            this.total = total;
+        }
+
+        void advance(double units) {
+            done.add(units);
+        }
+
+        /**
+         * @throws CancellationException If the job was cancelled.
+         */
+        void checkCancelled() {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+        }
+    }
+
+    /**
+     * The result of an integration.
+     */
+    static final class Integral {
+        final double value;
+        final double error;
+        final long evaluations;
+
+        Integral(double value, double error, long evaluations) {
+            this.value = value;
+            this.error = error;
+            this.evaluations = evaluations;
+        }
+    }
+
+    /**
+     * Wraps a one-variable expression as a function; each sample goes
+     * through {@link Expression#evaluate(double)}, which allocates nothing.
+     * @throws IllegalArgumentException If the expression has more than one variable.
+     */
+    static DoubleUnaryOperator function(Expression expression) {
+        if (expression.variables().size() > 1) {
+            throw new IllegalArgumentException("Expected one variable, found " + expression.variables());
+        }
+        return x -> expression.evaluate(x);
+    }
+
+    // --- Root finding ---
+
+    /**
+     * Finds a root of f in [a, b]. Uses Brent's method when f changes sign over
+     * the interval, and Newton's method started from the midpoint otherwise.
+     * @throws ArithmeticException If no root is found or f is undefined at a visited point.
+     */
+    static double solve(DoubleUnaryOperator f, double a, double b, Job job) {
+        double fa = f.applyAsDouble(a);
+        double fb = f.applyAsDouble(b);
+        if (fa == 0) return a;
+        if (fb == 0) return b;
+        if (Math.signum(fa) != Math.signum(fb)) {
+            return brent(f, a, fa, b, fb, job);
+        }
+        return newton(f, (a + b) / 2, job);
+    }
+
+    /**
+     * Brent's method: inverse quadratic interpolation or secant steps, falling
+     * back to bisection, so it always converges on a sign change.
+     */
+    static double brent(DoubleUnaryOperator f, double a, double fa, double b, double fb, Job job) {
+        if (Math.abs(fa) < Math.abs(fb)) {
+            double t = a; a = b; b = t;
+            t = fa; fa = fb; fb = t;
+        }
+        double c = a, fc = fa, d = b - a;
+        boolean bisected = true;
+        job.start(MAX_ITERATIONS);
+
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            job.checkCancelled();
+            job.advance(1);
+            double tol = 2 * Math.ulp(b) + TOLERANCE * Math.abs(b);
+            if (fb == 0 || Math.abs(b - a) <= tol) {
+                return b;
+            }
+
+            double s;
+            if (fa != fc && fb != fc) {
+                s = a * fb * fc / ((fa - fb) * (fa - fc))
+                  + b * fa * fc / ((fb - fa) * (fb - fc))
+                  + c * fa * fb / ((fc - fa) * (fc - fb));
+            } else {
+                s = b - fb * (b - a) / (fb - fa);
+            }
+
+            double mid = (3 * a + b) / 4;
+            boolean outside = (s < Math.min(mid, b) || s > Math.max(mid, b));
+            boolean slow = bisected ? Math.abs(s - b) >= Math.abs(b - c) / 2 : Math.abs(s - b) >= Math.abs(c - d) / 2;
+            boolean tiny = bisected ? Math.abs(b - c) < tol : Math.abs(c - d) < tol;
+            if (outside || slow || tiny) {
+                s = (a + b) / 2;
+                bisected = true;
+            } else {
+                bisected = false;
+            }
+
+            double fs = f.applyAsDouble(s);
+            d = c;
+            c = b;
+            fc = fb;
+            if (Math.signum(fa) != Math.signum(fs)) {
+                b = s;
+                fb = fs;
+            } else {
+                a = s;
+                fa = fs;
+            }
+            if (Math.abs(fa) < Math.abs(fb)) {
+                double t = a; a = b; b = t;
+                t = fa; fa = fb; fb = t;
+            }
+        }
+        throw new ArithmeticException("No convergence");
+    }
+
+    /**
+     * Newton's method with numerical derivatives.
+     */
+    static double newton(DoubleUnaryOperator f, double x, Job job) {
+        job.start(MAX_ITERATIONS);
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            job.checkCancelled();
+            job.advance(1);
+            double fx = f.applyAsDouble(x);
+            if (fx == 0) {
+                return x;
+            }
+            double slope = derivative(f, x);
+            if (slope == 0 || !Double.isFinite(slope)) {
+                throw new ArithmeticException("No root found (flat at " + x + ")");
+            }
+            double next = x - fx / slope;
+            if (Math.abs(next - x) <= TOLERANCE * Math.max(1, Math.abs(next))) {
+                return next;
+            }
+            x = next;
+        }
+        throw new ArithmeticException("No convergence");
+    }
+
+    // --- Differentiation ---
+
+    /**
+     * f'(x) by central differences with Richardson extrapolation: each step
+     * halves h and cancels the next error term, stopping when the error grows.
+     */
+    static double derivative(DoubleUnaryOperator f, double x) {
+        final int levels = 8;
+        double[] previous = new double[levels];
+        double[] current = new double[levels];
+        double h = 0.1 * Math.max(1, Math.abs(x));
+        double best = Double.NaN;
+        double bestError = Double.MAX_VALUE;
+
+        previous[0] = (f.applyAsDouble(x + h) - f.applyAsDouble(x - h)) / (2 * h);
+        for (int i = 1; i < levels; i++) {
+            h /= 2;
+            current[0] = (f.applyAsDouble(x + h) - f.applyAsDouble(x - h)) / (2 * h);
+            double factor = 4;
+            for (int j = 1; j <= i; j++) {
+                current[j] = current[j - 1] + (current[j - 1] - previous[j - 1]) / (factor - 1);
+                factor *= 4;
+                double error = Math.max(Math.abs(current[j] - current[j - 1]), Math.abs(current[j] - previous[j - 1]));
+                if (error < bestError) {
+                    bestError = error;
+                    best = current[j];
+                }
+            }
+            if (Math.abs(current[i] - previous[i - 1]) >= 2 * bestError) {
+                break; // Round-off now dominates
+            }
+            double[] t = previous; previous = current; current = t;
+        }
+        return best;
+    }
+
+    // --- Integration ---
+
+    /**
+     * Integrates f over [a, b] (a may exceed b) on the common fork/join pool.
+     * @throws ArithmeticException If f is undefined somewhere in the interval.
+     * @throws java.util.concurrent.CancellationException If the job is cancelled.
+     */
+    static Integral integrate(DoubleUnaryOperator f, double a, double b, Job job) {
+        if (a == b) {
+            return new Integral(0, 0, 0);
+        }
+        if (a > b) {
+            Integral flipped = integrate(f, b, a, job);
+            return new Integral(-flipped.value, flipped.error, flipped.evaluations);
+        }
+        job.start(b - a);
+        LongAdder evaluations = new LongAdder();
+        Segment whole = new Segment(f, a, b, 0, job, evaluations, (b - a) * FORK_FRACTION);
+        // Absolute tolerance relative to a first estimate of the integral of |f|
+        double scale = SegmentTask.kronrod(whole)[2];
+        double tolerance = Math.max(TOLERANCE * scale, Double.MIN_NORMAL);
+        double[] result = ForkJoinPool.commonPool().invoke(new SegmentTask(whole, tolerance));
+        return new Integral(result[0], result[1], evaluations.sum());
+    }
+
+    /**
+     * Integration state shared by all tasks of one call.
+     */
+    private static final class Segment {
+        final DoubleUnaryOperator f;
+        final double a, b;
+        final int depth;
+        final Job job;
+        final LongAdder evaluations;
+        final double forkWidth;
+
+        Segment(DoubleUnaryOperator f, double a, double b, int depth, Job job, LongAdder evaluations, double forkWidth) {
+            this.f = f;
+            this.a = a;
+            this.b = b;
+            this.depth = depth;
+            this.job = job;
+            this.evaluations = evaluations;
+            this.forkWidth = forkWidth;
+        }
+
+        Segment child(double from, double to) {
+            return new Segment(f, from, to, depth + 1, job, evaluations, forkWidth);
+        }
+    }
+
+    /**
+     * Integrates one segment, splitting it while the Kronrod estimate and the
+     * embedded Gauss estimate disagree by more than the (absolute) tolerance,
+     * which is shared equally by the two halves.
+     * Result: {value, error estimate}.
+     */
+    private static final class SegmentTask extends RecursiveTask<double[]> {
+        private final Segment segment;
+        private final double tolerance;
+
+        SegmentTask(Segment segment, double tolerance) {
+            this.segment = segment;
+            this.tolerance = tolerance;
+        }
+
+        @Override
+        protected double[] compute() {
+            return integrate(segment, tolerance);
+        }
+
+        private static double[] integrate(Segment s, double tolerance) {
+            s.job.checkCancelled();
+            double[] estimate = kronrod(s);
+            if (!Double.isFinite(estimate[0])) {
+                throw new ArithmeticException("Integral diverges near x = " + (s.a + s.b) / 2);
+            }
+            double mid = (s.a + s.b) / 2;
+            if (estimate[1] <= tolerance || s.depth >= MAX_DEPTH || mid <= s.a || mid >= s.b) {
+                s.job.advance(s.b - s.a);
+                return new double[]{estimate[0], estimate[1]};
+            }
+
+            Segment left = s.child(s.a, mid);
+            Segment right = s.child(mid, s.b);
+            double half = tolerance / 2;
+            double[] l, r;
+            if (s.b - s.a > s.forkWidth) {
+                SegmentTask task = new SegmentTask(left, half);
+                task.fork();
+                r = integrate(right, half);
+                l = task.join();
+            } else {
+                l = integrate(left, half);
+                r = integrate(right, half);
+            }
+            return new double[]{l[0] + r[0], l[1] + r[1]};
+        }
+
+        /**
+         * One 15-point Kronrod estimate with the 7-point Gauss rule for the error.
+         * Result: {value, error estimate, integral of |f|}.
+         */
+        static double[] kronrod(Segment s) {
+            double center = (s.a + s.b) / 2;
+            double halfLength = (s.b - s.a) / 2;
+            double fc = s.f.applyAsDouble(center);
+            double kronrod = fc * WGK[7];
+            double gauss = fc * WG[3];
+            double absolute = Math.abs(fc) * WGK[7];
+            for (int i = 0; i < 7; i++) {
+                double dx = halfLength * XGK[i];
+                double f1 = s.f.applyAsDouble(center - dx);
+                double f2 = s.f.applyAsDouble(center + dx);
+                kronrod += WGK[i] * (f1 + f2);
+                absolute += WGK[i] * (Math.abs(f1) + Math.abs(f2));
+                if (i % 2 == 1) {
+                    gauss += WG[i / 2] * (f1 + f2);
+                }
+            }
+            s.evaluations.add(15);
+            return new double[]{kronrod * halfLength, Math.abs((kronrod - gauss) * halfLength), absolute * halfLength};
+        }
+    }
+}
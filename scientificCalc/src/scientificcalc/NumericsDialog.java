@@ -0,0 +1,173 @@
+package scientificcalc;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * NumericsDialog
+ * Solve, integrate and differentiate f(x) with {@link Numerics}. Each
+ * computation runs in a SwingWorker; a timer polls its progress into the
+ * progress bar, so the dialog stays responsive and can cancel it.
+ */
+final class NumericsDialog {
+
+    private static final int PROGRESS_STEPS = 1000;
+
+    private final JDialog dialog;
+    private final JTextField expressionField = new JTextField("x^3 - 2*x - 5", 22);
+    private final JTextField fromField = new JTextField("0", 8);
+    private final JTextField toField = new JTextField("3", 8);
+    private final JTextField result = new JTextField(28);
+    private final JProgressBar progress = new JProgressBar(0, PROGRESS_STEPS);
+    private final JButton cancelButton = new JButton("Cancel");
+    private final JButton[] actionButtons;
+
+    // Running computation, or null
+    private SwingWorker<String, Void> worker;
+    private Numerics.Job job;
+    private final Timer progressTimer;
+
+    private NumericsDialog(Frame owner) {
+        dialog = new JDialog(owner, "Solve / Integrate / Differentiate", false);
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                cancel(); // A closed dialog has no one to show the result to
+            }
+        });
+
+        JButton solveButton = new JButton("Solve f(x) = 0 in [a, b]");
+        JButton integrateButton = new JButton("Integrate from a to b");
+        JButton derivativeButton = new JButton("f'(a)");
+        actionButtons = new JButton[]{solveButton, integrateButton, derivativeButton};
+
+        solveButton.addActionListener(e -> start("x = ", (f, a, b, job) ->
+                ScientificCalc.formatResult(Numerics.solve(f, a, b, job))));
+        integrateButton.addActionListener(e -> start("∫ = ", (f, a, b, job) -> {
+            Numerics.Integral integral = Numerics.integrate(f, a, b, job);
+            return ScientificCalc.formatResult(integral.value)
+                    + "  (±" + NumberFormatter.toString(integral.error, 2)
+                    + ", " + integral.evaluations + " evaluations)";
+        }));
+        derivativeButton.addActionListener(e -> start("f'(a) = ", (f, a, b, job) ->
+                ScientificCalc.formatResult(Numerics.derivative(f, a))));
+        cancelButton.addActionListener(e -> cancel());
+        cancelButton.setEnabled(false);
+
+        result.setEditable(false);
+        result.setFont(new Font("Inter", Font.BOLD, 16));
+        progress.setStringPainted(true);
+        progressTimer = new Timer(100, e -> progress.setValue((int) (job.progress() * PROGRESS_STEPS)));
+
+        JPanel inputs = new JPanel(new FlowLayout(FlowLayout.LEFT, 6, 4));
+        inputs.add(new JLabel("f(x) ="));
+        inputs.add(expressionField);
+        inputs.add(new JLabel("a"));
+        inputs.add(fromField);
+        inputs.add(new JLabel("b"));
+        inputs.add(toField);
+
+        JPanel actions = new JPanel(new FlowLayout(FlowLayout.LEFT, 6, 4));
+        for (JButton button : actionButtons) {
+            actions.add(button);
+        }
+        actions.add(cancelButton);
+
+        JPanel output = new JPanel(new BorderLayout(5, 5));
+        output.setBorder(BorderFactory.createEmptyBorder(4, 8, 8, 8));
+        output.add(progress, BorderLayout.NORTH);
+        output.add(result, BorderLayout.CENTER);
+        output.add(new JLabel("Trigonometric functions take degrees, as on the keypad."), BorderLayout.SOUTH);
+
+        dialog.setLayout(new BorderLayout());
+        dialog.add(inputs, BorderLayout.NORTH);
+        dialog.add(actions, BorderLayout.CENTER);
+        dialog.add(output, BorderLayout.SOUTH);
+        dialog.pack();
+        dialog.setLocationRelativeTo(owner);
+    }
+
+    /**
+     * Opens a new dialog; closing it disposes it and cancels its computation.
+     * @param owner The calculator frame.
+     */
+    static void open(Frame owner) {
+        new NumericsDialog(owner).dialog.setVisible(true);
+    }
+
+    /**
+     * One of the computations, run off the event thread.
+     */
+    @FunctionalInterface
+    private interface Computation {
+        String run(DoubleUnaryOperator f, double a, double b, Numerics.Job job);
+    }
+
+    private void start(String prefix, Computation computation) {
+        DoubleUnaryOperator f;
+        double a, b;
+        try {
+            f = Numerics.function(Expression.compile(expressionField.getText()));
+            a = Double.parseDouble(fromField.getText().trim());
+            b = Double.parseDouble(toField.getText().trim());
+        } catch (IllegalArgumentException ex) {
+            result.setText("Error: " + ex.getMessage());
+            return;
+        }
+
+        Numerics.Job current = new Numerics.Job();
+        job = current;
+        setRunning(true);
+        worker = new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() {
+                return prefix + computation.run(f, a, b, current);
+            }
+
+            @Override
+            protected void done() {
+                setRunning(false);
+                try {
+                    result.setText(get());
+                    progress.setValue(PROGRESS_STEPS);
+                } catch (CancellationException ex) {
+                    result.setText("Cancelled");
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    result.setText(cause instanceof CancellationException ? "Cancelled" : "Error: " + cause.getMessage());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void cancel() {
+        if (worker != null) {
+            job.cancel(); // Fork/join tasks stop at their next check
+            worker.cancel(false);
+        }
+    }
+
+    private void setRunning(boolean running) {
+        for (JButton button : actionButtons) {
+            button.setEnabled(!running);
+        }
+        cancelButton.setEnabled(running);
+        if (running) {
+            progress.setValue(0);
+            result.setText("Working...");
+            progressTimer.start();
+        } else {
+            progressTimer.stop();
+            worker = null;
+        }
+    }
+}
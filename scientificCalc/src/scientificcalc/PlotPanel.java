@@ -0,0 +1,408 @@
+package scientificcalc;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * PlotPanel
+ * Graphs a one-variable expression such as "x^3 - 2*x" or "sin(x)/x".
+ *
+ * Each view is sampled with up to millions of points by {@link SampleEvaluator}
+ * off the event thread, and reduced to a min/max envelope with one entry per
+ * pixel column, so painting costs the same for any sample count. While the
+ * user drags (pan) or scrolls (zoom), the last envelope is redrawn in the new
+ * view immediately and replaced when the resampled one is ready.
+ * Double-click fits the y range to the curve.
+ */
+class PlotPanel extends JComponent {
+
+    private static final Color GRID = new Color(229, 231, 235);
+    private static final Color AXIS = new Color(107, 114, 128);
+    private static final Color CURVE = new Color(59, 130, 246);
+    private static final Font LABEL_FONT = new Font("Inter", Font.PLAIN, 11);
+    private static final double ZOOM_STEP = 1.2;
+    private static final int MAX_TICKS = 50; // Per axis, in case a deep zoom leaves steps below one ulp
+
+    // --- Plot State ---
+    private SampleEvaluator evaluator;
+    private int totalSamples = 1_000_000;
+    private double xMin = -360, xMax = 360, yMin = -2, yMax = 2;
+    private boolean fitPending = true;
+    private Envelope envelope; // Last sampled view, possibly of a different x range
+
+    // Resampling runs one worker at a time; view changes in between are coalesced
+    private SwingWorker<Envelope, Void> worker;
+    private boolean resamplePending;
+    private Runnable onSampled;
+
+    // Drag state
+    private int dragX, dragY;
+
+    /**
+     * One sampled view: per pixel column, the min and max of f over the column's x range.
+     */
+    static final class Envelope {
+        final double xMin, xMax;
+        final double[] min, max;
+        final long samples;
+        final long nanos;
+
+        Envelope(double xMin, double xMax, double[] min, double[] max, long samples, long nanos) {
+            this.xMin = xMin;
+            this.xMax = xMax;
+            this.min = min;
+            this.max = max;
+            this.samples = samples;
+            this.nanos = nanos;
+        }
+    }
+
+    PlotPanel() {
+        setPreferredSize(new Dimension(800, 500));
+        setBackground(Color.WHITE);
+        setOpaque(true);
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragX = e.getX();
+                dragY = e.getY();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                double dx = (e.getX() - dragX) * (xMax - xMin) / getWidth();
+                double dy = (e.getY() - dragY) * (yMax - yMin) / getHeight();
+                dragX = e.getX();
+                dragY = e.getY();
+                setView(xMin - dx, xMax - dx, yMin + dy, yMax + dy);
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                double factor = Math.pow(ZOOM_STEP, e.getPreciseWheelRotation());
+                double x = toX(e.getX());
+                double y = toY(e.getY());
+                setView(x + (xMin - x) * factor, x + (xMax - x) * factor,
+                        y + (yMin - y) * factor, y + (yMax - y) * factor);
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    fitY();
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                requestSample();
+            }
+        });
+    }
+
+    /**
+     * Plots a new expression over [xMin, xMax], fitting the y range once sampled.
+     * @throws IllegalArgumentException If the expression is invalid or has more than one variable.
+     */
+    void plot(Expression expression, double xMin, double xMax, int totalSamples) {
+        this.evaluator = SampleEvaluator.compile(expression);
+        this.totalSamples = totalSamples;
+        this.xMin = xMin;
+        this.xMax = xMax;
+        this.envelope = null;
+        this.fitPending = true;
+        repaint();
+        requestSample();
+    }
+
+    /**
+     * @param listener Called on the event thread after each resample, e.g. to show timings.
+     */
+    void setOnSampled(Runnable listener) {
+        this.onSampled = listener;
+    }
+
+    Envelope getEnvelope() {
+        return envelope;
+    }
+
+    private void setView(double xMin, double xMax, double yMin, double yMax) {
+        if (!(xMax - xMin > 0) || !(yMax - yMin > 0)) {
+            return; // Zoomed past double resolution
+        }
+        boolean xChanged = xMin != this.xMin || xMax != this.xMax;
+        this.xMin = xMin;
+        this.xMax = xMax;
+        this.yMin = yMin;
+        this.yMax = yMax;
+        repaint(); // Draws the stale envelope in the new view right away
+        if (xChanged) {
+            requestSample();
+        }
+    }
+
+    // --- Sampling ---
+
+    private void requestSample() {
+        if (evaluator == null || getWidth() <= 0) {
+            return;
+        }
+        if (worker != null) {
+            resamplePending = true; // Picked up when the running worker finishes
+            return;
+        }
+
+        SampleEvaluator sampler = evaluator;
+        double from = xMin, to = xMax;
+        int columns = getWidth();
+        int samplesPerColumn = Math.max(1, totalSamples / columns);
+        worker = new SwingWorker<Envelope, Void>() {
+            @Override
+            protected Envelope doInBackground() {
+                long start = System.nanoTime();
+                double[] min = new double[columns];
+                double[] max = new double[columns];
+                sampler.envelope(from, to, columns, samplesPerColumn, min, max);
+                return new Envelope(from, to, min, max, (long) columns * samplesPerColumn, System.nanoTime() - start);
+            }
+
+            @Override
+            protected void done() {
+                worker = null;
+                try {
+                    if (sampler == evaluator) {
+                        envelope = get();
+                        if (fitPending) {
+                            fitPending = false;
+                            fitY();
+                        }
+                        repaint();
+                        if (onSampled != null) {
+                            onSampled.run();
+                        }
+                    }
+                } catch (InterruptedException | ExecutionException ex) {
+                    // Keep the previous envelope
+                }
+                if (resamplePending || getWidth() != columns) {
+                    resamplePending = false;
+                    requestSample();
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    /**
+     * Fits the y range to the middle 96% of the sampled values, so that poles
+     * (e.g. of tan) do not flatten the rest of the curve.
+     */
+    private void fitY() {
+        if (envelope == null) {
+            return;
+        }
+        double[] values = new double[envelope.min.length * 2];
+        int n = 0;
+        for (int i = 0; i < envelope.min.length; i++) {
+            if (Double.isFinite(envelope.min[i])) values[n++] = envelope.min[i];
+            if (Double.isFinite(envelope.max[i])) values[n++] = envelope.max[i];
+        }
+        if (n == 0) {
+            return;
+        }
+        Arrays.sort(values, 0, n);
+        double low = values[(int) (n * 0.02)];
+        double high = values[Math.min(n - 1, (int) (n * 0.98))];
+        double pad = high > low ? (high - low) * 0.1 : Math.max(1, Math.abs(low) * 0.1);
+        setView(xMin, xMax, low - pad, high + pad);
+    }
+
+    // --- Painting ---
+
+    private double toX(int px) {
+        return xMin + (px + 0.5) * (xMax - xMin) / getWidth();
+    }
+
+    private double toY(int py) {
+        return yMax - py * (yMax - yMin) / getHeight();
+    }
+
+    private int toPixelY(double y) {
+        double py = (yMax - y) * getHeight() / (yMax - yMin);
+        // Clamp far off-screen values so int conversion and drawing stay sane
+        return (int) Math.max(-10, Math.min(getHeight() + 10, py));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        int width = getWidth();
+        int height = getHeight();
+        g2.setColor(getBackground());
+        g2.fillRect(0, 0, width, height);
+
+        paintGrid(g2, width, height);
+        Envelope env = envelope;
+        if (env == null) {
+            return;
+        }
+
+        // Map each pixel column of the current view to a column of the sampled
+        // view; during pan/zoom these differ until the resample arrives
+        g2.setColor(CURVE);
+        int columns = env.min.length;
+        double scale = columns / (env.xMax - env.xMin);
+        int prevLow = 0, prevHigh = 0;
+        boolean connected = false;
+        for (int px = 0; px < width; px++) {
+            int c = (int) Math.floor((toX(px) - env.xMin) * scale);
+            if (c < 0 || c >= columns || Double.isNaN(env.min[c])) {
+                connected = false;
+                continue;
+            }
+            int high = toPixelY(env.max[c]);
+            int low = toPixelY(env.min[c]);
+            int top = high, bottom = low;
+            if (connected) {
+                // Join to the previous column so steep curves have no holes
+                top = Math.min(top, prevLow);
+                bottom = Math.max(bottom, prevHigh);
+            }
+            g2.drawLine(px, top, px, bottom);
+            prevLow = low;
+            prevHigh = high;
+            connected = true;
+        }
+    }
+
+    private void paintGrid(Graphics2D g2, int width, int height) {
+        g2.setFont(LABEL_FONT);
+        double xStep = niceStep((xMax - xMin) / 10);
+        double yStep = niceStep((yMax - yMin) / 8);
+
+        // Ticks are counted rather than summed: x += xStep stops moving once xStep is below one ulp of x
+        double xFirst = Math.ceil(xMin / xStep) * xStep;
+        for (int i = 0; i < MAX_TICKS; i++) {
+            double x = xFirst + i * xStep;
+            if (!(x <= xMax)) {
+                break;
+            }
+            int px = (int) ((x - xMin) * width / (xMax - xMin));
+            g2.setColor(GRID);
+            g2.drawLine(px, 0, px, height);
+            g2.setColor(AXIS);
+            g2.drawString(ScientificCalc.formatResult(Math.abs(x) < xStep / 2 ? 0 : x), px + 2, height - 4);
+        }
+        double yFirst = Math.ceil(yMin / yStep) * yStep;
+        for (int i = 0; i < MAX_TICKS; i++) {
+            double y = yFirst + i * yStep;
+            if (!(y <= yMax)) {
+                break;
+            }
+            int py = toPixelY(y);
+            g2.setColor(GRID);
+            g2.drawLine(0, py, width, py);
+            g2.setColor(AXIS);
+            g2.drawString(ScientificCalc.formatResult(Math.abs(y) < yStep / 2 ? 0 : y), 2, py - 2);
+        }
+
+        // Axes
+        g2.setColor(AXIS);
+        if (xMin <= 0 && xMax >= 0) {
+            int px = (int) (-xMin * width / (xMax - xMin));
+            g2.drawLine(px, 0, px, height);
+        }
+        if (yMin <= 0 && yMax >= 0) {
+            int py = toPixelY(0);
+            g2.drawLine(0, py, width, py);
+        }
+    }
+
+    /**
+     * @return The 1, 2 or 5 times power of ten closest above rough.
+     */
+    private static double niceStep(double rough) {
+        double magnitude = Math.pow(10, Math.floor(Math.log10(rough)));
+        double fraction = rough / magnitude;
+        if (fraction <= 1) return magnitude;
+        if (fraction <= 2) return 2 * magnitude;
+        if (fraction <= 5) return 5 * magnitude;
+        return 10 * magnitude;
+    }
+
+    // --- Plot window ---
+
+    /**
+     * Opens a new plot window with an expression field and x range; closing
+     * it disposes it.
+     * @param owner The calculator frame, for positioning.
+     * @param initial The expression to start with.
+     */
+    static void open(Frame owner, String initial) {
+        JFrame window = new JFrame("Plot");
+        window.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE); // Frees the samples on close
+        PlotPanel plot = new PlotPanel();
+
+        JTextField expressionField = new JTextField(initial, 24);
+        JTextField fromField = new JTextField("-360", 6);
+        JTextField toField = new JTextField("360", 6);
+        JComboBox<String> samplesBox = new JComboBox<>(new String[]{"100000", "1000000", "10000000"});
+        samplesBox.setSelectedItem("1000000");
+        JButton plotButton = new JButton("Plot");
+        JLabel status = new JLabel(" ");
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT, 6, 4));
+        controls.add(new JLabel("f(x) ="));
+        controls.add(expressionField);
+        controls.add(new JLabel("x from"));
+        controls.add(fromField);
+        controls.add(new JLabel("to"));
+        controls.add(toField);
+        controls.add(new JLabel("samples"));
+        controls.add(samplesBox);
+        controls.add(plotButton);
+
+        plot.setOnSampled(() -> {
+            Envelope env = plot.getEnvelope();
+            status.setText(String.format(" %,d samples in %.1f ms (drag to pan, scroll to zoom, double-click to fit)",
+                    env.samples, env.nanos / 1e6));
+        });
+
+        Runnable replot = () -> {
+            try {
+                double from = Double.parseDouble(fromField.getText().trim());
+                double to = Double.parseDouble(toField.getText().trim());
+                if (!(to > from)) {
+                    throw new IllegalArgumentException("x range is empty");
+                }
+                int samples = Integer.parseInt((String) samplesBox.getSelectedItem());
+                plot.plot(Expression.compile(expressionField.getText()), from, to, samples);
+            } catch (IllegalArgumentException ex) {
+                status.setText(" " + ex.getMessage());
+            }
+        };
+        plotButton.addActionListener(e -> replot.run());
+        expressionField.addActionListener(e -> replot.run());
+
+        window.setLayout(new BorderLayout());
+        window.add(controls, BorderLayout.NORTH);
+        window.add(plot, BorderLayout.CENTER);
+        window.add(status, BorderLayout.SOUTH);
+        window.pack();
+        window.setLocationRelativeTo(owner);
+        window.setVisible(true);
+        replot.run();
+    }
+}
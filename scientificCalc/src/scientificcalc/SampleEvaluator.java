@@ -0,0 +1,323 @@
+package scientificcalc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * SampleEvaluator
+ * Evaluates a one-variable {@link Expression} over millions of x values for
+ * plotting. The tree is flattened into a register program that runs one
+ * block of samples per instruction, so arithmetic becomes tight array loops
+ * the JIT compiles to SIMD code, and blocks are spread over all cores.
+ *
+ * Unlike {@link Expression#evaluate}, math errors do not throw: a sample
+ * outside a function's domain (e.g. log of a negative number) becomes NaN,
+ * which the plot draws as a gap. Small integer powers are multiplied out,
+ * so x^3 may differ from {@link Math#pow} in the last bit.
+ */
+final class SampleEvaluator {
+
+    /** Samples per block; one block of every register stays in the CPU cache. */
+    static final int BLOCK = 1024;
+
+    /** Target samples per parallel task. */
+    private static final int TASK_SAMPLES = 64 * 1024;
+
+    // --- Opcodes ---
+    private static final int ADD = 0;
+    private static final int SUBTRACT = 1;
+    private static final int MULTIPLY = 2;
+    private static final int DIVIDE = 3;
+    private static final int POWER = 4;
+    private static final int SQUARE = 5;
+    private static final int NEGATE = 6;
+    private static final int INTEGER_POWER = 7; // x^n for a small constant n, as repeated multiplication
+    private static final int UNARY = 8;   // Any other unary function
+    private static final int BINARY = 9;  // Any other binary function
+
+    /** Largest constant exponent expanded into multiplications. */
+    private static final int MAX_INTEGER_POWER = 16;
+
+    // Instructions as (opcode, target, left, right) quadruples; register 0 holds x
+    private final int[] code;
+    private final CalcFunction[] functions;
+    private final double[] constants; // Value per register, used where constantRegister is set
+    private final boolean[] constantRegister;
+    private final int registers;
+    private final int result;
+
+    private SampleEvaluator(int[] code, CalcFunction[] functions, double[] constants,
+                            boolean[] constantRegister, int result) {
+        this.code = code;
+        this.functions = functions;
+        this.constants = constants;
+        this.constantRegister = constantRegister;
+        this.registers = constants.length;
+        this.result = result;
+    }
+
+    /**
+     * Flattens an expression of at most one variable.
+     * @throws IllegalArgumentException If the expression has more than one variable.
+     */
+    static SampleEvaluator compile(Expression expression) {
+        if (expression.variables().size() > 1) {
+            throw new IllegalArgumentException("Only one variable can be plotted, found " + expression.variables());
+        }
+        Builder builder = new Builder();
+        int result = builder.emit(expression.root());
+        return builder.build(result);
+    }
+
+    /**
+     * Computes the min/max envelope of f over [xMin, xMax], split into columns
+     * (one per pixel), each sampled at samplesPerColumn evenly spaced points.
+     * NaN samples are skipped; a column without finite samples gets NaN.
+     */
+    void envelope(double xMin, double xMax, int columns, int samplesPerColumn, double[] min, double[] max) {
+        long total = (long) columns * samplesPerColumn;
+        double dx = (xMax - xMin) / total;
+        int columnsPerTask = Math.max(1, TASK_SAMPLES / samplesPerColumn);
+        int tasks = (columns + columnsPerTask - 1) / columnsPerTask;
+
+        IntStream.range(0, tasks).parallel().forEach(task -> {
+            int firstColumn = task * columnsPerTask;
+            int lastColumn = Math.min(columns, firstColumn + columnsPerTask);
+            double[][] scratch = newScratch();
+            double[] out = new double[BLOCK];
+
+            for (int k = firstColumn; k < lastColumn; k++) {
+                min[k] = Double.POSITIVE_INFINITY;
+                max[k] = Double.NEGATIVE_INFINITY;
+            }
+            long from = (long) firstColumn * samplesPerColumn;
+            long to = (long) lastColumn * samplesPerColumn;
+            int c = firstColumn;
+            long columnEnd = from + samplesPerColumn;
+            for (long start = from; start < to; start += BLOCK) {
+                int length = (int) Math.min(BLOCK, to - start);
+                double[] xs = scratch[0];
+                for (int i = 0; i < length; i++) {
+                    xs[i] = xMin + (start + i + 0.5) * dx;
+                }
+                evaluateBlock(scratch, length, out);
+                for (int i = 0; i < length; i++) {
+                    if (start + i == columnEnd) {
+                        c++;
+                        columnEnd += samplesPerColumn;
+                    }
+                    double y = out[i];
+                    if (y == y) { // Not NaN
+                        if (y < min[c]) min[c] = y;
+                        if (y > max[c]) max[c] = y;
+                    }
+                }
+            }
+            for (int k = firstColumn; k < lastColumn; k++) {
+                if (min[k] > max[k]) {
+                    min[k] = Double.NaN;
+                    max[k] = Double.NaN;
+                }
+            }
+        });
+    }
+
+    /**
+     * Evaluates one block. scratch[0] must hold the x values.
+     */
+    void evaluateBlock(double[][] scratch, int length, double[] out) {
+        for (int pc = 0; pc < code.length; pc += 4) {
+            int op = code[pc];
+            double[] t = scratch[code[pc + 1]];
+            double[] a = scratch[code[pc + 2]];
+            double[] b = scratch[code[pc + 3]];
+            switch (op) {
+                case ADD:
+                    for (int i = 0; i < length; i++) t[i] = a[i] + b[i];
+                    break;
+                case SUBTRACT:
+                    for (int i = 0; i < length; i++) t[i] = a[i] - b[i];
+                    break;
+                case MULTIPLY:
+                    for (int i = 0; i < length; i++) t[i] = a[i] * b[i];
+                    break;
+                case DIVIDE:
+                    for (int i = 0; i < length; i++) t[i] = b[i] == 0 ? Double.NaN : a[i] / b[i];
+                    break;
+                case POWER:
+                    for (int i = 0; i < length; i++) t[i] = Math.pow(a[i], b[i]);
+                    break;
+                case SQUARE:
+                    for (int i = 0; i < length; i++) t[i] = a[i] * a[i];
+                    break;
+                case NEGATE:
+                    for (int i = 0; i < length; i++) t[i] = -a[i];
+                    break;
+                case INTEGER_POWER:
+                    // b is the exponent's register; its value is the same in every lane
+                    System.arraycopy(a, 0, t, 0, length);
+                    for (int k = (int) b[0]; k > 1; k--) {
+                        for (int i = 0; i < length; i++) t[i] *= a[i];
+                    }
+                    break;
+                case UNARY:
+                    applyUnary(functions[pc / 4], a, t, length);
+                    break;
+                default:
+                    applyBinary(functions[pc / 4], a, b, t, length);
+            }
+        }
+        System.arraycopy(scratch[result], 0, out, 0, length);
+    }
+
+    /**
+     * @return Per-thread registers, with constant registers pre-filled.
+     */
+    double[][] newScratch() {
+        double[][] scratch = new double[registers][BLOCK];
+        for (int r = 0; r < registers; r++) {
+            if (constantRegister[r]) {
+                Arrays.fill(scratch[r], constants[r]);
+            }
+        }
+        return scratch;
+    }
+
+    // --- Transcendental and custom functions ---
+
+    private static void applyUnary(CalcFunction function, double[] a, double[] t, int length) {
+        String kernel = function.kernel();
+        if (kernel == null) {
+            for (int i = 0; i < length; i++) {
+                try {
+                    t[i] = function.apply(a[i]);
+                } catch (ArithmeticException ex) {
+                    t[i] = Double.NaN;
+                }
+            }
+            return;
+        }
+        // Built-ins, with domain errors mapped to NaN instead of exceptions
+        switch (kernel) {
+            case "sin":
+                for (int i = 0; i < length; i++) t[i] = Math.sin(Math.toRadians(a[i]));
+                break;
+            case "cos":
+                for (int i = 0; i < length; i++) t[i] = Math.cos(Math.toRadians(a[i]));
+                break;
+            case "tan":
+                for (int i = 0; i < length; i++) t[i] = Math.tan(Math.toRadians(a[i]));
+                break;
+            case "log":
+                for (int i = 0; i < length; i++) t[i] = a[i] <= 0 ? Double.NaN : Math.log10(a[i]);
+                break;
+            case "ln":
+                for (int i = 0; i < length; i++) t[i] = a[i] <= 0 ? Double.NaN : Math.log(a[i]);
+                break;
+            case "sqrt":
+                for (int i = 0; i < length; i++) t[i] = Math.sqrt(a[i]);
+                break;
+            case "reciprocal":
+                for (int i = 0; i < length; i++) t[i] = a[i] == 0 ? Double.NaN : 1.0 / a[i];
+                break;
+            case "factorial":
+                for (int i = 0; i < length; i++) {
+                    double v = a[i];
+                    t[i] = v != (long) v || v < 0 ? Double.NaN : ScientificCalc.factorial((long) v);
+                }
+                break;
+            default:
+                // asin, acos, atan, percent, deg, rad never throw
+                for (int i = 0; i < length; i++) t[i] = function.apply(a[i]);
+        }
+    }
+
+    private static void applyBinary(CalcFunction function, double[] a, double[] b, double[] t, int length) {
+        for (int i = 0; i < length; i++) {
+            try {
+                t[i] = function.apply(a[i], b[i]);
+            } catch (ArithmeticException ex) {
+                t[i] = Double.NaN;
+            }
+        }
+    }
+
+    // --- Flattening ---
+
+    private static final class Builder {
+        private final List<Integer> code = new ArrayList<>();
+        private final List<CalcFunction> functions = new ArrayList<>();
+        private final List<Double> constants = new ArrayList<>();
+        private final List<Boolean> constant = new ArrayList<>();
+
+        Builder() {
+            register(Double.NaN, false); // Register 0: x
+        }
+
+        int emit(Node node) {
+            if (node instanceof Node.Constant) {
+                return register(((Node.Constant) node).value, true);
+            }
+            if (node instanceof Node.Variable) {
+                return 0;
+            }
+            if (node instanceof Node.Function) {
+                Node.Function call = (Node.Function) node;
+                int operand = emit(call.operand);
+                String kernel = call.function.kernel();
+                if ("negate".equals(kernel)) return instruction(NEGATE, call.function, operand, operand);
+                if ("square".equals(kernel)) return instruction(SQUARE, call.function, operand, operand);
+                return instruction(UNARY, call.function, operand, operand);
+            }
+            Node.Binary call = (Node.Binary) node;
+            String kernel = call.function.kernel();
+            if ("power".equals(kernel) && call.right instanceof Node.Constant) {
+                double exponent = ((Node.Constant) call.right).value;
+                if (exponent == (int) exponent && exponent >= 1 && exponent <= MAX_INTEGER_POWER) {
+                    int base = emit(call.left);
+                    return instruction(INTEGER_POWER, call.function, base, emit(call.right));
+                }
+            }
+            int left = emit(call.left);
+            int right = emit(call.right);
+            int op = kernel == null ? BINARY : switch (kernel) {
+                case "add" -> ADD;
+                case "subtract" -> SUBTRACT;
+                case "multiply" -> MULTIPLY;
+                case "divide" -> DIVIDE;
+                case "power" -> POWER;
+                default -> BINARY;
+            };
+            return instruction(op, call.function, left, right);
+        }
+
+        private int register(double value, boolean isConstant) {
+            constants.add(value);
+            constant.add(isConstant);
+            return constants.size() - 1;
+        }
+
+        private int instruction(int op, CalcFunction function, int left, int right) {
+            int target = register(Double.NaN, false);
+            code.add(op);
+            code.add(target);
+            code.add(left);
+            code.add(right);
+            functions.add(function);
+            return target;
+        }
+
+        SampleEvaluator build(int result) {
+            int[] program = code.stream().mapToInt(Integer::intValue).toArray();
+            double[] values = new double[constants.size()];
+            boolean[] isConstant = new boolean[values.length];
+            for (int r = 0; r < values.length; r++) {
+                values[r] = constants.get(r);
+                isConstant[r] = constant.get(r);
+            }
+            return new SampleEvaluator(program, functions.toArray(new CalcFunction[0]), values, isConstant, result);
+        }
+    }
+}
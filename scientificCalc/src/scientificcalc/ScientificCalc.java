@@ -2,31 +2,29 @@ package scientificcalc;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.text.DecimalFormat;
+import java.io.IOException;
+import java.math.MathContext;
 
 /**
  * ScientificCalculator
  * A fully functional scientific calculator implemented using Java Swing.
  */
-public class ScientificCalc implements ActionListener {
+public class ScientificCalc {
 
     // --- GUI Components ---
     private JFrame frame;
     private JTextField display;
-    private JPanel buttonPanel;
+    private Keypad keypad;
+    private HistoryPanel history;
 
-    // --- Calculator State Variables ---
-    private String displayValue = "0";
-    private double currentResult = 0.0;
-    private String lastOperation = "";
-    private boolean isNewNumber = true; // True if the display is showing a result or waiting for a new number
-    private boolean justCalculated = false; // True if '=' was just pressed
-    
-    // Formatter for precision. Use E notation for very large/small numbers.
-    private static final DecimalFormat df = new DecimalFormat("0.############E0"); 
-    private static final DecimalFormat dfStandard = new DecimalFormat("#.############");
+    // --- Calculator State ---
+    private final CalculatorCore core = new CalculatorCore();
+
+    // Significant digits shown on the display; hides binary noise such as 0.1 + 0.2 = 0.30000000000000004
+    static final int DISPLAY_DIGITS = 15;
+    // Per-thread scratch buffer for NumberFormatter
+    private static final ThreadLocal<char[]> formatBuffer =
+        ThreadLocal.withInitial(() -> new char[NumberFormatter.MAX_CHARS]);
 
     // --- Button Labels for Layout (6 rows, 8 columns) ---
     private final String[] combinedButtons = {
@@ -39,7 +37,7 @@ public class ScientificCalc implements ActionListener {
         // Row 4
         "x^y", "!", "(", ")", "4", "5", "6", "-",
         // Row 5
-        "", "", "", "", "1", "2", "3", "+",
+        "prec", "plot", "solve", "stats", "1", "2", "3", "+",
         // Row 6 (Removed spanning '0' for clean GridLayout)
         "", "", "", "", "0", ".", "=", "" // Last slot is empty for 6x8
     };
@@ -58,267 +56,117 @@ public class ScientificCalc implements ActionListener {
         display.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         display.setBackground(new Color(245, 245, 245));
 
-        // 2. Button Panel setup
-        buttonPanel = new JPanel();
-        buttonPanel.setLayout(new GridLayout(6, 8, 5, 5));
-
-        // Create and style buttons
-        for (String label : combinedButtons) {
-            if (label == null || label.isEmpty()) {
-                buttonPanel.add(new JLabel("")); // Filler space
-                continue;
-            }
-
-            JButton button = new JButton(label);
-            button.setFont(new Font("Inter", Font.BOLD, 18));
-            button.addActionListener(this);
-            button.setFocusPainted(false);
-            button.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        // 2. Keypad: one painted component for the whole key grid
+        keypad = new Keypad(combinedButtons, 6, 8, this::createKeyAction);
 
-            // Apply specific styles
-            if (label.matches("[0-9]")) {
-                button.setBackground(new Color(240, 240, 240));
-                button.setForeground(new Color(30, 30, 30));
-            } else if (label.equals("=") || label.matches("[+\\-*/]")) {
-                button.setBackground(new Color(59, 130, 246)); // Blue operators
-                button.setForeground(Color.WHITE);
-            } else if (label.equals("C") || label.equals("BkSp")) {
-                button.setBackground(new Color(239, 68, 68)); // Red clear/delete
-                button.setForeground(Color.WHITE);
-            } else {
-                button.setBackground(new Color(229, 231, 235)); // Gray scientific/utility
-                button.setForeground(new Color(30, 30, 30));
-            }
-            button.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200), 1));
-            buttonPanel.add(button);
-        }
+        // 3. History side panel, filled from the log on disk in the background
+        history = new HistoryPanel(text -> {
+            core.insertExpression(text);
+            updateDisplay();
+        });
+        core.setHistoryListener(history::record);
+        history.load(HistoryLog.DEFAULT_FILE);
 
-        // 3. Assemble Frame
+        // 4. Assemble Frame
         frame.add(display, BorderLayout.NORTH);
-        frame.add(buttonPanel, BorderLayout.CENTER);
+        frame.add(keypad, BorderLayout.CENTER);
+        frame.add(history, BorderLayout.EAST);
 
         // Final frame setup
-        frame.setSize(800, 600);
+        frame.setSize(1050, 600);
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
     }
 
     /**
      * Entry point for the application.
+     * Run with "--batch <input|-> <output|->" to evaluate an expression file without a GUI,
+     * "--serve [port]" to evaluate expressions for other processes over TCP on localhost,
+     * or "--loadtest [port] [connections] [requests]" to load-test a running server.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchEvaluator.run(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            ExpressionServer.run(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--loadtest")) {
+            ExpressionServer.loadTest(args);
+            return;
+        }
         SwingUtilities.invokeLater(ScientificCalc::new);
     }
 
     /**
-     * Handles all button click events.
+     * Binds a key to its handler once, so a click is a direct call with no
+     * command matching.
      */
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        String command = e.getActionCommand();
-
-        if (command.matches("[0-9]")) {
-            handleNumber(command);
-        } else if (command.equals(".")) {
-            handleDecimal();
-        } else if (command.equals("C")) {
-            clear();
-        } else if (command.equals("BkSp")) {
-            backspace();
-        } else if (command.equals("=")) {
-            calculate();
-        } else if (command.matches("[+\\-*/]|x\\^y")) { // Arithmetic and Power
-            handleArithmetic(command);
-        } else if (command.matches("sin|cos|tan|log|ln|sqrt|x\\^2|1/x|%|\\+/\\-|asin|acos|atan|PI|e|!|deg|rad")) {
-            handleScientific(command);
+    private Runnable createKeyAction(String label) {
+        if (label.equals("prec")) {
+            return () -> {
+                togglePrecision();
+                updateDisplay();
+            };
         }
-        // Parenthesis buttons '(' and ')' are ignored as full expression parsing is not implemented.
-    }
-
-    private void handleNumber(String digit) {
-        if (isNewNumber || displayValue.equals("Error")) {
-            displayValue = digit;
-            isNewNumber = false;
-            justCalculated = false;
-        } else {
-            // Prevent leading zero unless it's a decimal "0.X"
-            if (displayValue.equals("0") && !digit.equals("0")) {
-                 displayValue = digit;
-            } else if (!displayValue.equals("0") || displayValue.contains(".")) {
-                displayValue += digit;
-            }
+        if (label.equals("plot")) {
+            return () -> PlotPanel.open(frame, "sin(x)");
         }
-        updateDisplay();
-    }
-
-    private void handleDecimal() {
-        if (isNewNumber || displayValue.equals("Error")) {
-            displayValue = "0.";
-            isNewNumber = false;
-            justCalculated = false;
-        } else if (!displayValue.contains(".")) {
-            displayValue += ".";
+        if (label.equals("solve")) {
+            return () -> NumericsDialog.open(frame);
         }
-        updateDisplay();
-    }
-
-    private void clear() {
-        displayValue = "0";
-        currentResult = 0.0;
-        lastOperation = "";
-        isNewNumber = true;
-        justCalculated = false;
-        updateDisplay();
-    }
-
-    private void backspace() {
-        if (displayValue.equals("Error")) {
-            clear();
-            return;
+        if (label.equals("stats")) {
+            return () -> StatsDialog.open(frame);
         }
-        if (displayValue.length() > 1 && !isNewNumber) {
-            displayValue = displayValue.substring(0, displayValue.length() - 1);
-        } else {
-            displayValue = "0";
-            isNewNumber = true;
-        }
-        updateDisplay();
-    }
-
-    private void handleArithmetic(String op) {
-        try {
-            double value = Double.parseDouble(displayValue);
-
-            // If a previous operation exists and we haven't just calculated, perform it
-            if (!lastOperation.isEmpty() && !isNewNumber && !justCalculated) {
-                currentResult = performOperation(currentResult, value, lastOperation);
-            } else if (isNewNumber) {
-                 // If a new number is displayed (e.g., after an operation or initial 0),
-                 // update current result only if it wasn't a result from a previous calc
-                 currentResult = Double.parseDouble(formatResult(currentResult));
-            } else {
-                // First number in a sequence (e.g., '5' then '+')
-                currentResult = value;
-            }
-
-            lastOperation = op;
-            isNewNumber = true;
-            justCalculated = false;
-            displayValue = formatResult(currentResult);
+        Runnable key = core.bind(label);
+        return () -> {
+            key.run();
             updateDisplay();
-
-        } catch (Exception ex) {
-            display.setText("Error");
-            isNewNumber = true;
-            lastOperation = "";
-        }
+        };
     }
 
-    private void calculate() {
-        if (lastOperation.isEmpty()) {
-            // If no operation is pending, do nothing or re-display current number
-            isNewNumber = true;
-            justCalculated = true;
+    /**
+     * Switches precision mode on (asking for the number of significant digits) or off.
+     */
+    private void togglePrecision() {
+        if (core.getPrecision() != null) {
+            core.setPrecision(null);
+            frame.setTitle("Scientific Calculator");
             return;
         }
 
+        String input = JOptionPane.showInputDialog(frame, "Significant digits:", "50");
+        if (input == null) {
+            return;
+        }
         try {
-            // The value to use as the second operand
-            double value = Double.parseDouble(displayValue);
-            
-            // Perform the final operation
-            currentResult = performOperation(currentResult, value, lastOperation);
-            
-            displayValue = formatResult(currentResult);
-            lastOperation = ""; // Clear pending operation
-            isNewNumber = true;
-            justCalculated = true;
-            updateDisplay();
-            
-        } catch (Exception ex) {
-            display.setText("Error");
-            isNewNumber = true;
-            lastOperation = "";
-            justCalculated = false;
+            int digits = Integer.parseInt(input.trim());
+            if (digits < 1) {
+                throw new NumberFormatException();
+            }
+            core.setPrecision(new MathContext(digits));
+            frame.setTitle("Scientific Calculator (" + digits + " digits)");
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(frame, "Invalid number of digits: " + input);
         }
     }
 
-    private double performOperation(double num1, double num2, String op) throws ArithmeticException {
-        switch (op) {
-            case "+": return num1 + num2;
-            case "-": return num1 - num2;
-            case "*": return num1 * num2;
-            case "/":
-                if (num2 == 0) {
-                    throw new ArithmeticException("Division by zero");
-                }
-                return num1 / num2;
-            case "x^y": return Math.pow(num1, num2);
-            default:
-                 // Should not happen if handleArithmetic is correct
-                 throw new IllegalArgumentException("Unknown operation: " + op); 
-        }
+    /**
+     * Applies a binary arithmetic operation by key label (e.g. "+", "x^y").
+     */
+    static double performOperation(double num1, double num2, String op) throws ArithmeticException {
+        return FunctionRegistry.global().require(op).apply(num1, num2);
     }
 
-    private void handleScientific(String command) {
-        try {
-            // Get value from display, but if it's a constant (PI, e), ignore current display
-            double value = command.matches("PI|e") ? 0.0 : Double.parseDouble(displayValue);
-            double result = value;
-            
-            // If an arithmetic operation is pending, clear it before unary function
-            lastOperation = ""; 
-
-            switch (command) {
-                case "sin": result = Math.sin(Math.toRadians(value)); break;
-                case "cos": result = Math.cos(Math.toRadians(value)); break;
-                case "tan": result = Math.tan(Math.toRadians(value)); break;
-                case "asin": result = Math.toDegrees(Math.asin(value)); break;
-                case "acos": result = Math.toDegrees(Math.acos(value)); break;
-                case "atan": result = Math.toDegrees(Math.atan(value)); break;
-                case "log": 
-                    if (value <= 0) throw new ArithmeticException("Invalid input for log");
-                    result = Math.log10(value); 
-                    break;
-                case "ln": 
-                    if (value <= 0) throw new ArithmeticException("Invalid input for ln");
-                    result = Math.log(value); 
-                    break;
-                case "sqrt": 
-                    if (value < 0) throw new ArithmeticException("Cannot take sqrt of negative");
-                    result = Math.sqrt(value); 
-                    break;
-                case "x^2": result = value * value; break;
-                case "1/x": 
-                    if (value == 0) throw new ArithmeticException("Cannot divide by zero");
-                    result = 1.0 / value; 
-                    break;
-                case "%": result = value / 100.0; break;
-                case "+/-": result = -value; break;
-                case "PI": result = Math.PI; break;
-                case "e": result = Math.E; break;
-                case "!": 
-                    // Factorial: check for non-integer or negative
-                    if (value != (long) value || value < 0) {
-                        throw new ArithmeticException("Invalid input for !");
-                    }
-                    result = factorial((long) value);
-                    break;
-                case "deg": result = Math.toDegrees(value); break;
-                case "rad": result = Math.toRadians(value); break;
-            }
-
-            displayValue = formatResult(result);
-            isNewNumber = true;
-            justCalculated = true;
-            updateDisplay();
-
-        } catch (Exception ex) {
-            display.setText("Error");
-            isNewNumber = true;
-            lastOperation = "";
-            justCalculated = false;
-        }
+    /**
+     * Applies a unary scientific function or constant by key label (e.g. "sin", "PI").
+     * Trigonometric functions work in degrees.
+     */
+    static double applyScientific(String command, double value) throws ArithmeticException {
+        CalcFunction function = FunctionRegistry.global().require(command);
+        return function.arity() == 0 ? function.value() : function.apply(value);
     }
 
     /**
@@ -326,7 +174,7 @@ public class ScientificCalc implements ActionListener {
      * @param n The non-negative integer number to calculate factorial of.
      * @return The factorial result or Double.POSITIVE_INFINITY on overflow.
      */
-    private double factorial(long n) {
+    static double factorial(long n) {
         if (n == 0) return 1.0;
         
         double result = 1.0;
@@ -342,28 +190,21 @@ public class ScientificCalc implements ActionListener {
 
     /**
      * Formats the double result to a clean string, using standard format 
-     * or scientific notation for extremes.
+     * or scientific notation for extremes (below 1e-8 or from 1e12 up).
      */
-    private String formatResult(double result) {
+    static String formatResult(double result) {
         if (Double.isInfinite(result)) {
             return "Error (Overflow/Div by Zero)";
         }
         if (Double.isNaN(result)) {
             return "Error (NaN)";
         }
-        
-        // Use standard format unless the number is too large/small
-        String formatted = dfStandard.format(result);
-
-        // Check for scientific notation necessity (simplistic check)
-        if (Math.abs(result) >= 1e12 || (Math.abs(result) > 0 && Math.abs(result) < 1e-8)) {
-            formatted = df.format(result);
-        }
 
-        return formatted;
+        char[] buffer = formatBuffer.get();
+        return new String(buffer, 0, NumberFormatter.format(result, DISPLAY_DIGITS, buffer, 0));
     }
 
     private void updateDisplay() {
-        display.setText(displayValue);
+        display.setText(core.displayText());
     }
-}
\ No newline at end of file
+}
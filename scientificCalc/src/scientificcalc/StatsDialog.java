@@ -0,0 +1,166 @@
+package scientificcalc;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * StatsDialog
+ * Statistics mode: summarizes typed or pasted numbers, or a file of any size,
+ * with {@link StatsReader}. Files are read in a SwingWorker with a progress
+ * bar and can be cancelled.
+ */
+final class StatsDialog {
+
+    private static final int PROGRESS_STEPS = 1000;
+    private static final double[] PERCENTILES = {0.01, 0.05, 0.25, 0.5, 0.75, 0.95, 0.99};
+
+    private final JDialog dialog;
+    private final JTextArea input = new JTextArea(10, 30);
+    private final JTextArea output = new JTextArea(14, 30);
+    private final JProgressBar progress = new JProgressBar(0, PROGRESS_STEPS);
+    private final JButton computeButton = new JButton("Compute");
+    private final JButton fileButton = new JButton("Open File...");
+    private final JButton cancelButton = new JButton("Cancel");
+    private final Timer progressTimer;
+
+    private Numerics.Job job;
+    private SwingWorker<StatsReader.Result, Void> worker;
+
+    private StatsDialog(Frame owner) {
+        dialog = new JDialog(owner, "Statistics", false);
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                cancel(); // Stop reading a file no one will see the summary of
+            }
+        });
+
+        input.setFont(new Font("Monospaced", Font.PLAIN, 14));
+        output.setFont(new Font("Monospaced", Font.PLAIN, 14));
+        output.setEditable(false);
+        progress.setStringPainted(true);
+        cancelButton.setEnabled(false);
+        progressTimer = new Timer(100, e -> progress.setValue((int) (job.progress() * PROGRESS_STEPS)));
+
+        computeButton.addActionListener(e -> show(StatsReader.readText(input.getText()), "input"));
+        fileButton.addActionListener(e -> chooseFile());
+        cancelButton.addActionListener(e -> cancel());
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT, 6, 4));
+        buttons.add(computeButton);
+        buttons.add(fileButton);
+        buttons.add(cancelButton);
+
+        JPanel left = new JPanel(new BorderLayout(5, 5));
+        left.add(new JLabel("Numbers (one per line, or separated by spaces/commas):"), BorderLayout.NORTH);
+        left.add(new JScrollPane(input), BorderLayout.CENTER);
+        left.add(buttons, BorderLayout.SOUTH);
+
+        JPanel right = new JPanel(new BorderLayout(5, 5));
+        right.add(progress, BorderLayout.NORTH);
+        right.add(new JScrollPane(output), BorderLayout.CENTER);
+
+        JPanel content = new JPanel(new GridLayout(1, 2, 10, 10));
+        content.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        content.add(left);
+        content.add(right);
+        dialog.add(content);
+        dialog.pack();
+        dialog.setLocationRelativeTo(owner);
+    }
+
+    /**
+     * Opens a new dialog; closing it disposes it and cancels a file being read.
+     * @param owner The calculator frame.
+     */
+    static void open(Frame owner) {
+        new StatsDialog(owner).dialog.setVisible(true);
+    }
+
+    private void cancel() {
+        if (worker != null) {
+            job.cancel();
+            worker.cancel(false);
+        }
+    }
+
+    private void chooseFile() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(dialog) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        Numerics.Job current = new Numerics.Job();
+        job = current;
+        setRunning(true);
+        output.setText("Reading " + file.getName() + "...");
+        worker = new SwingWorker<StatsReader.Result, Void>() {
+            @Override
+            protected StatsReader.Result doInBackground() throws Exception {
+                return StatsReader.readFile(file.toPath(), current);
+            }
+
+            @Override
+            protected void done() {
+                setRunning(false);
+                try {
+                    show(get(), file.getName());
+                } catch (CancellationException ex) {
+                    output.setText("Cancelled");
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    output.setText(cause instanceof CancellationException ? "Cancelled" : "Error: " + cause.getMessage());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void setRunning(boolean running) {
+        computeButton.setEnabled(!running);
+        fileButton.setEnabled(!running);
+        cancelButton.setEnabled(running);
+        if (running) {
+            progress.setValue(0);
+            progressTimer.start();
+        } else {
+            progressTimer.stop();
+            progress.setValue(PROGRESS_STEPS);
+        }
+    }
+
+    private void show(StatsReader.Result result, String source) {
+        StreamingStats stats = result.stats;
+        StringBuilder text = new StringBuilder();
+        text.append("Source:    ").append(source).append('\n');
+        text.append("Count:     ").append(stats.count()).append('\n');
+        if (result.skipped > 0) {
+            text.append("Skipped:   ").append(result.skipped).append(" non-numeric\n");
+        }
+        if (stats.count() > 0) {
+            line(text, "Mean:", stats.mean());
+            line(text, "Std dev:", stats.standardDeviation());
+            line(text, "Variance:", stats.variance());
+            line(text, "Min:", stats.min());
+            line(text, "Max:", stats.max());
+            text.append("Percentiles (approximate):\n");
+            for (double q : PERCENTILES) {
+                line(text, "  p" + Math.round(q * 100) + ":", stats.quantile(q));
+            }
+        }
+        output.setText(text.toString());
+        output.setCaretPosition(0);
+    }
+
+    private static void line(StringBuilder text, String label, double value) {
+        text.append(String.format("%-11s", label)).append(ScientificCalc.formatResult(value)).append('\n');
+    }
+}
@@ -0,0 +1,204 @@
+package scientificcalc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+/**
+ * StatsReader
+ * Reads a data column into {@link StreamingStats}. Values are numbers
+ * separated by line breaks, whitespace, commas or semicolons; other tokens
+ * (e.g. a header line) are counted as skipped.
+ *
+ * Files of any size are memory-mapped window by window through
+ * {@link BatchEvaluator#forEachWindow}; each window is cut into chunks at line boundaries,
+ * each chunk is summarized in parallel, and the partial summaries are merged.
+ * Memory use does not depend on the file size.
+ */
+final class StatsReader {
+
+    // Exact powers of ten for the fast parsing path
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private StatsReader() {
+    }
+
+    /**
+     * The summary of a whole input.
+     */
+    static final class Result {
+        final StreamingStats stats;
+        final long skipped;
+
+        Result(StreamingStats stats, long skipped) {
+            this.stats = stats;
+            this.skipped = skipped;
+        }
+    }
+
+    /**
+     * Summarizes typed or pasted text.
+     */
+    static Result readText(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        Chunk chunk = readChunk(ByteBuffer.wrap(bytes), 0, bytes.length);
+        return new Result(chunk.stats, chunk.skipped);
+    }
+
+    /**
+     * Summarizes a file.
+     * @param job Receives progress in bytes; cancelling it stops the read between windows.
+     * @throws java.util.concurrent.CancellationException If the job is cancelled.
+     */
+    static Result readFile(Path file, Numerics.Job job) throws IOException {
+        Chunk total = new Chunk();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            job.start(in.size());
+            BatchEvaluator.forEachWindow(in, (mapped, end) -> {
+                job.checkCancelled();
+                int[] bounds = BatchEvaluator.lineChunks(mapped, end);
+                Chunk[] chunks = IntStream.range(0, bounds.length - 1).parallel()
+                    .mapToObj(i -> {
+                        Chunk chunk = readChunk(mapped, bounds[i], bounds[i + 1]);
+                        job.advance(bounds[i + 1] - bounds[i]);
+                        return chunk;
+                    })
+                    .toArray(Chunk[]::new);
+                for (Chunk chunk : chunks) {
+                    total.stats.merge(chunk.stats);
+                    total.skipped += chunk.skipped;
+                }
+            });
+        }
+        return new Result(total.stats, total.skipped);
+    }
+
+    // --- Parsing ---
+
+    private static final class Chunk {
+        final StreamingStats stats = new StreamingStats();
+        long skipped;
+    }
+
+    private static Chunk readChunk(ByteBuffer buffer, int from, int to) {
+        byte[] input = new byte[to - from];
+        buffer.get(from, input);
+        Chunk chunk = new Chunk();
+
+        int i = 0;
+        while (i < input.length) {
+            while (i < input.length && isSeparator(input[i])) {
+                i++;
+            }
+            int start = i;
+            while (i < input.length && !isSeparator(input[i])) {
+                i++;
+            }
+            if (i > start) {
+                double value = parse(input, start, i);
+                if (value == value) {
+                    chunk.stats.add(value);
+                } else {
+                    chunk.skipped++;
+                }
+            }
+        }
+        return chunk;
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == ',' || b == ';';
+    }
+
+    /**
+     * Parses a number such as "-12.5" or "3e-4" without allocating when it has
+     * at most 15 significant digits and a small exponent (then mantissa and
+     * power of ten are exact doubles, so one multiplication or division is
+     * correctly rounded). Other numbers go through Double.parseDouble.
+     * @return The value, or NaN if the token is not a number.
+     */
+    static double parse(byte[] b, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (b[i] == '-' || b[i] == '+')) {
+            negative = b[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean any = false;
+        boolean point = false;
+        for (; i < to; i++) {
+            byte c = b[i];
+            if (c >= '0' && c <= '9') {
+                any = true;
+                if (mantissa != 0 || c != '0') {
+                    if (digits >= 18) {
+                        return slowParse(b, from, to);
+                    }
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (point) scale--;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (!any) {
+            return slowParse(b, from, to);
+        }
+        if (i < to) {
+            if (b[i] != 'e' && b[i] != 'E') {
+                return slowParse(b, from, to);
+            }
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (b[i] == '-' || b[i] == '+')) {
+                negativeExponent = b[i] == '-';
+                i++;
+            }
+            int exponent = 0;
+            int start = i;
+            for (; i < to && b[i] >= '0' && b[i] <= '9'; i++) {
+                if (exponent > 10000) {
+                    return slowParse(b, from, to);
+                }
+                exponent = exponent * 10 + (b[i] - '0');
+            }
+            if (i == start || i < to) {
+                return Double.NaN;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (digits <= 15 && scale >= 0 && scale < POW10.length) {
+            value = mantissa * POW10[scale];
+        } else if (digits <= 15 && scale < 0 && -scale < POW10.length) {
+            value = mantissa / POW10[-scale];
+        } else {
+            return slowParse(b, from, to);
+        }
+        return negative ? -value : value;
+    }
+
+    private static double slowParse(byte[] b, int from, int to) {
+        try {
+            return Double.parseDouble(new String(b, from, to - from, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException ex) {
+            return Double.NaN;
+        }
+    }
+}
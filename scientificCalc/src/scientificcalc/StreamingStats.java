@@ -0,0 +1,89 @@
+package scientificcalc;
+
+/**
+ * StreamingStats
+ * One-pass summary of a data column in constant memory: count, mean and
+ * variance (Welford's update), min/max, and approximate percentiles from a
+ * {@link TDigest}.
+ *
+ * Partial results of separate chunks merge exactly for count, mean, variance
+ * and min/max (Chan et al.'s pairwise update), so a large file can be
+ * summarized in parallel. Not thread-safe; use one instance per chunk.
+ */
+final class StreamingStats {
+
+    private long count;
+    private double mean;
+    private double m2; // Sum of squared deviations from the mean
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private final TDigest digest = new TDigest();
+
+    /**
+     * Adds one value. NaN values are ignored.
+     */
+    void add(double value) {
+        if (value != value) {
+            return;
+        }
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        if (value < min) min = value;
+        if (value > max) max = value;
+        digest.add(value);
+    }
+
+    /**
+     * Adds the values summarized by other.
+     */
+    void merge(StreamingStats other) {
+        if (other.count == 0) {
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        digest.merge(other.digest);
+    }
+
+    long count() {
+        return count;
+    }
+
+    double mean() {
+        return count > 0 ? mean : Double.NaN;
+    }
+
+    /**
+     * @return The sample variance (divided by n - 1), or NaN below two values.
+     */
+    double variance() {
+        return count > 1 ? m2 / (count - 1) : Double.NaN;
+    }
+
+    double standardDeviation() {
+        return Math.sqrt(variance());
+    }
+
+    double min() {
+        return count > 0 ? min : Double.NaN;
+    }
+
+    double max() {
+        return count > 0 ? max : Double.NaN;
+    }
+
+    /**
+     * @param q The quantile, from 0 to 1.
+     * @return The approximate value at q.
+     */
+    double quantile(double q) {
+        return digest.quantile(q);
+    }
+}
@@ -0,0 +1,212 @@
+package scientificcalc;
+
+import java.util.Arrays;
+
+/**
+ * TDigest
+ * Approximate quantiles of a stream in constant memory (T. Dunning, "Computing
+ * extremely accurate quantiles using t-digests"). Values are clustered into
+ * about {@code compression} weighted centroids, small near the tails and
+ * large near the median, so extreme percentiles stay accurate.
+ *
+ * This is the merging variant: new values are buffered and merged into the
+ * sorted centroids in one pass when the buffer fills. Digests of separate
+ * chunks can be merged. Not thread-safe.
+ */
+final class TDigest {
+
+    static final double DEFAULT_COMPRESSION = 200;
+
+    private final double compression;
+
+    // Merged centroids, sorted by mean
+    private double[] means;
+    private double[] weights;
+    private int centroids;
+
+    // Unmerged values (or centroids of a merged digest)
+    private final double[] bufferMeans;
+    private final double[] bufferWeights;
+    private int buffered;
+    private boolean unitWeights = true;
+
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    TDigest(double compression) {
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression) * 2 + 10;
+        means = new double[capacity];
+        weights = new double[capacity];
+        bufferMeans = new double[capacity * 5];
+        bufferWeights = new double[capacity * 5];
+    }
+
+    void add(double value) {
+        add(value, 1);
+    }
+
+    void add(double value, double weight) {
+        if (buffered == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[buffered] = value;
+        bufferWeights[buffered] = weight;
+        buffered++;
+        unitWeights &= weight == 1;
+        totalWeight += weight;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    /**
+     * Adds all values summarized by other, e.g. the digest of another chunk.
+     */
+    void merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.centroids; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @param q The quantile, from 0 to 1 (0.5 is the median).
+     * @return The estimated value at q, or NaN if no values were added.
+     */
+    double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be in [0, 1]: " + q);
+        }
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (centroids == 1) {
+            return means[0];
+        }
+
+        // Each centroid's weight is spread evenly around its mean; interpolate
+        // between the centres of adjacent centroids, and towards min/max at the ends
+        double index = q * totalWeight;
+        if (index < weights[0] / 2) {
+            return min + (means[0] - min) * index / (weights[0] / 2);
+        }
+        double weightSoFar = weights[0] / 2;
+        for (int i = 0; i < centroids - 1; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (weightSoFar + step > index) {
+                double fraction = (index - weightSoFar) / step;
+                return means[i] + (means[i + 1] - means[i]) * fraction;
+            }
+            weightSoFar += step;
+        }
+        double last = weights[centroids - 1] / 2;
+        double fraction = Math.min(1, (index - weightSoFar) / last);
+        return means[centroids - 1] + (max - means[centroids - 1]) * fraction;
+    }
+
+    double size() {
+        return totalWeight;
+    }
+
+    /**
+     * Merges the buffer into the centroids: sorts everything by mean and
+     * greedily joins neighbours while the joined centroid spans at most one
+     * unit of the scale function k(q) = Z * log(q / (1 - q)), where
+     * Z = compression / (4 log(n / compression) + 24). Centroids near q = 0
+     * and q = 1 thus hold single values, and the centroid count stays
+     * around compression.
+     */
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        sortBuffer();
+        int n = centroids + buffered;
+        double[] allMeans = new double[n];
+        double[] allWeights = new double[n];
+        // Merge the sorted centroids and the sorted buffer
+        int c = 0, b = 0;
+        for (int i = 0; i < n; i++) {
+            if (b == buffered || (c < centroids && means[c] <= bufferMeans[b])) {
+                allMeans[i] = means[c];
+                allWeights[i] = weights[c++];
+            } else {
+                allMeans[i] = bufferMeans[b];
+                allWeights[i] = bufferWeights[b++];
+            }
+        }
+        buffered = 0;
+        unitWeights = true;
+
+        double total = totalWeight;
+        double normalizer = compression / (4 * Math.log(Math.max(total / compression, 1)) + 24);
+        int out = 0;
+        means[0] = allMeans[0];
+        weights[0] = allWeights[0];
+        double weightSoFar = 0;
+        double limit = total * quantileLimit(0, normalizer);
+        for (int i = 1; i < n; i++) {
+            double proposed = weights[out] + allWeights[i];
+            if (weightSoFar + proposed <= limit) {
+                // Weighted running mean
+                weights[out] = proposed;
+                means[out] += (allMeans[i] - means[out]) * allWeights[i] / proposed;
+            } else {
+                weightSoFar += weights[out];
+                limit = total * quantileLimit(weightSoFar / total, normalizer);
+                out++;
+                if (out == means.length) {
+                    means = Arrays.copyOf(means, out * 2);
+                    weights = Arrays.copyOf(weights, out * 2);
+                }
+                means[out] = allMeans[i];
+                weights[out] = allWeights[i];
+            }
+        }
+        centroids = out + 1;
+    }
+
+    /**
+     * @return The largest quantile a centroid starting at q may extend to,
+     *         i.e. the q' with k(q') = k(q) + 1.
+     */
+    private static double quantileLimit(double q, double normalizer) {
+        if (q >= 1) {
+            return 1;
+        }
+        double odds = q / (1 - q) * Math.exp(1 / normalizer);
+        return odds / (1 + odds);
+    }
+
+    /**
+     * Sorts the buffer by mean. Plain values all weigh 1 and sort as a
+     * primitive array; centroids from merged digests are sorted by index.
+     */
+    private void sortBuffer() {
+        if (unitWeights) {
+            Arrays.sort(bufferMeans, 0, buffered);
+            return;
+        }
+        Integer[] order = new Integer[buffered];
+        for (int i = 0; i < buffered; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (x, y) -> Double.compare(bufferMeans[x], bufferMeans[y]));
+        double[] sortedMeans = new double[buffered];
+        double[] sortedWeights = new double[buffered];
+        for (int i = 0; i < buffered; i++) {
+            sortedMeans[i] = bufferMeans[order[i]];
+            sortedWeights[i] = bufferWeights[order[i]];
+        }
+        System.arraycopy(sortedMeans, 0, bufferMeans, 0, buffered);
+        System.arraycopy(sortedWeights, 0, bufferWeights, 0, buffered);
+    }
+}